@@ -1,63 +1,510 @@
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 import com.opencsv.CSVReader;
 import java.net.URISyntaxException;
 
 public class AirbnbDataLoader {
- 
-    /** 
-     * Return an ArrayList containing the rows in the AirBnB London data set csv file.
+
+    // Smallest number of bytes worth handing to a separate thread
+    private static final long MINIMUM_CHUNK_SIZE = 1 << 20;
+
+    // Largest number of bytes in one chunk, so a chunk can always be held in one buffer
+    private static final long MAXIMUM_CHUNK_SIZE = 1 << 30;
+
+    // Number of chunks per processor, so that threads which finish early can pick up more work
+    private static final int CHUNKS_PER_PROCESSOR = 4;
+
+    // Number of bytes read at a time while looking for where chunks can start
+    private static final int SCAN_BLOCK_SIZE = 1 << 20;
+
+    // Whether chunks are memory mapped and scanned as bytes rather than read through opencsv
+    private boolean memoryMapped;
+
+    // Number of rows parsed between progress updates
+    private static final int PROGRESS_INTERVAL = 10000;
+
+    // Whether a binary snapshot of the loaded table is kept next to the csv file
+    private boolean snapshotCache = true;
+
+    // Listener told about loading progress, if any
+    private LoadProgressListener progressListener;
+
+    // Csv file to load, or null for the AirBnB London data set
+    private File dataFile;
+
+    // Progress of the current load, shared by the threads parsing chunks
+    private AtomicLong rowsLoaded = new AtomicLong();
+    private AtomicLong bytesLoaded = new AtomicLong();
+    private long totalBytes;
+
+    /**
+     * Choose how the chunks of the csv file are read. When memory mapped, each chunk of the file is
+     * mapped into memory and split into fields directly over the mapped bytes, so numbers are decoded
+     * without creating a String for every cell. Otherwise each chunk is read into memory and parsed
+     * by opencsv.
+     * @param memoryMapped True to memory map the csv file.
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Choose whether a binary snapshot of the table is kept next to the csv file. When enabled, the
+     * table is read from the snapshot if it matches the csv file, and otherwise the csv file is parsed
+     * and a new snapshot written for next time. Enabled by default.
+     * @param snapshotCache True to use a snapshot file.
+     */
+    public void setSnapshotCache(boolean snapshotCache) {
+        this.snapshotCache = snapshotCache;
+    }
+
+    /**
+     * Set a listener to be told how many rows and bytes have been loaded as loading goes on.
+     * @param progressListener The listener, or null for no progress updates.
+     */
+    public void setProgressListener(LoadProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Choose a csv file to load in place of the AirBnB London data set, such as a larger export with the
+     * same columns.
+     * @param dataFile The csv file, or null for the AirBnB London data set.
+     */
+    public void setDataFile(File dataFile) {
+        this.dataFile = dataFile;
+    }
+
+    /**
+     * Return an ArrayList containing the rows in the AirBnB London data set csv file, or an empty
+     * ArrayList if the file cannot be read.
      */
     public ArrayList<AirbnbListing> load() {
-        System.out.print("Begin loading Airbnb london dataset...");
-        ArrayList<AirbnbListing> listings = new ArrayList<AirbnbListing>();
-        try{
-            URL url = getClass().getResource("airbnb-london.csv");
-            CSVReader reader = new CSVReader(new FileReader(new File(url.toURI()).getAbsolutePath()));
-            String [] line;
-            //skip the first row (column headers)
-            reader.readNext();
-            while ((line = reader.readNext()) != null) {
-                String id = line[0];
-                String name = line[1];
-                String host_id = line[2];
-                String host_name = line[3];
-                String neighbourhood = line[4];
-                double latitude = convertDouble(line[5]);
-                double longitude = convertDouble(line[6]);
-                String room_type = line[7];
-                int price = convertInt(line[8]);
-                int minimumNights = convertInt(line[9]);
-                int numberOfReviews = convertInt(line[10]);
-                String lastReview = line[11];
-                double reviewsPerMonth = convertDouble(line[12]);
-                int calculatedHostListingsCount = convertInt(line[13]);
-                int availability365 = convertInt(line[14]);
-
-                AirbnbListing listing = new AirbnbListing(id, name, host_id,
-                        host_name, neighbourhood, latitude, longitude, room_type,
-                        price, minimumNights, numberOfReviews, lastReview,
-                        reviewsPerMonth, calculatedHostListingsCount, availability365
-                    );
-                listings.add(listing);
-            }
-        } catch(IOException | URISyntaxException e){
+        ListingTable table;
+        try {
+            table = loadTable();
+        } catch (IOException e) {
             System.out.println("Failure! Something went wrong");
             e.printStackTrace();
+            table = new ListingTable(0);
+        }
+        ArrayList<AirbnbListing> listings = new ArrayList<AirbnbListing>(table.size());
+        // Create a listing object for each row of the table
+        for (int row = 0; row < table.size(); row++) {
+            listings.add(table.getListing(row));
         }
+        return listings;
+    }
+
+    /**
+     * Return a column oriented table containing the rows in the AirBnB London data set csv file.
+     * The file is split into chunks, each starting at the beginning of a row, which are parsed in
+     * parallel on the common fork/join pool and then joined back together in file order.
+     * @throws IOException If the file cannot be read to the end, in which case no rows are returned, as
+     *         the rows read so far would look like a smaller data set.
+     */
+    public ListingTable loadTable() throws IOException {
+        System.out.print("Begin loading Airbnb london dataset...");
+        File file = getDataFile();
+        startProgress(file);
+
+        // Use the snapshot of the file if there is an up to date one
+        ListingTable snapshot = loadSnapshot(file);
+        if (snapshot != null) {
+            reportProgress(snapshot.size(), totalBytes);
+            System.out.println("Success! Number of records loaded from snapshot: " + snapshot.size());
+            return snapshot;
+        }
+
+        long[] boundaries = findChunkBoundaries(file);
+
+        // Start parsing every chunk
+        ArrayList<ChunkParser> chunks = new ArrayList<ChunkParser>();
+        for (int chunk = 0; chunk + 1 < boundaries.length; chunk++) {
+            ChunkParser parser = new ChunkParser(file, boundaries[chunk], boundaries[chunk + 1], chunk == 0);
+            ForkJoinPool.commonPool().execute(parser);
+            chunks.add(parser);
+        }
+
+        // Wait for each chunk in order and add its rows to the table
+        ListingTable listings = new ListingTable(0);
+        try {
+            for (ChunkParser chunk : chunks) {
+                listings.append(chunk.join());
+            }
+        } catch (UncheckedIOException e) {
+            // The rows of the other chunks are no use without this one, so do not start parsing any more
+            for (ChunkParser chunk : chunks) {
+                chunk.cancel(false);
+            }
+            throw e.getCause();
+        }
+        listings.trimToSize();
+        saveSnapshot(listings, file);
         System.out.println("Success! Number of loaded records: " + listings.size());
         return listings;
     }
 
+    /**
+     * Return a column oriented table containing the rows in the AirBnB London data set csv file,
+     * reading the whole file on the calling thread.
+     * @throws IOException If the file cannot be read to the end.
+     */
+    public ListingTable loadTableSequentially() throws IOException {
+        System.out.print("Begin loading Airbnb london dataset...");
+        File file = getDataFile();
+        startProgress(file);
+        ListingTable listings;
+        try (Reader reader = new FileReader(file.getAbsolutePath())) {
+            listings = parseRows(reader, true);
+        }
+        reportProgress(0, totalBytes);
+        listings.trimToSize();
+        System.out.println("Success! Number of loaded records: " + listings.size());
+        return listings;
+    }
+
+    /**
+     * Read the csv file row by row into the statistics of every borough for a price range, without
+     * creating a table or a listing for any row, so that files too large to load into memory can still
+     * be summarised. When memory mapped, each chunk of the file is mapped and scanned in turn, otherwise
+     * the file is read through opencsv a row at a time. The snapshot of the file is not used, as it is
+     * only of use once the whole table is loaded.
+     * @param minPrice The lowest minimum stay price in the range.
+     * @param maxPrice The minimum stay price the range stops just below.
+     * @return The statistics of every row in the file.
+     * @throws IOException If the file cannot be read to the end, in which case no statistics are
+     *         returned, as those of the rows read so far would look like those of a smaller file.
+     */
+    public StreamingStatistics loadStatistics(int minPrice, int maxPrice) throws IOException {
+        System.out.print("Begin streaming Airbnb london dataset...");
+        StreamingStatistics statistics = new StreamingStatistics(minPrice, maxPrice);
+        File file = getDataFile();
+        startProgress(file);
+        if (memoryMapped) {
+            // Map one chunk at a time, each of which starts at the beginning of a row
+            long[] boundaries = findChunkBoundaries(file);
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                for (int chunk = 0; chunk + 1 < boundaries.length; chunk++) {
+                    ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, boundaries[chunk],
+                        boundaries[chunk + 1] - boundaries[chunk]);
+                    scanStatistics(mapped, chunk == 0, statistics);
+                }
+            }
+        } else {
+            try (Reader reader = new BufferedReader(new FileReader(file.getAbsolutePath()), 1 << 16)) {
+                parseStatistics(reader, statistics);
+            }
+            reportProgress(0, totalBytes);
+        }
+        System.out.println("Success! Number of streamed records: " + statistics.getListingsRead());
+        return statistics;
+    }
+
+    /**
+     * Reset the progress counters at the start of loading a file.
+     * @param file The csv file being loaded.
+     */
+    private void startProgress(File file) {
+        rowsLoaded.set(0);
+        bytesLoaded.set(0);
+        totalBytes = file.length();
+    }
+
+    /**
+     * Add to the progress counters and tell the progress listener, if there is one.
+     * @param rows The number of rows loaded since the last report from this thread.
+     * @param bytes The number of bytes dealt with since the last report from this thread.
+     */
+    private void reportProgress(long rows, long bytes) {
+        long totalRows = rowsLoaded.addAndGet(rows);
+        long totalBytesLoaded = bytesLoaded.addAndGet(bytes);
+        if (progressListener != null) {
+            progressListener.progressChanged(totalRows, totalBytesLoaded, totalBytes);
+        }
+    }
+
+    /**
+     * Read the table from the snapshot of the csv file, if snapshots are enabled.
+     * @param file The csv file.
+     * @return The table, or null if there is no usable snapshot.
+     */
+    private ListingTable loadSnapshot(File file) {
+        if (!snapshotCache) {
+            return null;
+        }
+        try {
+            return ListingSnapshot.load(file);
+        } catch (IOException e) {
+            // An unreadable snapshot is replaced after the csv file has been parsed
+            return null;
+        }
+    }
+
+    /**
+     * Save the table to the snapshot of the csv file, if snapshots are enabled.
+     * @param listings The table loaded from the csv file.
+     * @param file The csv file.
+     */
+    private void saveSnapshot(ListingTable listings, File file) {
+        if (!snapshotCache) {
+            return;
+        }
+        try {
+            ListingSnapshot.save(listings, file);
+        } catch (IOException e) {
+            // The data is still loaded, it will just be parsed again next time
+            System.out.print("Could not save snapshot (" + e.getMessage() + ")...");
+        }
+    }
+
+    /**
+     * @return The csv file chosen, or the AirBnB London data set csv file if none has been.
+     */
+    private File getDataFile() throws IOException {
+        if (dataFile != null) {
+            return dataFile;
+        }
+        URL url = getClass().getResource("airbnb-london.csv");
+        if (url == null) {
+            throw new FileNotFoundException("Could not find the AirBnB London data set");
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Could not find the AirBnB London data set", e);
+        }
+    }
+
+    /**
+     * Read csv rows into a new table.
+     * @param source The csv text to read.
+     * @param skipHeader Whether the first row holds column headers rather than a listing.
+     * @return A table holding the rows read.
+     */
+    private ListingTable parseRows(Reader source, boolean skipHeader) throws IOException {
+        ListingTable listings = new ListingTable();
+        CSVReader reader = new CSVReader(source);
+        String [] line;
+        //skip the first row (column headers)
+        if (skipHeader) {
+            reader.readNext();
+        }
+        while ((line = reader.readNext()) != null) {
+            String id = line[0];
+            String name = line[1];
+            String host_id = line[2];
+            String host_name = line[3];
+            String neighbourhood = line[4];
+            double latitude = convertDouble(line[5]);
+            double longitude = convertDouble(line[6]);
+            String room_type = line[7];
+            int price = convertInt(line[8]);
+            int minimumNights = convertInt(line[9]);
+            int numberOfReviews = convertInt(line[10]);
+            String lastReview = line[11];
+            double reviewsPerMonth = convertDouble(line[12]);
+            int calculatedHostListingsCount = convertInt(line[13]);
+            int availability365 = convertInt(line[14]);
+
+            listings.add(id, name, host_id,
+                    host_name, neighbourhood, latitude, longitude, room_type,
+                    price, minimumNights, numberOfReviews, lastReview,
+                    reviewsPerMonth, calculatedHostListingsCount, availability365
+                );
+            if (listings.size() % PROGRESS_INTERVAL == 0) {
+                reportProgress(PROGRESS_INTERVAL, 0);
+            }
+        }
+        reader.close();
+        reportProgress(listings.size() % PROGRESS_INTERVAL, 0);
+        return listings;
+    }
+
+    /**
+     * Read csv rows from a buffer into a new table, decoding fields directly from the bytes.
+     * @param buffer The csv text.
+     * @param skipHeader Whether the first row holds column headers rather than a listing.
+     * @return A table holding the rows read.
+     */
+    private ListingTable scanRows(ByteBuffer buffer, boolean skipHeader) {
+        ListingTable listings = new ListingTable();
+        MappedCsvScanner scanner = new MappedCsvScanner(buffer, 0, buffer.limit(), Charset.defaultCharset());
+        int reportedPosition = 0;
+        //skip the first row (column headers)
+        if (skipHeader) {
+            scanner.nextRow();
+        }
+        while (scanner.nextRow()) {
+            listings.add(scanner.getString(0), scanner.getString(1), scanner.getString(2),
+                    scanner.getString(3), scanner.getString(4), scanner.getDouble(5), scanner.getDouble(6),
+                    scanner.getString(7), scanner.getInt(8), scanner.getInt(9), scanner.getInt(10),
+                    scanner.getString(11), scanner.getDouble(12), scanner.getInt(13), scanner.getInt(14)
+                );
+            if (listings.size() % PROGRESS_INTERVAL == 0) {
+                reportProgress(PROGRESS_INTERVAL, scanner.getPosition() - reportedPosition);
+                reportedPosition = scanner.getPosition();
+            }
+        }
+        reportProgress(listings.size() % PROGRESS_INTERVAL, buffer.limit() - reportedPosition);
+        return listings;
+    }
+
+    /**
+     * Read csv rows into a set of statistics, skipping the column headers.
+     * @param source The csv text to read.
+     * @param statistics The statistics to add each row to.
+     */
+    private void parseStatistics(Reader source, StreamingStatistics statistics) throws IOException {
+        CSVReader reader = new CSVReader(source);
+        String [] line;
+        long rows = 0;
+        //skip the first row (column headers)
+        reader.readNext();
+        while ((line = reader.readNext()) != null) {
+            statistics.add(line[2], line[3], line[4], line[7], convertInt(line[8]), convertInt(line[9]),
+                convertInt(line[10]));
+            if (++rows % PROGRESS_INTERVAL == 0) {
+                reportProgress(PROGRESS_INTERVAL, 0);
+            }
+        }
+        reader.close();
+        reportProgress(rows % PROGRESS_INTERVAL, 0);
+    }
+
+    /**
+     * Read csv rows from a buffer into a set of statistics, decoding fields directly from the bytes and
+     * only turning the text fields the statistics need into Strings.
+     * @param buffer The csv text.
+     * @param skipHeader Whether the first row holds column headers rather than a listing.
+     * @param statistics The statistics to add each row to.
+     */
+    private void scanStatistics(ByteBuffer buffer, boolean skipHeader, StreamingStatistics statistics) {
+        MappedCsvScanner scanner = new MappedCsvScanner(buffer, 0, buffer.limit(), Charset.defaultCharset());
+        int reportedPosition = 0;
+        long rows = 0;
+        //skip the first row (column headers)
+        if (skipHeader) {
+            scanner.nextRow();
+        }
+        while (scanner.nextRow()) {
+            statistics.add(scanner.getString(2), scanner.getString(3), scanner.getString(4), scanner.getString(7),
+                scanner.getInt(8), scanner.getInt(9), scanner.getInt(10));
+            if (++rows % PROGRESS_INTERVAL == 0) {
+                reportProgress(PROGRESS_INTERVAL, scanner.getPosition() - reportedPosition);
+                reportedPosition = scanner.getPosition();
+            }
+        }
+        reportProgress(rows % PROGRESS_INTERVAL, buffer.limit() - reportedPosition);
+    }
+
+    /**
+     * Split the csv file into roughly equal chunks of bytes, each of which begins at the start of a
+     * row. A row can run over several lines when a quoted field such as the name contains a line
+     * break, so the file is scanned following the same quoting rules as the csv parser and a chunk
+     * only ever starts after a line break which is outside quotes.
+     * @param file The csv file.
+     * @return The byte offsets at which chunks start, followed by the length of the file.
+     */
+    private long[] findChunkBoundaries(File file) throws IOException {
+        long length = file.length();
+        int processors = Runtime.getRuntime().availableProcessors();
+        int chunkCount = (int) Math.max(1, Math.min(processors * CHUNKS_PER_PROCESSOR, length / MINIMUM_CHUNK_SIZE));
+        chunkCount = (int) Math.max(chunkCount, (length + MAXIMUM_CHUNK_SIZE - 1) / MAXIMUM_CHUNK_SIZE);
+        long chunkSize = length / chunkCount;
+
+        long[] boundaries = new long[chunkCount + 1];
+        int boundaryCount = 1;
+        long nextTarget = chunkSize;
+
+        // Quoting state of the csv parser at the current position
+        boolean inQuotes = false;
+        boolean inField = false;
+        boolean afterEscape = false;
+        boolean afterQuote = false;
+
+        // Read the file in large blocks and go through the bytes of each block in a tight loop, rather
+        // than asking a stream for one byte at a time
+        byte[] block = new byte[SCAN_BLOCK_SIZE];
+        ByteBuffer blockBuffer = ByteBuffer.wrap(block);
+        long position = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            int read;
+            while (boundaryCount < chunkCount && (read = channel.read(blockBuffer)) != -1) {
+                for (int index = 0; index < read && boundaryCount < chunkCount; index++) {
+                    int c = block[index];
+                    position++;
+
+                    // An escape character escapes a following quote or escape character
+                    if (afterEscape) {
+                        afterEscape = false;
+                        if (c == '"' || c == '\\') {
+                            continue;
+                        }
+                    }
+
+                    // A quote inside a field followed by another quote is an escaped quote, otherwise it
+                    // opens or closes a quoted section
+                    if (afterQuote) {
+                        afterQuote = false;
+                        inField = !inField;
+                        if (c == '"') {
+                            continue;
+                        }
+                        inQuotes = !inQuotes;
+                    }
+
+                    if (c == '\\') {
+                        afterEscape = inQuotes || inField;
+                    } else if (c == '"') {
+                        if (inQuotes || inField) {
+                            afterQuote = true;
+                        } else {
+                            inQuotes = true;
+                            inField = true;
+                        }
+                    } else if (c == ',' && !inQuotes) {
+                        inField = false;
+                    } else if (c == '\n' && !inQuotes) {
+                        // This line break ends a row, so a chunk may start after it
+                        inField = false;
+                        if (position >= nextTarget) {
+                            boundaries[boundaryCount++] = position;
+                            nextTarget = position + chunkSize;
+                        }
+                    } else if (c != '\r') {
+                        inField = true;
+                    }
+                }
+                blockBuffer.clear();
+            }
+        }
+
+        // The last boundary is always the end of the file
+        boundaries[boundaryCount++] = length;
+        return Arrays.copyOf(boundaries, boundaryCount);
+    }
+
     /**
      *
      * @param doubleString the string to be converted to Double type
-     * @return the Double value of the string, or -1.0 if the string is 
+     * @return the Double value of the string, or -1.0 if the string is
      * either empty or just whitespace
      */
     private Double convertDouble(String doubleString){
@@ -70,7 +517,7 @@ public class AirbnbDataLoader {
     /**
      *
      * @param intString the string to be converted to Integer type
-     * @return the Integer value of the string, or -1 if the string is 
+     * @return the Integer value of the string, or -1 if the string is
      * either empty or just whitespace
      */
     private Integer convertInt(String intString){
@@ -80,4 +527,63 @@ public class AirbnbDataLoader {
         return -1;
     }
 
+    /**
+     * A task which parses the rows within one chunk of the csv file into a table.
+     */
+    private class ChunkParser extends RecursiveTask<ListingTable> {
+
+        // Version of the task, which is only serializable because every fork/join task is
+        private static final long serialVersionUID = 1L;
+
+        // The csv file
+        private File file;
+
+        // Byte offsets of the start and end of the chunk
+        private long start;
+        private long end;
+
+        // Whether this chunk starts with the column headers
+        private boolean first;
+
+        public ChunkParser(File file, long start, long end, boolean first) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+            this.first = first;
+        }
+
+        @Override
+        protected ListingTable compute() {
+            try {
+                ByteBuffer bytes;
+                try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    if (memoryMapped) {
+                        // Map the chunk into memory, which stays mapped once the file is closed
+                        bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    } else {
+                        // Read the bytes of the chunk
+                        bytes = ByteBuffer.allocate((int) (end - start));
+                        int read = 0;
+                        while (bytes.hasRemaining() && read != -1) {
+                            read = channel.read(bytes, start + bytes.position());
+                        }
+                    }
+                }
+
+                // Scan the rows straight from the mapping
+                if (memoryMapped) {
+                    return scanRows(bytes, first);
+                }
+
+                // Decode them with the same character set as a FileReader and parse the rows
+                String text = new String(bytes.array(), 0, bytes.position(), Charset.defaultCharset());
+                ListingTable listings = parseRows(new StringReader(text), first);
+                reportProgress(0, end - start);
+                return listings;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
 }
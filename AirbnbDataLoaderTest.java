@@ -0,0 +1,108 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The test class AirbnbDataLoaderTest.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class AirbnbDataLoaderTest
+{
+
+    // Number of rows generated for the tests, enough for the file to be split into several chunks
+    private static final int ROWS = 50000;
+
+    /**
+     * Test that loading a file in chunks, whether memory mapped or read, gives exactly the same rows as reading
+     * it in one go, for a file with names holding commas, quotes and line breaks.
+     */
+    @Test
+    public void testChunksMatchSequential() throws IOException {
+        File file = File.createTempFile("loader-", ".csv");
+        try {
+            new SyntheticDataGenerator(ROWS, 4).write(file);
+            AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+            dataLoader.setDataFile(file);
+            dataLoader.setSnapshotCache(false);
+            ListingTable sequential = dataLoader.loadTableSequentially();
+            dataLoader.setMemoryMapped(true);
+            ListingTable mapped = dataLoader.loadTable();
+            dataLoader.setMemoryMapped(false);
+            ListingTable parsed = dataLoader.loadTable();
+
+            assertEquals(ROWS, sequential.size());
+            assertSameRows(sequential, mapped);
+            assertSameRows(sequential, parsed);
+
+            // The file has the names which are hardest to split into chunks
+            int commas = 0;
+            int quotes = 0;
+            int lineBreaks = 0;
+            for (int row = 0; row < sequential.size(); row++) {
+                String name = sequential.getName(row);
+                commas += name.contains(",") ? 1 : 0;
+                quotes += name.contains("\"") ? 1 : 0;
+                lineBreaks += name.contains("\n") ? 1 : 0;
+            }
+            assertTrue(commas > 0 && quotes > 0 && lineBreaks > 0);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test that a file which cannot be read gives an error rather than a table of no listings, while the
+     * older way of loading still gives an empty list.
+     */
+    @Test
+    public void testUnreadableFile() throws IOException {
+        File file = File.createTempFile("loader-", ".csv");
+        file.delete();
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        dataLoader.setDataFile(file);
+        dataLoader.setSnapshotCache(false);
+        for (boolean memoryMapped : new boolean[] { true, false }) {
+            dataLoader.setMemoryMapped(memoryMapped);
+            try {
+                dataLoader.loadTable();
+                fail("No error for a missing file");
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+        try {
+            dataLoader.loadTableSequentially();
+            fail("No error for a missing file");
+        } catch (IOException e) {
+            // Expected
+        }
+        assertTrue(dataLoader.load().isEmpty());
+    }
+
+    /**
+     * Assert that two tables hold the same rows in the same order, comparing every column.
+     */
+    private void assertSameRows(ListingTable expected, ListingTable actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.getId(row), actual.getId(row));
+            assertEquals(expected.getName(row), actual.getName(row));
+            assertEquals(expected.getHostId(row), actual.getHostId(row));
+            assertEquals(expected.getHostName(row), actual.getHostName(row));
+            assertEquals(expected.getNeighbourhood(row), actual.getNeighbourhood(row));
+            assertEquals(expected.getLatitude(row), actual.getLatitude(row), 0);
+            assertEquals(expected.getLongitude(row), actual.getLongitude(row), 0);
+            assertEquals(expected.getRoomType(row), actual.getRoomType(row));
+            assertEquals(expected.getPrice(row), actual.getPrice(row));
+            assertEquals(expected.getMinimumNights(row), actual.getMinimumNights(row));
+            assertEquals(expected.getNumberOfReviews(row), actual.getNumberOfReviews(row));
+            assertEquals(expected.getLastReview(row), actual.getLastReview(row));
+            assertEquals(expected.getReviewsPerMonth(row), actual.getReviewsPerMonth(row), 0);
+            assertEquals(expected.getCalculatedHostListingsCount(row), actual.getCalculatedHostListingsCount(row));
+            assertEquals(expected.getAvailability365(row), actual.getAvailability365(row));
+        }
+    }
+}
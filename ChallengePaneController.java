@@ -1,16 +1,38 @@
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.FXML;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import java.util.Locale;
 
 /**
- * Write a description of JavaFX class WelcomePanel here.
+ * This class represents the challenge pane, which searches the listings by their names and the names of
+ * their hosts, and finds the listings nearest to a place. The search by name shows the listings found
+ * as each letter is typed, once the names have been indexed in the background. The place can
+ * be typed as a latitude and longitude or as the name of a borough, which stands for the centre of the
+ * listings in that borough, or chosen by clicking on the map. Only listings within the selected price
+ * range are found, and the search can be narrowed to one room type.
  *
- * @author (your name)
- * @version (a version number or a date)
+ * The listings are found with an index of where they are, so a search only looks at the listings
+ * around the place rather than going through every listing.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
  */
 public class ChallengePaneController
 {
+    // Number of nearest listings shown
+    public static final int NEAREST_COUNT = 10;
+
+    // Largest number of listings shown for a search by name
+    public static final int SEARCH_LIMIT = 100;
+
+    // Room type choice which matches every room type
+    private static final String ANY_ROOM_TYPE = "Any room type";
+
     @FXML
     private Label minimumPrice;
 
@@ -20,11 +42,59 @@ public class ChallengePaneController
     @FXML
     private HBox priceRange;
 
+    // Search by name, shown once the names have been indexed
+    @FXML
+    private VBox textSearch;
+
+    @FXML
+    private TextField searchField;
+
+    @FXML
+    private Label searchResultsMessage;
+
+    @FXML
+    private ListView<String> searchResults;
+
+    // Search for the nearest listings, shown once listings have been added
+    @FXML
+    private VBox nearestSearch;
+
+    @FXML
+    private TextField placeField;
+
+    @FXML
+    private ComboBox<String> roomTypeComboBox;
+
+    @FXML
+    private Label searchMessage;
+
+    @FXML
+    private ListView<String> nearestList;
+
+    // Index of the listings by latitude and longitude
+    private SpatialGridIndex spatialIndex;
+
+    // Index of the words in the names and host names of the listings
+    private ListingTextIndex textIndex;
+
+    // Centre of the listings in each borough, in the order of the borough codes
+    private double[] boroughLatitudes;
+    private double[] boroughLongitudes;
+
+    // Minimum and maximum price to filter by, every price until a range is chosen
+    private int minPrice = 0;
+    private int maxPrice = Integer.MAX_VALUE;
+
     @FXML
     private void initialize() {
         priceRange.setVisible(false);
+        textSearch.setDisable(true);
+        nearestSearch.setDisable(true);
+
+        // Search again each time the search is changed
+        searchField.textProperty().addListener((observable, oldSearch, newSearch) -> showSearchResults());
     }
-    
+
     public void updatePriceLabel(String minPrice, String maxPrice)
     {
         minimumPrice.setText(minPrice);
@@ -33,4 +103,254 @@ public class ChallengePaneController
 
     }
 
+    /**
+     * Add the listings to search, already indexed by where they are.
+     * @param spatialIndex Index of the listings by latitude and longitude.
+     */
+    public void addListings(SpatialGridIndex spatialIndex) {
+        this.spatialIndex = spatialIndex;
+        ListingTable table = spatialIndex.getTable();
+
+        // Find the centre of each borough by averaging the positions of its listings
+        int boroughCount = table.getNeighbourhoods().size();
+        boroughLatitudes = new double[boroughCount];
+        boroughLongitudes = new double[boroughCount];
+        int[] listingCounts = new int[boroughCount];
+        for (int row = 0; row < table.size(); row++) {
+            int borough = table.getNeighbourhoodCode(row);
+            boroughLatitudes[borough] += table.getLatitude(row);
+            boroughLongitudes[borough] += table.getLongitude(row);
+            listingCounts[borough]++;
+        }
+        for (int borough = 0; borough < boroughCount; borough++) {
+            boroughLatitudes[borough] /= Math.max(1, listingCounts[borough]);
+            boroughLongitudes[borough] /= Math.max(1, listingCounts[borough]);
+        }
+
+        // Room types can be chosen in the order of their codes
+        roomTypeComboBox.getItems().setAll(ANY_ROOM_TYPE);
+        for (int roomType = 0; roomType < table.getRoomTypes().size(); roomType++) {
+            roomTypeComboBox.getItems().add(table.getRoomTypes().getSymbol(roomType));
+        }
+        roomTypeComboBox.setValue(ANY_ROOM_TYPE);
+        nearestSearch.setDisable(false);
+    }
+
+    /**
+     * Add the index of the names and host names of the listings, allowing them to be searched.
+     * @param textIndex Index of the words in the names and host names of the listings.
+     */
+    public void addTextIndex(ListingTextIndex textIndex) {
+        this.textIndex = textIndex;
+        searchField.setPromptText("e.g. cosy flat or a host's name");
+        textSearch.setDisable(false);
+        showSearchResults();
+    }
+
+    /**
+     * Update the price range of the listings found, and search again for the place shown.
+     * @param minPrice The minimum price for the price range.
+     * @param maxPrice The maximum price for the price range.
+     */
+    public void updatePriceRange(int minPrice, int maxPrice) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        searchPlace();
+    }
+
+    /**
+     * Find the listings nearest to a position, within the selected price range.
+     * @param latitude The latitude of the position.
+     * @param longitude The longitude of the position.
+     * @param count The largest number of listings to find.
+     * @param roomType The room type to find, or null to find every room type.
+     * @return The table rows of the listings, nearest first, or an empty array if no listings have been
+     *         added or the room type is not known.
+     */
+    public int[] findNearestListings(double latitude, double longitude, int count, String roomType) {
+        return findNearestListings(latitude, longitude, count, minPrice, maxPrice, roomType);
+    }
+
+    /**
+     * Find the listings nearest to a position, within a price range.
+     * @param latitude The latitude of the position.
+     * @param longitude The longitude of the position.
+     * @param count The largest number of listings to find.
+     * @param minPrice The minimum price for the price range.
+     * @param maxPrice The maximum price for the price range.
+     * @param roomType The room type to find, or null to find every room type.
+     * @return The table rows of the listings, nearest first, or an empty array if no listings have been
+     *         added or the room type is not known.
+     */
+    public int[] findNearestListings(double latitude, double longitude, int count, int minPrice, int maxPrice,
+            String roomType) {
+        if (spatialIndex == null) {
+            return new int[0];
+        }
+        int roomTypeCode = SpatialGridIndex.ANY_ROOM_TYPE;
+        if (roomType != null) {
+            roomTypeCode = spatialIndex.getTable().getRoomTypes().getCode(roomType);
+            if (roomTypeCode < 0) {
+                return new int[0];
+            }
+        }
+        return spatialIndex.findNearest(latitude, longitude, count, minPrice, maxPrice, roomTypeCode);
+    }
+
+    /**
+     * Find the listings whose names or host names match a search.
+     * @param search The words to search for. Words of three or more letters may appear anywhere within a
+     *               word of the listing, and shorter words at the start of one.
+     * @param limit The largest number of listings to find.
+     * @return The table rows of the listings, or an empty array if the names have not been indexed yet.
+     */
+    public int[] searchListings(String search, int limit) {
+        if (textIndex == null) {
+            return new int[0];
+        }
+        return textIndex.search(search, limit);
+    }
+
+    /**
+     * Find the listings nearest to the centre of a borough, within the selected price range.
+     * @param borough The name of the borough, ignoring case.
+     * @param count The largest number of listings to find.
+     * @param roomType The room type to find, or null to find every room type.
+     * @return The table rows of the listings, nearest first, or an empty array if the borough is not known.
+     */
+    public int[] findNearestListings(String borough, int count, String roomType) {
+        int code = getBoroughCode(borough);
+        if (code < 0) {
+            return new int[0];
+        }
+        return findNearestListings(boroughLatitudes[code], boroughLongitudes[code], count, roomType);
+    }
+
+    /**
+     * Show the listings matching the search typed.
+     */
+    private void showSearchResults() {
+        searchResults.getItems().clear();
+        String search = searchField.getText();
+        if (textIndex == null || search.trim().isEmpty()) {
+            searchResultsMessage.setText("");
+            return;
+        }
+        int[] found = searchListings(search, SEARCH_LIMIT);
+        for (int row : found) {
+            searchResults.getItems().add(formatListing(textIndex.getTable(), row) + ", hosted by "
+                + textIndex.getTable().getHostName(row));
+        }
+        if (found.length == 0) {
+            searchResultsMessage.setText("No properties match.");
+        } else if (found.length == SEARCH_LIMIT) {
+            searchResultsMessage.setText("First " + SEARCH_LIMIT + " properties matching:");
+        } else {
+            searchResultsMessage.setText(found.length + " properties matching:");
+        }
+    }
+
+    /**
+     * Show the listings nearest to a position clicked on the map.
+     * @param latitude The latitude clicked.
+     * @param longitude The longitude clicked.
+     */
+    public void searchNear(double latitude, double longitude) {
+        placeField.setText(String.format(Locale.ROOT, "%.5f, %.5f", latitude, longitude));
+        searchPlace();
+    }
+
+    /**
+     * Show the listings nearest to the place typed, which is either a latitude and longitude separated
+     * by a comma or the name of a borough. Nothing is shown until a place has been typed.
+     */
+    @FXML
+    private void searchPlace() {
+        String place = placeField.getText().trim();
+        if (spatialIndex == null || place.isEmpty()) {
+            return;
+        }
+        double latitude;
+        double longitude;
+        String[] coordinates = place.split(",");
+        int borough = getBoroughCode(place);
+        if (borough >= 0) {
+            latitude = boroughLatitudes[borough];
+            longitude = boroughLongitudes[borough];
+        } else if (coordinates.length == 2) {
+            try {
+                latitude = Double.parseDouble(coordinates[0].trim());
+                longitude = Double.parseDouble(coordinates[1].trim());
+            } catch (NumberFormatException e) {
+                searchMessage.setText("Enter a borough, or a latitude and longitude such as 51.5074, -0.1278.");
+                return;
+            }
+        } else {
+            searchMessage.setText("Enter a borough, or a latitude and longitude such as 51.5074, -0.1278.");
+            return;
+        }
+
+        String roomType = roomTypeComboBox.getValue();
+        int[] nearest = findNearestListings(latitude, longitude, NEAREST_COUNT,
+            ANY_ROOM_TYPE.equals(roomType) ? null : roomType);
+
+        // Show each listing with how far it is from the place
+        ListingTable table = spatialIndex.getTable();
+        nearestList.getItems().clear();
+        for (int row : nearest) {
+            double distance = SpatialGridIndex.getDistance(latitude, longitude, table.getLatitude(row), table.getLongitude(row));
+            nearestList.getItems().add(String.format("%.2f km  %s", distance / 1000, formatListing(table, row)));
+        }
+        searchMessage.setText(nearest.length == 0 ? "No properties match." : "Nearest properties:");
+    }
+
+    /**
+     * Describe a listing by its name, borough, room type and price.
+     */
+    private static String formatListing(ListingTable table, int row) {
+        return String.format("%s (%s, %s, £%d a night)", table.getName(row), table.getNeighbourhood(row),
+            table.getRoomType(row), table.getPrice(row));
+    }
+
+    /**
+     * Find the code of a borough from its name, ignoring case.
+     * @return The code of the borough, or -1 if there is no borough with that name.
+     */
+    private int getBoroughCode(String borough) {
+        if (spatialIndex == null) {
+            return -1;
+        }
+        SymbolTable boroughs = spatialIndex.getTable().getNeighbourhoods();
+        for (int code = 0; code < boroughs.size(); code++) {
+            if (boroughs.getSymbol(code).equalsIgnoreCase(borough.trim())) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    public TextField testPlaceField() {
+        return placeField;
+    }
+
+    public ComboBox<String> testRoomTypeComboBox() {
+        return roomTypeComboBox;
+    }
+
+    public Label testSearchMessage() {
+        return searchMessage;
+    }
+
+    public ListView<String> testNearestList() {
+        return nearestList;
+    }
+
+    public TextField testSearchField() {
+        return searchField;
+    }
+
+    public ListView<String> testSearchResults() {
+        return searchResults;
+    }
+
 }
@@ -0,0 +1,156 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXMLLoader;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The test class ChallengePaneControllerTest.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class ChallengePaneControllerTest
+{
+
+    // Hold controller for the tests
+    private ChallengePaneController challengePaneController;
+
+    // Table of listings for the tests
+    private ListingTable table;
+
+    // Index of the table by where each listing is
+    private SpatialGridIndex spatialIndex;
+
+    /**
+     * Constructor for the test class.
+     */
+    public ChallengePaneControllerTest() throws IOException {
+        // Load FXML file so that initialization runs in challengePaneController
+        try {
+            FXMLLoader loader = new FXMLLoader();
+            loader.setLocation(getClass().getResource("ChallengePane.fxml"));
+            loader.load();
+            challengePaneController = loader.getController();
+        } catch (IOException e) {
+        }
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        table = dataLoader.loadTable();
+        spatialIndex = new SpatialGridIndex(table);
+        challengePaneController.addListings(spatialIndex);
+    }
+
+    /**
+     * Test that the listings nearest a borough are those nearest the centre of its listings, whatever
+     * the case of its name, and that an unknown borough finds nothing.
+     */
+    @Test
+    public void testNearestToBorough() {
+        double[] centre = getCentre("Camden");
+        int[] expected = challengePaneController.findNearestListings(centre[0], centre[1], 10, null);
+        assertEquals(10, expected.length);
+        assertArrayEquals(expected, challengePaneController.findNearestListings("Camden", 10, null));
+        assertArrayEquals(expected, challengePaneController.findNearestListings(" camDEN ", 10, null));
+        assertEquals(0, challengePaneController.findNearestListings("Atlantis", 10, null).length);
+    }
+
+    /**
+     * Test that narrowing the search to a room type only finds listings of that room type, nearest first,
+     * and that an unknown room type finds nothing.
+     */
+    @Test
+    public void testRoomType() {
+        int sharedRoom = table.getRoomTypes().getCode("Shared room");
+        int[] nearest = challengePaneController.findNearestListings(51.5074, -0.1278, 10, 0, 10000, "Shared room");
+        assertEquals(10, nearest.length);
+        for (int row : nearest) {
+            assertEquals(sharedRoom, table.getRoomTypeCode(row));
+        }
+        assertArrayEquals(spatialIndex.findNearest(51.5074, -0.1278, 10, 0, 10000, sharedRoom), nearest);
+        assertEquals(0, challengePaneController.findNearestListings(51.5074, -0.1278, 10, 0, 10000, "Castle").length);
+    }
+
+    /**
+     * Test that the place typed is read as a latitude and longitude or as a borough, that anything else
+     * is reported, and that the room type chosen narrows the listings shown.
+     */
+    @Test
+    public void testSearchPlace() {
+        List<String> shown = challengePaneController.testNearestList().getItems();
+
+        // A latitude and longitude, shown nearest first
+        typePlace("51.5074, -0.1278");
+        assertEquals(ChallengePaneController.NEAREST_COUNT, shown.size());
+        assertEquals("Nearest properties:", challengePaneController.testSearchMessage().getText());
+        double lastDistance = 0;
+        for (String listing : shown) {
+            double distance = Double.parseDouble(listing.substring(0, listing.indexOf(" km")));
+            assertTrue(distance >= lastDistance);
+            lastDistance = distance;
+        }
+
+        // A borough
+        typePlace("camden");
+        int[] nearest = challengePaneController.findNearestListings("Camden", ChallengePaneController.NEAREST_COUNT, null);
+        assertEquals(nearest.length, shown.size());
+        assertTrue(shown.get(0).contains(table.getName(nearest[0])));
+
+        // Neither leaves the listings shown before
+        typePlace("51.5074; -0.1278");
+        assertTrue(challengePaneController.testSearchMessage().getText().startsWith("Enter a borough"));
+        assertEquals(nearest.length, shown.size());
+        typePlace("51.5074, west");
+        assertTrue(challengePaneController.testSearchMessage().getText().startsWith("Enter a borough"));
+
+        // Choosing a room type searches again for only that room type
+        typePlace("51.5074, -0.1278");
+        challengePaneController.testRoomTypeComboBox().setValue("Shared room");
+        challengePaneController.testRoomTypeComboBox().fireEvent(new ActionEvent());
+        assertEquals(ChallengePaneController.NEAREST_COUNT, shown.size());
+        for (String listing : shown) {
+            assertTrue(listing.contains(", Shared room, "));
+        }
+    }
+
+    /**
+     * Test that typing a search shows the listings whose names or host names match it.
+     */
+    @Test
+    public void testSearchByName() {
+        challengePaneController.addTextIndex(new ListingTextIndex(table));
+        challengePaneController.testSearchField().setText("flat");
+        int[] found = challengePaneController.searchListings("flat", ChallengePaneController.SEARCH_LIMIT);
+        assertTrue(found.length > 0);
+        assertEquals(found.length, challengePaneController.testSearchResults().getItems().size());
+        assertTrue(challengePaneController.testSearchResults().getItems().get(0).startsWith(table.getName(found[0])));
+
+        challengePaneController.testSearchField().setText("   ");
+        assertEquals(0, challengePaneController.testSearchResults().getItems().size());
+    }
+
+    /**
+     * Type a place and press enter.
+     */
+    private void typePlace(String place) {
+        challengePaneController.testPlaceField().setText(place);
+        challengePaneController.testPlaceField().fireEvent(new ActionEvent());
+    }
+
+    /**
+     * Find the centre of the listings in a borough.
+     */
+    private double[] getCentre(String borough) {
+        double latitude = 0;
+        double longitude = 0;
+        int count = 0;
+        for (int row = 0; row < table.size(); row++) {
+            if (table.getNeighbourhood(row).equals(borough)) {
+                latitude += table.getLatitude(row);
+                longitude += table.getLongitude(row);
+                count++;
+            }
+        }
+        return new double[] { latitude / count, longitude / count };
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+/**
+ * An estimate of the total of every key added to it, such as the reviews of every host, kept in a
+ * fixed amount of memory however many distinct keys there are. Each key is counted in one counter of
+ * every row, picked by a different hash per row. Keys which share a counter with it in one row make
+ * that counter too high, so the estimate of a key is the lowest of its counters. Estimates are never
+ * below the true total as long as no total is negative, and are usually close to it for the keys with
+ * the largest totals, which are the ones that matter when ranking.
+ *
+ * Two sketches with the same number of rows and counters can be merged by adding their counters, which
+ * gives the same sketch as adding every key to one of them.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class CountMinSketch {
+
+    // Multipliers of the hash of each row, odd so that every bit of the key affects the hash
+    private static final int[] HASH_MULTIPLIERS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F,
+        0x165667B1, 0xD3A2646D, 0xFD7046C5, 0xB55A4F09 };
+
+    // Counters of each row
+    private long[][] counters;
+
+    // Number of bits of the hash used to pick a counter, so that each row has 2 to the power of this many counters
+    private int counterBits;
+
+    /**
+     * Create an empty sketch.
+     * @param depth The number of rows, at most 8. More rows make a very wrong estimate less likely.
+     * @param width The number of counters in each row, rounded up to a power of 2. More counters make
+     *              estimates closer to the true totals.
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > HASH_MULTIPLIERS.length) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + HASH_MULTIPLIERS.length);
+        }
+        counterBits = 1;
+        while ((1 << counterBits) < width) {
+            counterBits++;
+        }
+        counters = new long[depth][1 << counterBits];
+    }
+
+    /**
+     * Add an amount to the total of a key.
+     * @param key The key.
+     * @param amount The amount to add, which may be negative to take away an amount added before.
+     * @return The new estimate of the key's total.
+     */
+    public long add(int key, long amount) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            int counter = getCounter(row, key);
+            counters[row][counter] += amount;
+            estimate = Math.min(estimate, counters[row][counter]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Get the estimated total of a key.
+     * @param key The key.
+     * @return The estimate, which is at least the true total.
+     */
+    public long estimate(int key) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < counters.length; row++) {
+            estimate = Math.min(estimate, counters[row][getCounter(row, key)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Add the totals of another sketch of the same size to the totals of this one.
+     * @param other The sketch to merge into this one.
+     */
+    public void merge(CountMinSketch other) {
+        if (other.counters.length != counters.length || other.counterBits != counterBits) {
+            throw new IllegalArgumentException("Sketches of different sizes cannot be merged");
+        }
+        for (int row = 0; row < counters.length; row++) {
+            for (int counter = 0; counter < counters[row].length; counter++) {
+                counters[row][counter] += other.counters[row][counter];
+            }
+        }
+    }
+
+    /**
+     * Set the total of every key back to 0.
+     */
+    public void clear() {
+        for (long[] row : counters) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    /**
+     * Pick the counter of a key in a row.
+     */
+    private int getCounter(int row, int key) {
+        return ((key + 1) * HASH_MULTIPLIERS[row]) >>> (32 - counterBits);
+    }
+}
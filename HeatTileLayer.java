@@ -0,0 +1,312 @@
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+import javafx.application.Platform;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * A layer of the map showing how densely packed the listings within the price range are, drawn as
+ * square image tiles. The map is split into a grid of tiles at each of a series of zoom levels, each
+ * level twice the scale of the one before, and the view is covered with tiles from the level closest
+ * to its zoom, stretched to fit.
+ *
+ * Tiles are drawn on background threads, and kept in a TileCache once drawn. Drawing the layer on
+ * the FX thread only ever copies tiles which are ready onto the canvas, showing a placeholder for any
+ * tile which is not ready yet and asking for it to be drawn. When a tile is ready the layer says so,
+ * so that the map can be drawn again. Tiles which were asked for but have gone out of view before a
+ * thread got to them are not drawn at all.
+ *
+ * The layer can be limited to a set of rows, such as the listings matching a ListingFilter. Changing
+ * the set throws away every tile, as each was drawn for the old set.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class HeatTileLayer {
+
+    // Width and height of a tile in pixels
+    public static final int TILE_SIZE = 256;
+
+    // Pixels per degree of latitude at zoom level 0
+    private static final double BASE_SCALE = 256;
+
+    // Highest zoom level tiles are drawn for
+    private static final int MAXIMUM_LEVEL = 16;
+
+    // Distance in pixels over which a listing adds to the density around it
+    private static final int KERNEL_RADIUS = 6;
+
+    // Density at which a pixel is shown at about two thirds of the full colour
+    private static final double DENSITY_SCALE = 1.5;
+
+    // Colour shown over a tile which is not ready yet
+    private static final Color PLACEHOLDER_COLOR = Color.rgb(0, 0, 0, 0.04);
+
+    // Listings shown on the layer
+    private SpatialGridIndex index;
+
+    // Width of a degree of longitude compared to a degree of latitude which the cached tiles were drawn with
+    private double longitudeRatio = Double.NaN;
+
+    // Rows the cached tiles were drawn for, or null for every listing
+    private RowBitmap filter;
+
+    // Tiles which are ready
+    private TileCache cache;
+
+    // Tiles being drawn or waiting for a thread, only used on the FX thread
+    private HashMap<TileCache.Key, FutureTask<Void>> pending;
+
+    // Threads tiles are drawn on
+    private ExecutorService executor;
+
+    // Called on the FX thread whenever a tile becomes ready
+    private Runnable tileReady;
+
+    // Weight each listing adds to the density of the pixels around it
+    private float[] kernel;
+
+    /**
+     * Create a layer with no tiles ready.
+     * @param index The listings to show, indexed by where they are.
+     * @param tileReady Called on the FX thread whenever a tile becomes ready.
+     */
+    public HeatTileLayer(SpatialGridIndex index, Runnable tileReady) {
+        this.index = index;
+        this.tileReady = tileReady;
+        cache = new TileCache();
+        pending = new HashMap<TileCache.Key, FutureTask<Void>>();
+
+        // Daemon threads so they do not stop the application closing
+        executor = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+            Thread thread = new Thread(runnable, "Map tile renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Fall off smoothly with distance from the listing
+        int diameter = 2 * KERNEL_RADIUS + 1;
+        kernel = new float[diameter * diameter];
+        double sigma = KERNEL_RADIUS / 2.0;
+        for (int dy = -KERNEL_RADIUS; dy <= KERNEL_RADIUS; dy++) {
+            for (int dx = -KERNEL_RADIUS; dx <= KERNEL_RADIUS; dx++) {
+                kernel[(dy + KERNEL_RADIUS) * diameter + dx + KERNEL_RADIUS] =
+                    (float) Math.exp(-(dx * dx + dy * dy) / (2 * sigma * sigma));
+            }
+        }
+    }
+
+    /**
+     * Draw the tiles covering a view, asking for any which are not ready to be drawn.
+     * @param graphics The graphics of the canvas to draw on.
+     * @param viewport The part of the map in view.
+     * @param minPrice The lowest price in the range.
+     * @param maxPrice The price the range stops just below.
+     */
+    public void draw(GraphicsContext graphics, MapViewport viewport, int minPrice, int maxPrice) {
+        // Tiles drawn for a different shape of map no longer line up
+        if (viewport.getLongitudeRatio() != longitudeRatio) {
+            cancelPending(new HashSet<TileCache.Key>());
+            cache.clear();
+            longitudeRatio = viewport.getLongitudeRatio();
+        }
+
+        // Size of a tile in degrees at the level closest to the view's zoom
+        int level = getLevel(viewport.getScale());
+        double tileHeight = TILE_SIZE / Math.scalb(BASE_SCALE, level);
+        double tileWidth = tileHeight / longitudeRatio;
+
+        // Tiles are numbered from 0 at the equator and prime meridian, rows going south
+        int firstColumn = (int) Math.floor(viewport.getWest() / tileWidth);
+        int lastColumn = (int) Math.floor(viewport.getEast() / tileWidth);
+        int firstRow = (int) Math.floor(-viewport.getNorth() / tileHeight);
+        int lastRow = (int) Math.floor(-viewport.getSouth() / tileHeight);
+
+        HashSet<TileCache.Key> wanted = new HashSet<TileCache.Key>();
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                // Round both edges so neighbouring tiles meet without gaps
+                double x = Math.floor(viewport.getX(column * tileWidth));
+                double y = Math.floor(viewport.getY(-row * tileHeight));
+                double width = Math.floor(viewport.getX((column + 1) * tileWidth)) - x;
+                double height = Math.floor(viewport.getY(-(row + 1) * tileHeight)) - y;
+
+                TileCache.Key key = new TileCache.Key(level, column, row, minPrice, maxPrice);
+                Image image = cache.get(key);
+                if (image != null) {
+                    graphics.drawImage(image, x, y, width, height);
+                } else {
+                    wanted.add(key);
+                    requestTile(key);
+                    graphics.setFill(PLACEHOLDER_COLOR);
+                    graphics.fillRect(x, y, width, height);
+                }
+            }
+        }
+
+        // Stop waiting for tiles which have gone out of view or are for another price range
+        cancelPending(wanted);
+    }
+
+    /**
+     * Limit the layer to a set of listings, throwing away every tile drawn for the old set.
+     * @param filter The rows of the listings to show, or null to show every listing.
+     */
+    public void setFilter(RowBitmap filter) {
+        if (filter != this.filter) {
+            cancelPending(new HashSet<TileCache.Key>());
+            cache.clear();
+            this.filter = filter;
+        }
+    }
+
+    /**
+     * Draw the pixels of a tile. This only reads the listings, so can be called on any thread.
+     * @param level The zoom level.
+     * @param column The column of the tile in the grid of tiles at the level.
+     * @param row The row of the tile in the grid of tiles at the level.
+     * @param minPrice The lowest price in the range.
+     * @param maxPrice The price the range stops just below.
+     * @param longitudeRatio The width of a degree of longitude compared to a degree of latitude.
+     * @param filter The rows of the listings to show, or null to show every listing.
+     * @return The colour of each pixel as ARGB, row by row from the top left.
+     */
+    public int[] renderPixels(int level, int column, int row, int minPrice, int maxPrice, double longitudeRatio,
+            RowBitmap filter) {
+        double pixelHeight = 1 / Math.scalb(BASE_SCALE, level);
+        double pixelWidth = pixelHeight / longitudeRatio;
+        double west = column * TILE_SIZE * pixelWidth;
+        double north = -row * TILE_SIZE * pixelHeight;
+        ListingTable table = index.getTable();
+
+        // Add up the density at each pixel, including listings just outside the tile whose density reaches into it
+        float[] density = new float[TILE_SIZE * TILE_SIZE];
+        int diameter = 2 * KERNEL_RADIUS + 1;
+        index.visitRows(north - (TILE_SIZE + KERNEL_RADIUS) * pixelHeight, west - KERNEL_RADIUS * pixelWidth,
+                north + KERNEL_RADIUS * pixelHeight, west + (TILE_SIZE + KERNEL_RADIUS) * pixelWidth,
+                minPrice, maxPrice, listingRow -> {
+            if (filter != null && !filter.contains(listingRow)) {
+                return;
+            }
+            int centerX = (int) Math.floor((table.getLongitude(listingRow) - west) / pixelWidth);
+            int centerY = (int) Math.floor((north - table.getLatitude(listingRow)) / pixelHeight);
+            for (int dy = -KERNEL_RADIUS; dy <= KERNEL_RADIUS; dy++) {
+                int y = centerY + dy;
+                if (y < 0 || y >= TILE_SIZE) {
+                    continue;
+                }
+                for (int dx = -KERNEL_RADIUS; dx <= KERNEL_RADIUS; dx++) {
+                    int x = centerX + dx;
+                    if (x >= 0 && x < TILE_SIZE) {
+                        density[y * TILE_SIZE + x] += kernel[(dy + KERNEL_RADIUS) * diameter + dx + KERNEL_RADIUS];
+                    }
+                }
+            }
+        });
+
+        // Colour each pixel from clear through yellow to red as the density grows
+        int[] pixels = new int[TILE_SIZE * TILE_SIZE];
+        for (int pixel = 0; pixel < pixels.length; pixel++) {
+            if (density[pixel] == 0) {
+                continue;
+            }
+            double intensity = 1 - Math.exp(-density[pixel] / DENSITY_SCALE);
+            int alpha = (int) (intensity * 200);
+            int green = (int) (230 - intensity * 200);
+            int blue = (int) (80 - intensity * 50);
+            pixels[pixel] = (alpha << 24) | (255 << 16) | (green << 8) | blue;
+        }
+        return pixels;
+    }
+
+    /**
+     * Stop drawing tiles and let the threads finish, for example because the listings have changed.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        pending.clear();
+    }
+
+    /**
+     * @return The tiles which are ready.
+     */
+    public TileCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return The number of tiles being drawn or waiting for a thread.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Find the zoom level whose scale is closest to a scale.
+     * @param scale The scale in pixels per degree of latitude.
+     * @return The zoom level.
+     */
+    public static int getLevel(double scale) {
+        long level = Math.round(Math.log(scale / BASE_SCALE) / Math.log(2));
+        return (int) Math.max(0, Math.min(MAXIMUM_LEVEL, level));
+    }
+
+    /**
+     * Ask for a tile to be drawn on a background thread, unless it already is being.
+     */
+    private void requestTile(TileCache.Key key) {
+        if (pending.containsKey(key) || executor.isShutdown()) {
+            return;
+        }
+        double ratio = longitudeRatio;
+        RowBitmap tileFilter = filter;
+        AtomicReference<FutureTask<Void>> task = new AtomicReference<FutureTask<Void>>();
+        task.set(new FutureTask<Void>(() -> {
+            int[] pixels = renderPixels(key.getLevel(), key.getColumn(), key.getRow(),
+                key.getMinPrice(), key.getMaxPrice(), ratio, tileFilter);
+            WritableImage image = new WritableImage(TILE_SIZE, TILE_SIZE);
+            image.getPixelWriter().setPixels(0, 0, TILE_SIZE, TILE_SIZE, PixelFormat.getIntArgbInstance(),
+                pixels, 0, TILE_SIZE);
+            // Hand the tile over on the FX thread, which is the only thread using the cache
+            Platform.runLater(() -> tileRendered(key, task.get(), image, ratio, tileFilter));
+            return null;
+        }));
+        pending.put(key, task.get());
+        executor.execute(task.get());
+    }
+
+    /**
+     * Keep a tile which has been drawn, if it still lines up with the map, and say that it is ready.
+     */
+    private void tileRendered(TileCache.Key key, FutureTask<Void> task, Image image, double ratio, RowBitmap tileFilter) {
+        pending.remove(key, task);
+        if (ratio == longitudeRatio && tileFilter == filter && !executor.isShutdown()) {
+            cache.put(key, image);
+            tileReady.run();
+        }
+    }
+
+    /**
+     * Cancel every tile waiting for a thread which is no longer wanted. Tiles already being drawn are
+     * left to finish, as they will be kept in the cache.
+     */
+    private void cancelPending(HashSet<TileCache.Key> wanted) {
+        Iterator<Map.Entry<TileCache.Key, FutureTask<Void>>> entries = pending.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<TileCache.Key, FutureTask<Void>> entry = entries.next();
+            if (!wanted.contains(entry.getKey())) {
+                entry.getValue().cancel(false);
+                entries.remove();
+            }
+        }
+    }
+}
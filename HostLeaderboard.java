@@ -0,0 +1,228 @@
+import java.util.Arrays;
+
+/**
+ * Keeps the hosts with the highest scores, such as the most reviews or the most listings, out of
+ * all the hosts offered to it. Only a fixed number of hosts are kept, in a min-heap with the lowest
+ * of the kept scores at the top, so offering a host that does not make the leaderboard only costs a
+ * comparison with the top of the heap.
+ *
+ * Hosts with equal scores are ranked by host code, lowest first, so the ranking does not depend on
+ * the order hosts are offered in. Only hosts with a score above zero are kept.
+ *
+ * When the score of a kept host goes up it is moved to its new place in the heap, so a leaderboard
+ * which is offered every host's new score whenever it goes up always holds the true leaders. If the
+ * score of a kept host goes down, a host which was not kept may now belong on the leaderboard, so
+ * offer() reports this and the leaderboard has to be built again from every host's score.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class HostLeaderboard {
+
+    // Host code and score of each kept host, arranged as a min-heap
+    private int[] hosts;
+    private long[] scores;
+
+    // Number of hosts kept
+    private int size;
+
+    // Positions in the heap of the kept hosts from best to worst, or null if they need sorting again
+    private int[] ranking;
+
+    /**
+     * Create an empty leaderboard.
+     * @param capacity The number of hosts to keep.
+     */
+    public HostLeaderboard(int capacity) {
+        hosts = new int[capacity];
+        scores = new long[capacity];
+    }
+
+    /**
+     * Offer the current score of a host.
+     * @param host The host code.
+     * @param score The host's score.
+     * @return False if the score of a kept host went down, which means the leaderboard may no longer
+     *         hold the true leaders, otherwise true.
+     */
+    public boolean offer(int host, long score) {
+        ranking = null;
+        int position = indexOf(host);
+        if (position >= 0) {
+            long oldScore = scores[position];
+            scores[position] = score;
+            if (score <= 0) {
+                // No longer has a score worth keeping
+                removeAt(position);
+            } else if (score > oldScore) {
+                siftDown(position);
+            } else {
+                siftUp(position);
+            }
+            return score >= oldScore;
+        }
+        if (score <= 0) {
+            return true;
+        }
+        if (size < hosts.length) {
+            hosts[size] = host;
+            scores[size] = score;
+            size++;
+            siftUp(size - 1);
+        } else if (size > 0 && isBetter(host, score, hosts[0], scores[0])) {
+            // Replace the lowest of the kept hosts
+            hosts[0] = host;
+            scores[0] = score;
+            siftDown(0);
+        }
+        return true;
+    }
+
+    /**
+     * Remove every host.
+     */
+    public void clear() {
+        size = 0;
+        ranking = null;
+    }
+
+    /**
+     * @param host The host code.
+     * @return True if the host is on the leaderboard.
+     */
+    public boolean contains(int host) {
+        return indexOf(host) >= 0;
+    }
+
+    /**
+     * @return The number of hosts on the leaderboard.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a host by its place on the leaderboard.
+     * @param rank The place, 0 for the host with the highest score.
+     * @return The host code.
+     */
+    public int getHost(int rank) {
+        return hosts[getRanking()[rank]];
+    }
+
+    /**
+     * Get a host's score by its place on the leaderboard.
+     * @param rank The place, 0 for the host with the highest score.
+     * @return The score.
+     */
+    public long getScore(int rank) {
+        return scores[getRanking()[rank]];
+    }
+
+    /**
+     * @return A copy of this leaderboard which will not change when this one does.
+     */
+    public HostLeaderboard copy() {
+        HostLeaderboard copy = new HostLeaderboard(hosts.length);
+        copy.hosts = hosts.clone();
+        copy.scores = scores.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Check whether one host ranks above another.
+     */
+    private static boolean isBetter(int host, long score, int otherHost, long otherScore) {
+        return score > otherScore || (score == otherScore && host < otherHost);
+    }
+
+    /**
+     * Find the position of a host in the heap.
+     * @return The position, or -1 if the host is not kept.
+     */
+    private int indexOf(int host) {
+        for (int position = 0; position < size; position++) {
+            if (hosts[position] == host) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Work out the order of the kept hosts from best to worst if it is not known.
+     */
+    private int[] getRanking() {
+        if (ranking == null) {
+            Integer[] order = new Integer[size];
+            for (int position = 0; position < size; position++) {
+                order[position] = position;
+            }
+            Arrays.sort(order, (a, b) -> isBetter(hosts[a], scores[a], hosts[b], scores[b]) ? -1 : 1);
+            ranking = new int[size];
+            for (int rank = 0; rank < size; rank++) {
+                ranking[rank] = order[rank];
+            }
+        }
+        return ranking;
+    }
+
+    /**
+     * Remove the host at a position in the heap.
+     */
+    private void removeAt(int position) {
+        size--;
+        if (position < size) {
+            hosts[position] = hosts[size];
+            scores[position] = scores[size];
+            siftDown(position);
+            siftUp(position);
+        }
+    }
+
+    /**
+     * Move the host at a position up the heap until its parent ranks below it.
+     */
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!isBetter(hosts[parent], scores[parent], hosts[position], scores[position])) {
+                break;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    /**
+     * Move the host at a position down the heap until both its children rank above it.
+     */
+    private void siftDown(int position) {
+        while (true) {
+            int lowest = position;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                if (isBetter(hosts[lowest], scores[lowest], hosts[child], scores[child])) {
+                    lowest = child;
+                }
+            }
+            if (lowest == position) {
+                return;
+            }
+            swap(position, lowest);
+            position = lowest;
+        }
+    }
+
+    /**
+     * Swap the hosts at two positions in the heap.
+     */
+    private void swap(int a, int b) {
+        int host = hosts[a];
+        hosts[a] = hosts[b];
+        hosts[b] = host;
+        long score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+/**
+ * An estimate of the number of distinct keys added to it, such as the number of distinct hosts,
+ * kept in a fixed amount of memory however many keys there are. Each key is hashed, the first bits of
+ * the hash pick a register and the register remembers the longest run of leading zeros seen in the
+ * rest of the hash. Long runs are rare, so the runs remembered give an estimate of how many distinct
+ * hashes have been seen. Adding the same key again never changes the estimate.
+ *
+ * With 2 to the power of 10 registers, estimates are usually within about 3% of the true count.
+ * Two sketches can be merged by keeping the larger of each pair of registers, which gives the same
+ * sketch as adding every key to one of them, so counting keys which appear in both only once. Keys
+ * cannot be taken away again, only all together with clear().
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class HyperLogLog {
+
+    // Number of bits of the hash used to pick a register
+    private static final int PRECISION = 10;
+
+    // Number of registers
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+
+    // Correction for the bias of the raw estimate with this many registers
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    // Longest run of leading zeros, plus one, seen in the hashes picking each register
+    private byte[] registers;
+
+    /**
+     * Create an empty sketch.
+     */
+    public HyperLogLog() {
+        registers = new byte[REGISTER_COUNT];
+    }
+
+    /**
+     * Add a key.
+     * @param key The key.
+     */
+    public void add(int key) {
+        long hash = hash(key);
+        int register = (int) (hash >>> (64 - PRECISION));
+        // Mark the end of the rest of the hash so that the run of zeros cannot go past it
+        long rest = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte run = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (run > registers[register]) {
+            registers[register] = run;
+        }
+    }
+
+    /**
+     * @return The estimated number of distinct keys added.
+     */
+    public long estimate() {
+        double sum = 0;
+        int emptyRegisters = 0;
+        for (byte run : registers) {
+            sum += 1.0 / (1L << run);
+            if (run == 0) {
+                emptyRegisters++;
+            }
+        }
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && emptyRegisters > 0) {
+            // With few keys, counting the registers still empty is more accurate
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / emptyRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Add the keys of another sketch to this one.
+     * @param other The sketch to merge into this one.
+     */
+    public void merge(HyperLogLog other) {
+        for (int register = 0; register < REGISTER_COUNT; register++) {
+            if (other.registers[register] > registers[register]) {
+                registers[register] = other.registers[register];
+            }
+        }
+    }
+
+    /**
+     * Remove every key.
+     */
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    /**
+     * @return A copy of this sketch which will not change when this one does.
+     */
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog();
+        copy.registers = registers.clone();
+        return copy;
+    }
+
+    /**
+     * Spread the bits of a key over a 64 bit hash, so that keys which are close together, like
+     * dictionary codes, get hashes which look unrelated.
+     */
+    private static long hash(int key) {
+        long hash = key + 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+        return hash ^ (hash >>> 31);
+    }
+}
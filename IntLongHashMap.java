@@ -0,0 +1,185 @@
+import java.util.Arrays;
+
+/**
+ * A hash map from non-negative int keys to long values which stores its entries in two primitive
+ * arrays rather than as boxed objects, so looking up or changing a value never allocates. Collisions
+ * are resolved by open addressing: an entry which cannot go in the slot its key hashes to goes in
+ * the next free slot after it.
+ *
+ * A key which has never been added has the value 0. Entries cannot be removed one at a time, only
+ * all together with clear().
+ *
+ * The entries can be gone through slot by slot, for example:
+ * <pre>
+ * for (int slot = 0; slot &lt; map.getSlotCount(); slot++) {
+ *     if (map.isSlotUsed(slot)) {
+ *         use(map.getKeyAt(slot), map.getValueAt(slot));
+ *     }
+ * }
+ * </pre>
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class IntLongHashMap {
+
+    // Key marking a slot with no entry
+    private static final int EMPTY = -1;
+
+    // Number of slots in a map created without a size hint
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Multiplier used to spread the bits of a key over the whole hash
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    // Key and value held in each slot
+    private int[] keys;
+    private long[] values;
+
+    // Number of entries in the map
+    private int size;
+
+    // Number of bits of the hash used to pick a slot, so that there are 2 to the power of this many slots
+    private int slotBits;
+
+    /**
+     * Create an empty map.
+     */
+    public IntLongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty map with room for the given number of entries before it needs to grow.
+     * @param capacity The expected number of entries.
+     */
+    public IntLongHashMap(int capacity) {
+        // Keep the map at most half full
+        slotBits = 1;
+        while ((1 << slotBits) < capacity * 2) {
+            slotBits++;
+        }
+        keys = new int[1 << slotBits];
+        values = new long[1 << slotBits];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Get the value of a key.
+     * @param key The key, which must not be negative.
+     * @return The value of the key, or 0 if it has not been added.
+     */
+    public long get(int key) {
+        int slot = findSlot(key);
+        return keys[slot] == EMPTY ? 0 : values[slot];
+    }
+
+    /**
+     * Add an amount to the value of a key, adding the key with a value of 0 first if it is not in the map.
+     * @param key The key, which must not be negative.
+     * @param amount The amount to add, which may be negative.
+     * @return The new value of the key.
+     */
+    public long add(int key, long amount) {
+        int slot = findSlot(key);
+        if (keys[slot] == EMPTY) {
+            if ((size + 1) * 2 > keys.length) {
+                // Keep the map at most half full so that runs of used slots stay short
+                resize(slotBits + 1);
+                slot = findSlot(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] += amount;
+        return values[slot];
+    }
+
+    /**
+     * Add the value of every key in another map to the value of the same key in this map.
+     * @param other The map to add to this one.
+     */
+    public void addAll(IntLongHashMap other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != EMPTY) {
+                add(other.keys[slot], other.values[slot]);
+            }
+        }
+    }
+
+    /**
+     * Remove every entry, keeping the slots for the next entries.
+     */
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * @return The number of keys in the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of slots, which is more than the number of keys.
+     */
+    public int getSlotCount() {
+        return keys.length;
+    }
+
+    /**
+     * @return True if a slot holds an entry.
+     */
+    public boolean isSlotUsed(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    /**
+     * @return The key of the entry in a used slot.
+     */
+    public int getKeyAt(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * @return The value of the entry in a used slot.
+     */
+    public long getValueAt(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Find the slot holding a key, or the empty slot it would be added to.
+     */
+    private int findSlot(int key) {
+        int mask = keys.length - 1;
+        int slot = (key * HASH_MULTIPLIER) >>> (32 - slotBits);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Move every entry into a new set of slots.
+     * @param newSlotBits The number of bits of the hash used to pick a slot in the new set.
+     */
+    private void resize(int newSlotBits) {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        slotBits = newSlotBits;
+        keys = new int[1 << slotBits];
+        values = new long[1 << slotBits];
+        Arrays.fill(keys, EMPTY);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                int newSlot = findSlot(oldKeys[slot]);
+                keys[newSlot] = oldKeys[slot];
+                values[newSlot] = oldValues[slot];
+            }
+        }
+    }
+}
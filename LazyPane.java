@@ -0,0 +1,113 @@
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.layout.AnchorPane;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A pane which holds the contents of a layout file, loaded only when the pane is first shown, so that
+ * the window can appear without waiting for panes the user has not navigated to yet.
+ *
+ * The pane starts out empty, and can take its place among the other panes straight away. The layout
+ * file can be parsed ahead of time on a background thread, which is allowed because the nodes it
+ * creates are not yet part of a showing window. The parsed contents are only added to the pane when
+ * it is built on the FX thread, so building is quick if the layout has already been parsed, and the
+ * layout is parsed then if not.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class LazyPane extends AnchorPane {
+
+    // Location of the layout file
+    private URL location;
+
+    // Parsing of the layout file ahead of time, or null if it has not been started
+    private FutureTask<FXMLLoader> parsing;
+
+    // Controller of the contents, or null until the pane is built
+    private Object controller;
+
+    /**
+     * Create an empty pane for the contents of a layout file.
+     * @param location The location of the layout file.
+     */
+    public LazyPane(URL location) {
+        this.location = location;
+    }
+
+    /**
+     * Start parsing the layout file ahead of time, unless it already has been.
+     * @param executor The executor to parse the layout file on, normally a background thread.
+     */
+    public void preload(Executor executor) {
+        if (parsing == null) {
+            parsing = new FutureTask<FXMLLoader>(this::parse);
+            executor.execute(parsing);
+        }
+    }
+
+    /**
+     * Add the contents of the layout file to the pane, unless they already have been. This must be called
+     * on the FX thread, and waits for the layout to be parsed if parsing has started but not finished.
+     * @return True if the pane has just been built, or false if it already had been.
+     */
+    public boolean build() {
+        if (isBuilt()) {
+            return false;
+        }
+
+        FXMLLoader loader;
+        try {
+            loader = parsing == null ? parse() : parsing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            loader = parse();
+        } catch (ExecutionException e) {
+            // Parse again on this thread, so any error is raised here
+            loader = parse();
+        }
+
+        // Fill the pane with the contents
+        Parent contents = loader.getRoot();
+        AnchorPane.setTopAnchor(contents, 0.0);
+        AnchorPane.setRightAnchor(contents, 0.0);
+        AnchorPane.setBottomAnchor(contents, 0.0);
+        AnchorPane.setLeftAnchor(contents, 0.0);
+        getChildren().add(contents);
+        controller = loader.getController();
+        return true;
+    }
+
+    /**
+     * @return True if the contents of the layout file have been added to the pane.
+     */
+    public boolean isBuilt() {
+        return controller != null;
+    }
+
+    /**
+     * @return The controller of the contents, or null if the pane has not been built.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getController() {
+        return (T) controller;
+    }
+
+    /**
+     * Parse the layout file, creating its contents and their controller.
+     */
+    private FXMLLoader parse() {
+        FXMLLoader loader = new FXMLLoader(location);
+        try {
+            loader.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load " + location, e);
+        }
+        return loader;
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Gathers the listings in view into clusters for drawing the map. The view is split into square cells
+ * of a fixed number of pixels, and each listing counts towards the cell it is drawn in, so however many
+ * listings are in view there are never more clusters than cells. The position of each cluster is the
+ * average position of its listings, so clusters sit over where the listings really are.
+ *
+ * The position of each listing is also kept, up to a limit, so that when few enough listings are in
+ * view they can be drawn one by one instead. Listings are passed in one at a time, for example by
+ * SpatialGridIndex.visitRows(), so nothing is allocated for each listing.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class ListingClusters implements IntConsumer {
+
+    // Size of a cell in pixels
+    private int cellSize;
+
+    // Listings and the view they are drawn in
+    private ListingTable table;
+    private MapViewport viewport;
+
+    // Number of columns and rows of cells covering the view
+    private int columns;
+    private int rows;
+
+    // Number of listings in each cell and the total of their positions
+    private int[] counts;
+    private double[] totalX;
+    private double[] totalY;
+
+    // Number of listings passed in
+    private int total;
+
+    // Largest number of listings whose positions are kept
+    private int pointLimit;
+
+    // Table row and position of each listing kept
+    private int[] pointRows = new int[0];
+    private double[] pointX = new double[0];
+    private double[] pointY = new double[0];
+
+    /**
+     * Create an empty set of clusters.
+     * @param cellSize The size of a cell in pixels.
+     */
+    public ListingClusters(int cellSize) {
+        this.cellSize = cellSize;
+        counts = new int[0];
+        totalX = new double[0];
+        totalY = new double[0];
+    }
+
+    /**
+     * Remove every listing and start gathering listings drawn in a view.
+     * @param table The table the rows passed in belong to.
+     * @param viewport The view the listings are drawn in.
+     * @param pointLimit The largest number of listings whose positions are kept for drawing one by one.
+     */
+    public void reset(ListingTable table, MapViewport viewport, int pointLimit) {
+        this.table = table;
+        this.viewport = viewport;
+        this.pointLimit = pointLimit;
+        columns = Math.max(1, (int) Math.ceil(viewport.getWidth() / cellSize));
+        rows = Math.max(1, (int) Math.ceil(viewport.getHeight() / cellSize));
+
+        // Reuse the arrays from the last view when they are large enough
+        if (counts.length < columns * rows) {
+            counts = new int[columns * rows];
+            totalX = new double[columns * rows];
+            totalY = new double[columns * rows];
+        } else {
+            Arrays.fill(counts, 0);
+            Arrays.fill(totalX, 0);
+            Arrays.fill(totalY, 0);
+        }
+        if (pointRows.length < pointLimit) {
+            pointRows = new int[pointLimit];
+            pointX = new double[pointLimit];
+            pointY = new double[pointLimit];
+        }
+        total = 0;
+    }
+
+    /**
+     * Add a listing.
+     * @param row The table row of the listing.
+     */
+    @Override
+    public void accept(int row) {
+        double x = viewport.getX(table.getLongitude(row));
+        double y = viewport.getY(table.getLatitude(row));
+        int column = Math.max(0, Math.min(columns - 1, (int) (x / cellSize)));
+        int cellRow = Math.max(0, Math.min(rows - 1, (int) (y / cellSize)));
+        int cell = cellRow * columns + column;
+        counts[cell]++;
+        totalX[cell] += x;
+        totalY[cell] += y;
+
+        if (total < pointLimit) {
+            pointRows[total] = row;
+            pointX[total] = x;
+            pointY[total] = y;
+        }
+        total++;
+    }
+
+    /**
+     * @return The number of listings added.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return True if too many listings were added to draw one by one, so they should be drawn as clusters.
+     */
+    public boolean isClustered() {
+        return total > pointLimit;
+    }
+
+    /**
+     * @return The number of cells, some of which may be empty.
+     */
+    public int getCellCount() {
+        return columns * rows;
+    }
+
+    /**
+     * @return The number of listings in a cell.
+     */
+    public int getCount(int cell) {
+        return counts[cell];
+    }
+
+    /**
+     * @return The average horizontal pixel of the listings in a cell which is not empty.
+     */
+    public double getClusterX(int cell) {
+        return totalX[cell] / counts[cell];
+    }
+
+    /**
+     * @return The average vertical pixel of the listings in a cell which is not empty.
+     */
+    public double getClusterY(int cell) {
+        return totalY[cell] / counts[cell];
+    }
+
+    /**
+     * @return The number of listings whose positions were kept.
+     */
+    public int getPointCount() {
+        return Math.min(total, pointLimit);
+    }
+
+    /**
+     * @return The table row of a listing whose position was kept.
+     */
+    public int getPointRow(int point) {
+        return pointRows[point];
+    }
+
+    /**
+     * @return The horizontal pixel of a listing whose position was kept.
+     */
+    public double getPointX(int point) {
+        return pointX[point];
+    }
+
+    /**
+     * @return The vertical pixel of a listing whose position was kept.
+     */
+    public double getPointY(int point) {
+        return pointY[point];
+    }
+}
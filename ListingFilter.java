@@ -0,0 +1,69 @@
+import java.util.BitSet;
+
+/**
+ * The values chosen of each attribute listings can be filtered by, with the attributes and values
+ * numbered as in ListingFilterIndex. A listing matches if, for every attribute with values chosen, it
+ * has one of them, so an attribute with no values chosen does not filter the listings at all.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class ListingFilter {
+
+    // Values chosen of each attribute
+    private BitSet[] choices;
+
+    /**
+     * Create a filter with no values chosen, which every listing matches.
+     */
+    public ListingFilter() {
+        choices = new BitSet[ListingFilterIndex.ATTRIBUTE_COUNT];
+        for (int attribute = 0; attribute < choices.length; attribute++) {
+            choices[attribute] = new BitSet();
+        }
+    }
+
+    /**
+     * Choose or stop choosing a value of an attribute.
+     * @param attribute The attribute.
+     * @param value The value.
+     * @param chosen True to choose the value, false to stop choosing it.
+     */
+    public void setChosen(int attribute, int value, boolean chosen) {
+        choices[attribute].set(value, chosen);
+    }
+
+    /**
+     * @return True if a value of an attribute is chosen.
+     */
+    public boolean isChosen(int attribute, int value) {
+        return choices[attribute].get(value);
+    }
+
+    /**
+     * @return True if any value of an attribute is chosen.
+     */
+    public boolean hasChoices(int attribute) {
+        return !choices[attribute].isEmpty();
+    }
+
+    /**
+     * @return The number of values chosen of every attribute together.
+     */
+    public int getChoiceCount() {
+        int count = 0;
+        for (BitSet attributeChoices : choices) {
+            count += attributeChoices.cardinality();
+        }
+        return count;
+    }
+
+    /**
+     * Stop choosing every value, so that every listing matches.
+     */
+    public void clear() {
+        for (BitSet attributeChoices : choices) {
+            attributeChoices.clear();
+        }
+    }
+}
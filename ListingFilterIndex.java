@@ -0,0 +1,196 @@
+/**
+ * An index of the rows of a ListingTable by borough, room type, and ranges of availability, minimum
+ * nights and number of reviews, so that the listings matching any combination of them can be found by
+ * combining sets of rows rather than checking every listing against every choice.
+ *
+ * For each value of each attribute the index keeps a RowBitmap of the rows with that value. The numeric
+ * attributes are split into buckets, and the index keeps the rows in each bucket. A ListingFilter
+ * chooses some values of some attributes: a listing matches if, for every attribute with values chosen,
+ * it has one of them. The rows matching are found by joining the sets of the values chosen of each
+ * attribute, and then keeping only the rows in the joined sets of every attribute.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class ListingFilterIndex {
+
+    // Attributes listings can be filtered by
+    public static final int BOROUGH = 0;
+    public static final int ROOM_TYPE = 1;
+    public static final int AVAILABILITY = 2;
+    public static final int MINIMUM_NIGHTS = 3;
+    public static final int REVIEWS = 4;
+    public static final int ATTRIBUTE_COUNT = 5;
+
+    // Lowest value in each bucket of the numeric attributes, any lower value being in the first bucket
+    private static final int[] AVAILABILITY_BOUNDARIES = { 0, 1, 91, 181, 271 };
+    private static final int[] MINIMUM_NIGHTS_BOUNDARIES = { 1, 2, 3, 7, 30 };
+    private static final int[] REVIEWS_BOUNDARIES = { 0, 1, 10, 50, 100 };
+
+    // Listings which are indexed
+    private ListingTable table;
+
+    // Rows with each value of each attribute
+    private RowBitmap[][] rows;
+
+    /**
+     * Build the index for a table.
+     * @param table The listings to index.
+     */
+    public ListingFilterIndex(ListingTable table) {
+        this.table = table;
+        rows = new RowBitmap[ATTRIBUTE_COUNT][];
+        for (int attribute = 0; attribute < ATTRIBUTE_COUNT; attribute++) {
+            rows[attribute] = new RowBitmap[getValueCount(attribute)];
+            for (int value = 0; value < rows[attribute].length; value++) {
+                rows[attribute][value] = new RowBitmap();
+            }
+        }
+
+        // Rows are added in order, as the sets are built
+        for (int row = 0; row < table.size(); row++) {
+            for (int attribute = 0; attribute < ATTRIBUTE_COUNT; attribute++) {
+                rows[attribute][getValue(attribute, row)].add(row);
+            }
+        }
+        for (RowBitmap[] attributeRows : rows) {
+            for (RowBitmap valueRows : attributeRows) {
+                valueRows.trimToSize();
+            }
+        }
+    }
+
+    /**
+     * Find the listings matching a filter.
+     * @param filter The values chosen of each attribute.
+     * @return The rows matching, or null if the filter has no values chosen, so that every listing matches.
+     */
+    public RowBitmap getRows(ListingFilter filter) {
+        RowBitmap matching = null;
+        for (int attribute = 0; attribute < ATTRIBUTE_COUNT; attribute++) {
+            if (!filter.hasChoices(attribute)) {
+                continue;
+            }
+            // A listing can have any of the values chosen of this attribute
+            RowBitmap attributeRows = new RowBitmap();
+            for (int value = 0; value < rows[attribute].length; value++) {
+                if (filter.isChosen(attribute, value)) {
+                    attributeRows = attributeRows.or(rows[attribute][value]);
+                }
+            }
+            // And must match every attribute with values chosen
+            matching = matching == null ? attributeRows : matching.and(attributeRows);
+        }
+        return matching;
+    }
+
+    /**
+     * Get the listings with one value of an attribute.
+     * @param attribute The attribute.
+     * @param value The value, which for the numeric attributes is the number of the bucket.
+     * @return The rows with that value.
+     */
+    public RowBitmap getRows(int attribute, int value) {
+        return rows[attribute][value];
+    }
+
+    /**
+     * @return The number of values of an attribute, which for the numeric attributes is the number of buckets.
+     */
+    public int getValueCount(int attribute) {
+        switch (attribute) {
+            case BOROUGH:
+                return table.getNeighbourhoods().size();
+            case ROOM_TYPE:
+                return table.getRoomTypes().size();
+            default:
+                return getBoundaries(attribute).length;
+        }
+    }
+
+    /**
+     * Describe a value of an attribute for display.
+     * @param attribute The attribute.
+     * @param value The value, which for the numeric attributes is the number of the bucket.
+     * @return The name of the borough or room type, or the range of numbers in the bucket.
+     */
+    public String getValueName(int attribute, int value) {
+        switch (attribute) {
+            case BOROUGH:
+                return table.getNeighbourhoods().getSymbol(value);
+            case ROOM_TYPE:
+                return table.getRoomTypes().getSymbol(value);
+            default:
+                int[] boundaries = getBoundaries(attribute);
+                if (value == boundaries.length - 1) {
+                    return boundaries[value] + " or more";
+                }
+                if (boundaries[value + 1] - 1 == boundaries[value]) {
+                    return Integer.toString(boundaries[value]);
+                }
+                return boundaries[value] + " to " + (boundaries[value + 1] - 1);
+        }
+    }
+
+    /**
+     * @return The name of an attribute for display.
+     */
+    public static String getAttributeName(int attribute) {
+        switch (attribute) {
+            case BOROUGH:
+                return "Borough";
+            case ROOM_TYPE:
+                return "Room type";
+            case AVAILABILITY:
+                return "Days available a year";
+            case MINIMUM_NIGHTS:
+                return "Minimum nights";
+            default:
+                return "Number of reviews";
+        }
+    }
+
+    /**
+     * Find the value of an attribute of a listing.
+     * @return The value, which for the numeric attributes is the number of the bucket.
+     */
+    public int getValue(int attribute, int row) {
+        switch (attribute) {
+            case BOROUGH:
+                return table.getNeighbourhoodCode(row);
+            case ROOM_TYPE:
+                return table.getRoomTypeCode(row);
+            case AVAILABILITY:
+                return getBucket(AVAILABILITY_BOUNDARIES, table.getAvailability365(row));
+            case MINIMUM_NIGHTS:
+                return getBucket(MINIMUM_NIGHTS_BOUNDARIES, table.getMinimumNights(row));
+            default:
+                return getBucket(REVIEWS_BOUNDARIES, table.getNumberOfReviews(row));
+        }
+    }
+
+    /**
+     * @return The lowest value in each bucket of a numeric attribute.
+     */
+    private static int[] getBoundaries(int attribute) {
+        switch (attribute) {
+            case AVAILABILITY:
+                return AVAILABILITY_BOUNDARIES;
+            case MINIMUM_NIGHTS:
+                return MINIMUM_NIGHTS_BOUNDARIES;
+            default:
+                return REVIEWS_BOUNDARIES;
+        }
+    }
+
+    /**
+     * Find the last bucket whose lowest value is no more than a value, or the first bucket for a lower value.
+     */
+    private static int getBucket(int[] boundaries, int value) {
+        int bucket = 0;
+        while (bucket + 1 < boundaries.length && boundaries[bucket + 1] <= value) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,167 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * The test class ListingFilterIndexTest.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class ListingFilterIndexTest
+{
+
+    // Table of listings for the tests
+    private ListingTable table;
+
+    // Index of the table by the attributes it can be filtered by
+    private ListingFilterIndex index;
+
+    /**
+     * Constructor for the test class.
+     */
+    public ListingFilterIndexTest() throws IOException {
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        table = dataLoader.loadTable();
+        index = new ListingFilterIndex(table);
+    }
+
+    /**
+     * Test that combining sets of rows gives the same rows as combining plain bit sets, for sets sparse
+     * and dense enough to be stored both ways and spread over several chunks.
+     */
+    @Test
+    public void testRowBitmaps() {
+        Random random = new Random(7);
+        double[] densities = { 0.001, 0.05, 0.5, 0.95 };
+        for (double firstDensity : densities) {
+            for (double secondDensity : densities) {
+                BitSet first = randomRows(random, firstDensity);
+                BitSet second = randomRows(random, secondDensity);
+                RowBitmap firstBitmap = toBitmap(first);
+                RowBitmap secondBitmap = toBitmap(second);
+
+                BitSet and = (BitSet) first.clone();
+                and.and(second);
+                BitSet or = (BitSet) first.clone();
+                or.or(second);
+                assertSameRows(and, firstBitmap.and(secondBitmap));
+                assertSameRows(or, firstBitmap.or(secondBitmap));
+                assertSameRows(first, firstBitmap);
+            }
+        }
+
+        // Dense sets are stored as bits, sparse sets as arrays
+        assertTrue(toBitmap(randomRows(random, 0.5)).getBitChunkCount() > 0);
+        assertEquals(0, toBitmap(randomRows(random, 0.01)).getBitChunkCount());
+    }
+
+    /**
+     * Test that rows can still be added to a bitmap after trimming it, including an empty one.
+     */
+    @Test
+    public void testTrimmedRowBitmaps() {
+        RowBitmap empty = new RowBitmap();
+        empty.trimToSize();
+        assertEquals(0, empty.size());
+        empty.add(5);
+        empty.add(1 << 20);
+        assertTrue(empty.contains(5) && empty.contains(1 << 20));
+        assertEquals(2, empty.size());
+
+        RowBitmap rows = new RowBitmap();
+        rows.add(3);
+        rows.trimToSize();
+        rows.add(4);
+        rows.add(70000);
+        rows.trimToSize();
+        rows.add(200000);
+        assertEquals(4, rows.size());
+        assertTrue(rows.contains(3) && rows.contains(4) && rows.contains(70000) && rows.contains(200000));
+    }
+
+    /**
+     * Test that filters find exactly the listings found by checking every listing against the values chosen.
+     */
+    @Test
+    public void testFilters() {
+        Random random = new Random(11);
+        for (int test = 0; test < 40; test++) {
+            // Choose a few values of a few attributes
+            ListingFilter filter = new ListingFilter();
+            for (int attribute = 0; attribute < ListingFilterIndex.ATTRIBUTE_COUNT; attribute++) {
+                if (random.nextInt(3) == 0) {
+                    for (int value = 0; value < index.getValueCount(attribute); value++) {
+                        filter.setChosen(attribute, value, random.nextInt(3) == 0);
+                    }
+                }
+            }
+
+            RowBitmap rows = index.getRows(filter);
+            if (filter.getChoiceCount() == 0) {
+                assertNull(rows);
+                continue;
+            }
+            BitSet expected = new BitSet();
+            for (int row = 0; row < table.size(); row++) {
+                boolean matches = true;
+                for (int attribute = 0; attribute < ListingFilterIndex.ATTRIBUTE_COUNT; attribute++) {
+                    matches &= !filter.hasChoices(attribute) || filter.isChosen(attribute, index.getValue(attribute, row));
+                }
+                expected.set(row, matches);
+            }
+            assertSameRows(expected, rows);
+        }
+    }
+
+    /**
+     * Test that the numeric attributes are put into the right buckets.
+     */
+    @Test
+    public void testBuckets() {
+        for (int row = 0; row < table.size(); row++) {
+            assertEquals(table.getAvailability365(row) <= 0, index.getValue(ListingFilterIndex.AVAILABILITY, row) == 0);
+            assertEquals(table.getNumberOfReviews(row) >= 100, index.getValue(ListingFilterIndex.REVIEWS, row) == 4);
+            assertEquals(table.getMinimumNights(row) == 2, index.getValue(ListingFilterIndex.MINIMUM_NIGHTS, row) == 1);
+        }
+        assertEquals("0", index.getValueName(ListingFilterIndex.AVAILABILITY, 0));
+        assertEquals("1 to 90", index.getValueName(ListingFilterIndex.AVAILABILITY, 1));
+        assertEquals("100 or more", index.getValueName(ListingFilterIndex.REVIEWS, 4));
+    }
+
+    /**
+     * Make a set of rows up to a few chunks long, each in the set with some chance.
+     */
+    private BitSet randomRows(Random random, double density) {
+        BitSet rows = new BitSet();
+        for (int row = 0; row < 200000; row++) {
+            if (random.nextDouble() < density) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Make a compressed set holding the same rows as a bit set.
+     */
+    private RowBitmap toBitmap(BitSet rows) {
+        RowBitmap bitmap = new RowBitmap();
+        rows.stream().forEach(bitmap::add);
+        bitmap.trimToSize();
+        return bitmap;
+    }
+
+    /**
+     * Check that a compressed set holds exactly the rows of a bit set.
+     */
+    private void assertSameRows(BitSet expected, RowBitmap actual) {
+        assertEquals(expected.cardinality(), actual.size());
+        assertArrayEquals(expected.stream().toArray(), actual.toArray());
+        for (int row = 0; row < 200000; row += 7) {
+            assertEquals(expected.get(row), actual.contains(row));
+        }
+    }
+}
@@ -0,0 +1,312 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Saves a loaded ListingTable to a compact binary snapshot file next to the csv file it was loaded
+ * from, so that later runs can read the columns back with a few bulk reads instead of parsing the
+ * csv again. The snapshot records the size, modification time and a fingerprint of the csv content,
+ * and is ignored if any of them no longer match the csv file.
+ *
+ * The fingerprint is a CRC32 of the start, the end and evenly spaced blocks of the csv file, rather
+ * than of the whole file, so that checking a snapshot stays cheap however large the csv file is.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class ListingSnapshot {
+
+    // Marks the start of a snapshot file
+    private static final long MAGIC = 0x50565f534e415031L;
+
+    // Format version, increased whenever the layout of the file changes
+    private static final int VERSION = 2;
+
+    // Size of the header in bytes
+    private static final int HEADER_SIZE = 8 + 4 + 8 + 8 + 8 + 4;
+
+    // Size of each block of the csv file included in the fingerprint, and how many are spread through it
+    private static final int FINGERPRINT_BLOCK_SIZE = 1 << 16;
+    private static final int FINGERPRINT_BLOCKS = 16;
+
+    // Largest number of bytes read or written in one go
+    private static final int BLOCK_SIZE = 1 << 24;
+
+    /**
+     * Get the snapshot file belonging to a csv file.
+     * @param csv The csv file.
+     * @return The snapshot file, which may not exist.
+     */
+    public static File getSnapshotFile(File csv) {
+        return new File(csv.getPath() + ".snapshot");
+    }
+
+    /**
+     * Load the table saved in the snapshot of a csv file.
+     * @param csv The csv file the table was loaded from.
+     * @return The table, or null if there is no snapshot or it does not match the csv file.
+     */
+    public static ListingTable load(File csv) throws IOException {
+        File snapshot = getSnapshotFile(csv);
+        if (!snapshot.isFile()) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ);
+        try {
+            // Check the header against the csv file
+            ByteBuffer header = read(channel, HEADER_SIZE);
+            if (header.remaining() < HEADER_SIZE || header.getLong() != MAGIC || header.getInt() != VERSION
+                    || header.getLong() != csv.length() || header.getLong() != csv.lastModified()
+                    || header.getLong() != fingerprint(csv)) {
+                return null;
+            }
+            int size = header.getInt();
+            return ListingTable.readSnapshot(channel, size);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Save a table to the snapshot of the csv file it was loaded from, replacing any older snapshot.
+     * @param table The table to save.
+     * @param csv The csv file the table was loaded from.
+     */
+    public static void save(ListingTable table, File csv) throws IOException {
+        File snapshot = getSnapshotFile(csv);
+        // Write to a temporary file first so a half written snapshot is never picked up
+        File temporary = new File(snapshot.getPath() + ".tmp");
+        FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = allocate(HEADER_SIZE);
+            header.putLong(MAGIC).putInt(VERSION).putLong(csv.length()).putLong(csv.lastModified())
+                .putLong(fingerprint(csv)).putInt(table.size());
+            write(channel, header);
+            table.writeSnapshot(channel);
+        } finally {
+            channel.close();
+        }
+        if (!temporary.renameTo(snapshot)) {
+            snapshot.delete();
+            if (!temporary.renameTo(snapshot)) {
+                throw new IOException("Could not replace " + snapshot);
+            }
+        }
+    }
+
+    /**
+     * Write the first values of an int column.
+     */
+    static void writeInts(FileChannel channel, int[] column, int size) throws IOException {
+        for (int start = 0; start < size; start += BLOCK_SIZE / 4) {
+            int count = Math.min(BLOCK_SIZE / 4, size - start);
+            ByteBuffer buffer = allocate(count * 4);
+            buffer.asIntBuffer().put(column, start, count);
+            buffer.position(count * 4);
+            write(channel, buffer);
+        }
+    }
+
+    /**
+     * Read an int column.
+     */
+    static int[] readInts(FileChannel channel, int size) throws IOException {
+        int[] column = new int[size];
+        for (int start = 0; start < size; start += BLOCK_SIZE / 4) {
+            int count = Math.min(BLOCK_SIZE / 4, size - start);
+            readFully(channel, count * 4).asIntBuffer().get(column, start, count);
+        }
+        return column;
+    }
+
+    /**
+     * Write the first values of a double column.
+     */
+    static void writeDoubles(FileChannel channel, double[] column, int size) throws IOException {
+        for (int start = 0; start < size; start += BLOCK_SIZE / 8) {
+            int count = Math.min(BLOCK_SIZE / 8, size - start);
+            ByteBuffer buffer = allocate(count * 8);
+            buffer.asDoubleBuffer().put(column, start, count);
+            buffer.position(count * 8);
+            write(channel, buffer);
+        }
+    }
+
+    /**
+     * Read a double column.
+     */
+    static double[] readDoubles(FileChannel channel, int size) throws IOException {
+        double[] column = new double[size];
+        for (int start = 0; start < size; start += BLOCK_SIZE / 8) {
+            int count = Math.min(BLOCK_SIZE / 8, size - start);
+            readFully(channel, count * 8).asDoubleBuffer().get(column, start, count);
+        }
+        return column;
+    }
+
+    /**
+     * Write the first values of a text column, as the byte length of every value followed by the
+     * UTF-8 bytes of all the values. A null value is written with a length of -1.
+     */
+    static void writeStrings(FileChannel channel, String[] column, int size) throws IOException {
+        byte[][] encoded = new byte[size][];
+        int[] lengths = new int[size];
+        for (int row = 0; row < size; row++) {
+            if (column[row] == null) {
+                lengths[row] = -1;
+            } else {
+                encoded[row] = column[row].getBytes(StandardCharsets.UTF_8);
+                lengths[row] = encoded[row].length;
+            }
+        }
+        writeInts(channel, lengths, size);
+
+        // Gather the bytes into blocks before writing them
+        ByteBuffer buffer = allocate(BLOCK_SIZE);
+        for (int row = 0; row < size; row++) {
+            if (encoded[row] == null) {
+                continue;
+            }
+            if (encoded[row].length > buffer.remaining()) {
+                write(channel, buffer);
+                buffer.clear();
+            }
+            if (encoded[row].length > buffer.capacity()) {
+                // A value too big for a block is written on its own
+                ByteBuffer large = ByteBuffer.wrap(encoded[row]);
+                large.position(large.limit());
+                write(channel, large);
+            } else {
+                buffer.put(encoded[row]);
+            }
+        }
+        write(channel, buffer);
+    }
+
+    /**
+     * Read a text column.
+     */
+    static String[] readStrings(FileChannel channel, int size) throws IOException {
+        int[] lengths = readInts(channel, size);
+        String[] column = new String[size];
+        int row = 0;
+        while (row < size) {
+            // Read the bytes of as many values as fit in one block, and at least one value
+            int end = row;
+            long blockLength = 0;
+            while (end < size && (end == row || blockLength + Math.max(lengths[end], 0) <= BLOCK_SIZE)) {
+                blockLength += Math.max(lengths[end], 0);
+                end++;
+            }
+            ByteBuffer block = readFully(channel, (int) blockLength);
+            byte[] bytes = block.array();
+            int offset = block.arrayOffset() + block.position();
+            for (; row < end; row++) {
+                if (lengths[row] >= 0) {
+                    column[row] = new String(bytes, offset, lengths[row], StandardCharsets.UTF_8);
+                    offset += lengths[row];
+                }
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Write the symbols of a symbol table in code order.
+     */
+    static void writeSymbols(FileChannel channel, SymbolTable symbols) throws IOException {
+        String[] values = new String[symbols.size()];
+        for (int code = 0; code < values.length; code++) {
+            values[code] = symbols.getSymbol(code);
+        }
+        ByteBuffer count = allocate(4);
+        count.putInt(values.length);
+        write(channel, count);
+        writeStrings(channel, values, values.length);
+    }
+
+    /**
+     * Read the symbols of a symbol table into an empty symbol table, so that they keep their codes.
+     */
+    static void readSymbols(FileChannel channel, SymbolTable symbols) throws IOException {
+        int count = readFully(channel, 4).getInt();
+        for (String symbol : readStrings(channel, count)) {
+            symbols.intern(symbol);
+        }
+    }
+
+    /**
+     * Work out the fingerprint of the content of a csv file.
+     * @param csv The csv file.
+     * @return A CRC32 of the start, end and evenly spaced blocks of the file.
+     */
+    private static long fingerprint(File csv) throws IOException {
+        CRC32 crc = new CRC32();
+        FileChannel channel = FileChannel.open(csv.toPath(), StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            ByteBuffer block = ByteBuffer.allocate(FINGERPRINT_BLOCK_SIZE);
+            for (int i = 0; i <= FINGERPRINT_BLOCKS; i++) {
+                // Blocks run from the very start to the very end of the file
+                long position = Math.max(0, (length - FINGERPRINT_BLOCK_SIZE) * i / FINGERPRINT_BLOCKS);
+                block.clear();
+                while (block.hasRemaining() && channel.read(block, position + block.position()) > 0) {
+                    // Keep reading until the block is full or the file ends
+                }
+                block.flip();
+                crc.update(block);
+            }
+        } finally {
+            channel.close();
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Create an empty buffer in the byte order used by snapshot files.
+     */
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Write everything up to the position of a buffer.
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Read up to the given number of bytes, stopping early only at the end of the file.
+     * @return A buffer holding the bytes read.
+     */
+    private static ByteBuffer read(FileChannel channel, int size) throws IOException {
+        ByteBuffer buffer = allocate(size);
+        while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+            // Keep reading until the buffer is full or the file ends
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Read exactly the given number of bytes.
+     * @return A buffer holding the bytes read.
+     */
+    private static ByteBuffer readFully(FileChannel channel, int size) throws IOException {
+        ByteBuffer buffer = read(channel, size);
+        if (buffer.remaining() < size) {
+            throw new IOException("Snapshot file is truncated");
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,435 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A column oriented store for the rows of the AirBnB London data set. Instead of keeping one
+ * AirbnbListing object per row, every column is held in its own array. Numeric columns are stored as
+ * primitive int and double arrays so that a scan over, for example, the price column walks one
+ * contiguous block of memory without unboxing. The neighbourhood, room type, host id and host name
+ * columns repeat the same values many times, so they are dictionary coded: each row stores a small
+ * int code and the strings themselves are kept once in a SymbolTable. Code that only needs to tell
+ * values apart, such as grouping rows by borough or by host, can work with the codes directly and
+ * use them as array indexes.
+ *
+ * Rows are identified by their index, starting from 0, in the order they were added.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class ListingTable {
+
+    // Capacity of the columns for a table created without a size hint
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // Number of rows stored in the table
+    private int size;
+
+    // Number of times rows have been added to the table, so users of the table can tell it has changed
+    private int modificationCount;
+
+    // Text columns which are kept as strings
+    private String[] ids;
+    private String[] names;
+    private String[] lastReviews;
+
+    // Dictionary coded columns and the symbol tables used to decode them
+    private int[] hostIdCodes;
+    private int[] hostNameCodes;
+    private int[] neighbourhoodCodes;
+    private int[] roomTypeCodes;
+    private SymbolTable hostIds;
+    private SymbolTable hostNames;
+    private SymbolTable neighbourhoods;
+    private SymbolTable roomTypes;
+
+    // Numeric columns
+    private double[] latitudes;
+    private double[] longitudes;
+    private int[] prices;
+    private int[] minimumNights;
+    private int[] numberOfReviews;
+    private double[] reviewsPerMonth;
+    private int[] calculatedHostListingsCounts;
+    private int[] availability365;
+
+    /**
+     * Create an empty table.
+     */
+    public ListingTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty table with room for the given number of rows before the columns need to grow.
+     * @param capacity The initial number of rows.
+     */
+    public ListingTable(int capacity) {
+        capacity = Math.max(capacity, 1);
+        ids = new String[capacity];
+        names = new String[capacity];
+        lastReviews = new String[capacity];
+        hostIdCodes = new int[capacity];
+        hostNameCodes = new int[capacity];
+        neighbourhoodCodes = new int[capacity];
+        roomTypeCodes = new int[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        prices = new int[capacity];
+        minimumNights = new int[capacity];
+        numberOfReviews = new int[capacity];
+        reviewsPerMonth = new double[capacity];
+        calculatedHostListingsCounts = new int[capacity];
+        availability365 = new int[capacity];
+        hostIds = new SymbolTable();
+        hostNames = new SymbolTable();
+        neighbourhoods = new SymbolTable();
+        roomTypes = new SymbolTable();
+    }
+
+    /**
+     * Build a table holding the same rows as a list of listings.
+     * @param listings The listings to copy into the table.
+     * @return A table with one row per listing, in list order.
+     */
+    public static ListingTable fromListings(ArrayList<AirbnbListing> listings) {
+        ListingTable table = new ListingTable(listings.size());
+        for (AirbnbListing listing : listings) {
+            table.add(listing);
+        }
+        return table;
+    }
+
+    /**
+     * Add a listing to the end of the table as a row.
+     * @param listing The listing whose values are copied.
+     */
+    public void add(AirbnbListing listing) {
+        add(listing.getId(), listing.getName(), listing.getHost_id(), listing.getHost_name(),
+            listing.getNeighbourhood(), listing.getLatitude(), listing.getLongitude(),
+            listing.getRoom_type(), listing.getPrice(), listing.getMinimumNights(),
+            listing.getNumberOfReviews(), listing.getLastReview(), listing.getReviewsPerMonth(),
+            listing.getCalculatedHostListingsCount(), listing.getAvailability365());
+    }
+
+    /**
+     * Add a row to the end of the table. The parameters are in the same order as the columns of the
+     * csv file and the AirbnbListing constructor.
+     */
+    public void add(String id, String name, String host_id,
+                    String host_name, String neighbourhood, double latitude,
+                    double longitude, String room_type, int price,
+                    int minimumNights, int numberOfReviews, String lastReview,
+                    double reviewsPerMonth, int calculatedHostListingsCount, int availability365) {
+        ensureCapacity(size + 1);
+        int row = size;
+        this.ids[row] = id;
+        this.names[row] = name;
+        this.hostIdCodes[row] = hostIds.intern(host_id);
+        this.hostNameCodes[row] = hostNames.intern(host_name);
+        this.neighbourhoodCodes[row] = neighbourhoods.intern(neighbourhood);
+        this.latitudes[row] = latitude;
+        this.longitudes[row] = longitude;
+        this.roomTypeCodes[row] = roomTypes.intern(room_type);
+        this.prices[row] = price;
+        this.minimumNights[row] = minimumNights;
+        this.numberOfReviews[row] = numberOfReviews;
+        this.lastReviews[row] = lastReview;
+        this.reviewsPerMonth[row] = reviewsPerMonth;
+        this.calculatedHostListingsCounts[row] = calculatedHostListingsCount;
+        this.availability365[row] = availability365;
+        size++;
+        modificationCount++;
+    }
+
+    /**
+     * Add every row of another table to the end of this table, keeping their order.
+     * @param other The table whose rows are copied.
+     */
+    public void append(ListingTable other) {
+        ensureCapacity(size + other.size);
+
+        // Codes in the other table refer to its own symbol tables, so translate them into ours
+        int[] hostIdTranslation = translateCodes(other.hostIds, hostIds);
+        int[] hostNameTranslation = translateCodes(other.hostNames, hostNames);
+        int[] neighbourhoodTranslation = translateCodes(other.neighbourhoods, neighbourhoods);
+        int[] roomTypeTranslation = translateCodes(other.roomTypes, roomTypes);
+        for (int row = 0; row < other.size; row++) {
+            hostIdCodes[size + row] = hostIdTranslation[other.hostIdCodes[row]];
+            hostNameCodes[size + row] = hostNameTranslation[other.hostNameCodes[row]];
+            neighbourhoodCodes[size + row] = neighbourhoodTranslation[other.neighbourhoodCodes[row]];
+            roomTypeCodes[size + row] = roomTypeTranslation[other.roomTypeCodes[row]];
+        }
+
+        // Every other column can be copied across as it is
+        System.arraycopy(other.ids, 0, ids, size, other.size);
+        System.arraycopy(other.names, 0, names, size, other.size);
+        System.arraycopy(other.lastReviews, 0, lastReviews, size, other.size);
+        System.arraycopy(other.latitudes, 0, latitudes, size, other.size);
+        System.arraycopy(other.longitudes, 0, longitudes, size, other.size);
+        System.arraycopy(other.prices, 0, prices, size, other.size);
+        System.arraycopy(other.minimumNights, 0, minimumNights, size, other.size);
+        System.arraycopy(other.numberOfReviews, 0, numberOfReviews, size, other.size);
+        System.arraycopy(other.reviewsPerMonth, 0, reviewsPerMonth, size, other.size);
+        System.arraycopy(other.calculatedHostListingsCounts, 0, calculatedHostListingsCounts, size, other.size);
+        System.arraycopy(other.availability365, 0, availability365, size, other.size);
+        size += other.size;
+        modificationCount++;
+    }
+
+    /**
+     * Create a listing object for one row of the table.
+     * @param row The index of the row.
+     * @return A new listing holding the values of the row.
+     */
+    public AirbnbListing getListing(int row) {
+        return new AirbnbListing(ids[row], names[row], getHostId(row), getHostName(row),
+            getNeighbourhood(row), latitudes[row], longitudes[row], getRoomType(row),
+            prices[row], minimumNights[row], numberOfReviews[row], lastReviews[row],
+            reviewsPerMonth[row], calculatedHostListingsCounts[row], availability365[row]);
+    }
+
+    /**
+     * @return The number of rows in the table.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return A count which changes every time rows are added to the table.
+     */
+    public int getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Shrink the columns so they hold exactly the rows in the table, releasing any spare capacity.
+     */
+    public void trimToSize() {
+        if (prices.length != size) {
+            resize(size);
+        }
+    }
+
+    public String getId(int row) {
+        return ids[row];
+    }
+
+    public String getName(int row) {
+        return names[row];
+    }
+
+    public int getHostIdCode(int row) {
+        return hostIdCodes[row];
+    }
+
+    public String getHostId(int row) {
+        return hostIds.getSymbol(hostIdCodes[row]);
+    }
+
+    public int getHostNameCode(int row) {
+        return hostNameCodes[row];
+    }
+
+    public String getHostName(int row) {
+        return hostNames.getSymbol(hostNameCodes[row]);
+    }
+
+    public int getNeighbourhoodCode(int row) {
+        return neighbourhoodCodes[row];
+    }
+
+    public String getNeighbourhood(int row) {
+        return neighbourhoods.getSymbol(neighbourhoodCodes[row]);
+    }
+
+    public double getLatitude(int row) {
+        return latitudes[row];
+    }
+
+    public double getLongitude(int row) {
+        return longitudes[row];
+    }
+
+    public int getRoomTypeCode(int row) {
+        return roomTypeCodes[row];
+    }
+
+    public String getRoomType(int row) {
+        return roomTypes.getSymbol(roomTypeCodes[row]);
+    }
+
+    public int getPrice(int row) {
+        return prices[row];
+    }
+
+    public int getMinimumNights(int row) {
+        return minimumNights[row];
+    }
+
+    public int getNumberOfReviews(int row) {
+        return numberOfReviews[row];
+    }
+
+    public String getLastReview(int row) {
+        return lastReviews[row];
+    }
+
+    public double getReviewsPerMonth(int row) {
+        return reviewsPerMonth[row];
+    }
+
+    public int getCalculatedHostListingsCount(int row) {
+        return calculatedHostListingsCounts[row];
+    }
+
+    public int getAvailability365(int row) {
+        return availability365[row];
+    }
+
+    /**
+     * Get the minimum price of a stay at a listing, which is the price per night multiplied by the
+     * minimum number of nights. This is the price the price range selection filters on.
+     * @param row The index of the row.
+     * @return The minimum cost of booking the listing, or Integer.MAX_VALUE if it is too large for an int.
+     */
+    public int getMinimumStayPrice(int row) {
+        long price = (long) prices[row] * minimumNights[row];
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, price));
+    }
+
+    /**
+     * @return The symbol table holding the host ids.
+     */
+    public SymbolTable getHostIds() {
+        return hostIds;
+    }
+
+    /**
+     * @return The symbol table holding the host names.
+     */
+    public SymbolTable getHostNames() {
+        return hostNames;
+    }
+
+    /**
+     * @return The symbol table holding the neighbourhood (borough) names.
+     */
+    public SymbolTable getNeighbourhoods() {
+        return neighbourhoods;
+    }
+
+    /**
+     * @return The symbol table holding the room type names.
+     */
+    public SymbolTable getRoomTypes() {
+        return roomTypes;
+    }
+
+    /**
+     * Write every column of the table to a snapshot file, in the order readSnapshot reads them.
+     * @param channel The snapshot file, positioned just after its header.
+     */
+    void writeSnapshot(FileChannel channel) throws IOException {
+        ListingSnapshot.writeStrings(channel, ids, size);
+        ListingSnapshot.writeStrings(channel, names, size);
+        ListingSnapshot.writeStrings(channel, lastReviews, size);
+        ListingSnapshot.writeSymbols(channel, hostIds);
+        ListingSnapshot.writeInts(channel, hostIdCodes, size);
+        ListingSnapshot.writeSymbols(channel, hostNames);
+        ListingSnapshot.writeInts(channel, hostNameCodes, size);
+        ListingSnapshot.writeSymbols(channel, neighbourhoods);
+        ListingSnapshot.writeInts(channel, neighbourhoodCodes, size);
+        ListingSnapshot.writeSymbols(channel, roomTypes);
+        ListingSnapshot.writeInts(channel, roomTypeCodes, size);
+        ListingSnapshot.writeDoubles(channel, latitudes, size);
+        ListingSnapshot.writeDoubles(channel, longitudes, size);
+        ListingSnapshot.writeInts(channel, prices, size);
+        ListingSnapshot.writeInts(channel, minimumNights, size);
+        ListingSnapshot.writeInts(channel, numberOfReviews, size);
+        ListingSnapshot.writeDoubles(channel, reviewsPerMonth, size);
+        ListingSnapshot.writeInts(channel, calculatedHostListingsCounts, size);
+        ListingSnapshot.writeInts(channel, availability365, size);
+    }
+
+    /**
+     * Read a table from a snapshot file written by writeSnapshot.
+     * @param channel The snapshot file, positioned just after its header.
+     * @param size The number of rows in the table.
+     * @return The table.
+     */
+    static ListingTable readSnapshot(FileChannel channel, int size) throws IOException {
+        ListingTable table = new ListingTable(0);
+        table.ids = ListingSnapshot.readStrings(channel, size);
+        table.names = ListingSnapshot.readStrings(channel, size);
+        table.lastReviews = ListingSnapshot.readStrings(channel, size);
+        ListingSnapshot.readSymbols(channel, table.hostIds);
+        table.hostIdCodes = ListingSnapshot.readInts(channel, size);
+        ListingSnapshot.readSymbols(channel, table.hostNames);
+        table.hostNameCodes = ListingSnapshot.readInts(channel, size);
+        ListingSnapshot.readSymbols(channel, table.neighbourhoods);
+        table.neighbourhoodCodes = ListingSnapshot.readInts(channel, size);
+        ListingSnapshot.readSymbols(channel, table.roomTypes);
+        table.roomTypeCodes = ListingSnapshot.readInts(channel, size);
+        table.latitudes = ListingSnapshot.readDoubles(channel, size);
+        table.longitudes = ListingSnapshot.readDoubles(channel, size);
+        table.prices = ListingSnapshot.readInts(channel, size);
+        table.minimumNights = ListingSnapshot.readInts(channel, size);
+        table.numberOfReviews = ListingSnapshot.readInts(channel, size);
+        table.reviewsPerMonth = ListingSnapshot.readDoubles(channel, size);
+        table.calculatedHostListingsCounts = ListingSnapshot.readInts(channel, size);
+        table.availability365 = ListingSnapshot.readInts(channel, size);
+        table.size = size;
+        return table;
+    }
+
+    /**
+     * Work out the code each symbol of one symbol table has in another, adding any symbols the
+     * second table is missing.
+     * @param from The symbol table the codes are translated from.
+     * @param to The symbol table the codes are translated into.
+     * @return An array mapping each code of the first table to a code of the second.
+     */
+    private static int[] translateCodes(SymbolTable from, SymbolTable to) {
+        int[] translation = new int[from.size()];
+        for (int code = 0; code < from.size(); code++) {
+            translation[code] = to.intern(from.getSymbol(code));
+        }
+        return translation;
+    }
+
+    /**
+     * Make sure the columns have room for at least the given number of rows.
+     * @param capacity The number of rows required.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > prices.length) {
+            // Grow by half again, as ArrayList does
+            resize(Math.max(capacity, prices.length + (prices.length >> 1)));
+        }
+    }
+
+    /**
+     * Copy every column into a new array of the given length.
+     * @param capacity The new length of the columns.
+     */
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        names = Arrays.copyOf(names, capacity);
+        lastReviews = Arrays.copyOf(lastReviews, capacity);
+        hostIdCodes = Arrays.copyOf(hostIdCodes, capacity);
+        hostNameCodes = Arrays.copyOf(hostNameCodes, capacity);
+        neighbourhoodCodes = Arrays.copyOf(neighbourhoodCodes, capacity);
+        roomTypeCodes = Arrays.copyOf(roomTypeCodes, capacity);
+        latitudes = Arrays.copyOf(latitudes, capacity);
+        longitudes = Arrays.copyOf(longitudes, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        minimumNights = Arrays.copyOf(minimumNights, capacity);
+        numberOfReviews = Arrays.copyOf(numberOfReviews, capacity);
+        reviewsPerMonth = Arrays.copyOf(reviewsPerMonth, capacity);
+        calculatedHostListingsCounts = Arrays.copyOf(calculatedHostListingsCounts, capacity);
+        availability365 = Arrays.copyOf(availability365, capacity);
+    }
+}
@@ -0,0 +1,360 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * An index of the words in the names and host names of the listings in a ListingTable, so that listings
+ * can be searched by name as fast as the user can type.
+ *
+ * A search is made of words, each of which must appear in the name or host name of a listing for it
+ * to be found, ignoring case. A word of three or more letters may appear anywhere within a word of the
+ * listing, so "ami" finds "Family", while a shorter word must appear at the start of a word of the
+ * listing, so "a" finds "Apartment" but not "Flat".
+ *
+ * For each distinct word of the listings, and for each trigram, meaning each run of three letters within
+ * a word, the index keeps the rows of the listings holding it. The rows of every word are stored one
+ * after another in a single int array, in order of row, and likewise for the trigrams, so the index
+ * needs little more memory than the rows themselves. A listing holds a longer search word only if it
+ * holds every trigram of it, and a shorter search word only if it holds one of the words starting with
+ * it, so the listings matching a search are found among the rows of the rarest trigram of its longer
+ * words or the rows of the words starting with one of its shorter words, whichever are fewer. Only those
+ * rows which also hold every other trigram are checked against the words themselves.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class ListingTextIndex {
+
+    // Length of the runs of letters the index keeps for finding words within words
+    private static final int TRIGRAM_LENGTH = 3;
+
+    // Listings which are indexed
+    private ListingTable table;
+
+    // Every distinct word of the listings in alphabetical order, with where its rows start, and the rows of every word
+    private String[] words;
+    private int[] wordStarts;
+    private int[] wordRows;
+
+    // Number of each distinct trigram of the listings, with where its rows start, and the rows of every trigram
+    private HashMap<String, Integer> trigramNumbers;
+    private int[] trigramStarts;
+    private int[] trigramRows;
+
+    /**
+     * Build the index for a table. This takes a while for a large table, so is best done on a background thread.
+     * @param table The listings to index.
+     */
+    public ListingTextIndex(ListingTable table) {
+        this.table = table;
+
+        // Number each distinct word and trigram as it is first seen, and note each row holding it once
+        HashMap<String, Integer> wordNumbers = new HashMap<String, Integer>();
+        trigramNumbers = new HashMap<String, Integer>();
+        Postings wordPostings = new Postings();
+        Postings trigramPostings = new Postings();
+        for (int row = 0; row < table.size(); row++) {
+            for (String word : getWords(row)) {
+                wordPostings.add(getNumber(wordNumbers, word), row);
+                for (int start = 0; start + TRIGRAM_LENGTH <= word.length(); start++) {
+                    trigramPostings.add(getNumber(trigramNumbers, word.substring(start, start + TRIGRAM_LENGTH)), row);
+                }
+            }
+        }
+
+        trigramStarts = trigramPostings.getStarts(trigramNumbers.size());
+        trigramRows = trigramPostings.getRows(trigramStarts);
+
+        // Store the words in alphabetical order, so that the words starting with some letters are next to each other
+        int[] numberedStarts = wordPostings.getStarts(wordNumbers.size());
+        int[] numberedRows = wordPostings.getRows(numberedStarts);
+        words = wordNumbers.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        wordStarts = new int[words.length + 1];
+        wordRows = new int[numberedRows.length];
+        for (int word = 0; word < words.length; word++) {
+            int number = wordNumbers.get(words[word]);
+            int count = numberedStarts[number + 1] - numberedStarts[number];
+            System.arraycopy(numberedRows, numberedStarts[number], wordRows, wordStarts[word], count);
+            wordStarts[word + 1] = wordStarts[word] + count;
+        }
+    }
+
+    /**
+     * Find the listings matching a search.
+     * @param search The words to search for, separated by spaces or punctuation.
+     * @param limit The largest number of listings to find.
+     * @return The table rows of the first listings matching, in order of row, or an empty array if the
+     *         search has no words.
+     */
+    public int[] search(String search, int limit) {
+        String[] searchWords = split(search.toLowerCase(Locale.ROOT));
+        if (searchWords.length == 0 || limit <= 0) {
+            return new int[0];
+        }
+
+        // Find the trigrams of each longer word, and the rarest of all of them
+        int[][] trigrams = new int[searchWords.length][];
+        int rarest = -1;
+        for (int word = 0; word < searchWords.length; word++) {
+            if (searchWords[word].length() < TRIGRAM_LENGTH) {
+                continue;
+            }
+            trigrams[word] = getTrigrams(searchWords[word]);
+            if (trigrams[word] == null) {
+                return new int[0];
+            }
+            for (int trigram : trigrams[word]) {
+                if (rarest < 0 || getTrigramCount(trigram) < getTrigramCount(rarest)) {
+                    rarest = trigram;
+                }
+            }
+        }
+
+        // Find the shorter word with the fewest rows of words starting with it
+        int firstWord = 0;
+        int endWord = 0;
+        for (String word : searchWords) {
+            if (word.length() >= TRIGRAM_LENGTH) {
+                continue;
+            }
+            int start = findWord(word);
+            int end = findWord(word + Character.MAX_VALUE);
+            if (start == end) {
+                return new int[0];
+            }
+            if (firstWord == endWord || wordStarts[end] - wordStarts[start] < wordStarts[endWord] - wordStarts[firstWord]) {
+                firstWord = start;
+                endWord = end;
+            }
+        }
+
+        // Go through the rows of the rarest trigram or the rows of the words starting with the shorter word,
+        // whichever are fewer, checking the words only of rows holding every trigram of the longer words
+        int[] found = new int[Math.min(limit, 16)];
+        int count = 0;
+        if (rarest >= 0 && (firstWord == endWord || getTrigramCount(rarest) <= wordStarts[endWord] - wordStarts[firstWord])) {
+            for (int position = trigramStarts[rarest]; position < trigramStarts[rarest + 1] && count < limit; position++) {
+                int row = trigramRows[position];
+                if (holdsTrigrams(trigrams, row) && matches(row, searchWords)) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, Math.min(limit, count * 2));
+                    }
+                    found[count++] = row;
+                }
+            }
+        } else {
+            // A row can hold several words starting with the shorter word, so gather the rows in order first
+            BitSet candidates = new BitSet(table.size());
+            for (int position = wordStarts[firstWord]; position < wordStarts[endWord]; position++) {
+                candidates.set(wordRows[position]);
+            }
+            for (int row = candidates.nextSetBit(0); row >= 0 && count < limit; row = candidates.nextSetBit(row + 1)) {
+                if (holdsTrigrams(trigrams, row) && matches(row, searchWords)) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, Math.min(limit, count * 2));
+                    }
+                    found[count++] = row;
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * @return The table the index was built for.
+     */
+    public ListingTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return The number of distinct words in the names and host names of the listings.
+     */
+    public int getWordCount() {
+        return words.length;
+    }
+
+    /**
+     * @return The number of distinct trigrams in the names and host names of the listings.
+     */
+    public int getTrigramCount() {
+        return trigramNumbers.size();
+    }
+
+    /**
+     * Split the name and host name of a listing into words, ignoring case.
+     * @return The words of the listing, with any word appearing more than once repeated.
+     */
+    public String[] getWords(int row) {
+        String name = table.getName(row) == null ? "" : table.getName(row);
+        String hostName = table.getHostName(row) == null ? "" : table.getHostName(row);
+        return split((name + " " + hostName).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Check whether a listing matches every word of a search.
+     */
+    private boolean matches(int row, String[] searchWords) {
+        String[] rowWords = getWords(row);
+        for (String searchWord : searchWords) {
+            boolean found = false;
+            for (String rowWord : rowWords) {
+                if (searchWord.length() >= TRIGRAM_LENGTH ? rowWord.contains(searchWord) : rowWord.startsWith(searchWord)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the numbers of the trigrams of a word.
+     * @return The numbers of the trigrams, or null if any of them is not held by any listing.
+     */
+    private int[] getTrigrams(String word) {
+        int[] trigrams = new int[word.length() - TRIGRAM_LENGTH + 1];
+        for (int start = 0; start < trigrams.length; start++) {
+            Integer number = trigramNumbers.get(word.substring(start, start + TRIGRAM_LENGTH));
+            if (number == null) {
+                return null;
+            }
+            trigrams[start] = number;
+        }
+        return trigrams;
+    }
+
+    /**
+     * Check whether a listing holds every trigram of some words, with a binary search of the rows of each.
+     */
+    private boolean holdsTrigrams(int[][] trigrams, int row) {
+        for (int[] wordTrigrams : trigrams) {
+            if (wordTrigrams == null) {
+                continue;
+            }
+            for (int trigram : wordTrigrams) {
+                if (Arrays.binarySearch(trigramRows, trigramStarts[trigram], trigramStarts[trigram + 1], row) < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of listings holding a trigram.
+     */
+    private int getTrigramCount(int trigram) {
+        return trigramStarts[trigram + 1] - trigramStarts[trigram];
+    }
+
+    /**
+     * Find the position of the first word which is not alphabetically before some letters.
+     */
+    private int findWord(String letters) {
+        int position = Arrays.binarySearch(words, letters);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * Get the number of a word or trigram, numbering it if it has not been seen before.
+     */
+    private static int getNumber(HashMap<String, Integer> numbers, String key) {
+        Integer number = numbers.get(key);
+        if (number == null) {
+            number = numbers.size();
+            numbers.put(key, number);
+        }
+        return number;
+    }
+
+    /**
+     * Split some text into its words, which are the runs of letters and digits in it.
+     */
+    private static String[] split(String text) {
+        ArrayList<String> words = new ArrayList<String>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * The rows holding each numbered word or trigram, noted in order of row while the index is built.
+     */
+    private static class Postings {
+
+        // Number and row of each time a row is noted as holding a word or trigram
+        private int[] numbers = new int[1024];
+        private int[] rows = new int[1024];
+        private int size;
+
+        // Last row noted for each number, so a row holding the same word twice is only noted once
+        private int[] lastRows = new int[1024];
+
+        Postings() {
+            Arrays.fill(lastRows, -1);
+        }
+
+        /**
+         * Note that a row holds a numbered word or trigram, unless it already has been.
+         */
+        void add(int number, int row) {
+            if (number >= lastRows.length) {
+                int oldLength = lastRows.length;
+                lastRows = Arrays.copyOf(lastRows, Math.max(number + 1, oldLength * 2));
+                Arrays.fill(lastRows, oldLength, lastRows.length, -1);
+            }
+            if (lastRows[number] == row) {
+                return;
+            }
+            lastRows[number] = row;
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            numbers[size] = number;
+            rows[size] = row;
+            size++;
+        }
+
+        /**
+         * @return Where the rows of each number start, with one more at the end for where the last number's rows end.
+         */
+        int[] getStarts(int count) {
+            int[] starts = new int[count + 1];
+            for (int i = 0; i < size; i++) {
+                starts[numbers[i] + 1]++;
+            }
+            for (int number = 0; number < count; number++) {
+                starts[number + 1] += starts[number];
+            }
+            return starts;
+        }
+
+        /**
+         * @return The rows of every number one after another, each in order of row.
+         */
+        int[] getRows(int[] starts) {
+            int[] sorted = new int[size];
+            int[] next = Arrays.copyOf(starts, starts.length - 1);
+            for (int i = 0; i < size; i++) {
+                sorted[next[numbers[i]]++] = rows[i];
+            }
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * The test class ListingTextIndexTest.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class ListingTextIndexTest
+{
+
+    // Table of listings for the tests
+    private ListingTable table;
+
+    // Index of the names and host names of the table
+    private ListingTextIndex index;
+
+    /**
+     * Constructor for the test class.
+     */
+    public ListingTextIndexTest() throws IOException {
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        table = dataLoader.loadTable();
+        index = new ListingTextIndex(table);
+    }
+
+    /**
+     * Test that searches find exactly the listings found by checking the words of every listing, for
+     * whole words, parts of words, short prefixes, several words, different case and words no listing holds.
+     */
+    @Test
+    public void testSearch() {
+        ArrayList<String> searches = new ArrayList<String>();
+        // Whole words, and the middle and start of words, of a few listings
+        for (int row = 0; row < table.size(); row += table.size() / 5 + 1) {
+            for (String word : index.getWords(row)) {
+                searches.add(word);
+                if (word.length() >= 5) {
+                    searches.add(word.substring(1, 4).toUpperCase());
+                }
+                searches.add(word.substring(0, 1));
+            }
+            searches.add(String.join(" ", index.getWords(row)));
+        }
+        searches.add("zzqx");
+        searches.add("  ,. ");
+        searches.add("a, b");
+
+        for (String search : searches) {
+            int[] found = index.search(search, Integer.MAX_VALUE);
+            int[] expected = findByChecking(search);
+            assertArrayEquals(search, expected, found);
+
+            // A limit keeps only the first listings found
+            int[] limited = index.search(search, 3);
+            assertEquals(Math.min(3, expected.length), limited.length);
+            for (int i = 0; i < limited.length; i++) {
+                assertEquals(expected[i], limited[i]);
+            }
+        }
+    }
+
+    /**
+     * Find the listings matching a search by checking the words of every listing.
+     */
+    private int[] findByChecking(String search) {
+        String[] searchWords = search.toLowerCase().split("[^\\p{L}\\p{Nd}]+");
+        ArrayList<Integer> rows = new ArrayList<Integer>();
+        boolean empty = true;
+        for (String searchWord : searchWords) {
+            empty &= searchWord.isEmpty();
+        }
+        for (int row = 0; row < table.size() && !empty; row++) {
+            boolean matches = true;
+            for (String searchWord : searchWords) {
+                if (searchWord.isEmpty()) {
+                    continue;
+                }
+                boolean found = false;
+                for (String word : index.getWords(row)) {
+                    found |= searchWord.length() >= 3 ? word.contains(searchWord) : word.startsWith(searchWord);
+                }
+                matches &= found;
+            }
+            if (matches) {
+                rows.add(row);
+            }
+        }
+        return rows.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
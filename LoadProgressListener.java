@@ -0,0 +1,17 @@
+/**
+ * Receives progress updates from AirbnbDataLoader while the data set is being loaded. Updates may
+ * come from any of the threads parsing the csv file, so implementations must be thread safe.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public interface LoadProgressListener {
+
+    /**
+     * Called each time another batch of rows has been loaded.
+     * @param rowsLoaded The number of rows loaded so far.
+     * @param bytesLoaded The number of bytes of the csv file dealt with so far.
+     * @param totalBytes The size of the csv file in bytes.
+     */
+    void progressChanged(long rowsLoaded, long bytesLoaded, long totalBytes);
+}
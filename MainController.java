@@ -7,6 +7,11 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.CheckMenuItem;
+import javafx.scene.control.Menu;
+import javafx.scene.control.MenuButton;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.SeparatorMenuItem;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.layout.Pane;
@@ -15,9 +20,12 @@ import javafx.scene.layout.AnchorPane;
 import javafx.scene.Parent;
 import javafx.stage.Stage;
 import javafx.animation.TranslateTransition;
+import javafx.concurrent.Task;
 import javafx.util.Duration;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The main contoller class is responsible for starting and running the application. It handles core functionalities
@@ -30,12 +38,18 @@ import java.util.ArrayList;
  * @version 1.6
  */
 public class MainController extends Application {
+    // Prices which can be chosen for the price range, the lowest only as a minimum and the highest only as a maximum
+    private static final int[] PRICE_BOUNDARIES = { 0, 10, 20, 50, 100, 200, 500, 1000, 2500, 5000, 10000 };
+
     @FXML//ComboBox allows a user to select a minimum price range on the pane
     private ComboBox minimumPriceComboBox;
 
     @FXML//ComboBox allows a user to select a maximum price range on the pane
     private ComboBox maximumPriceComboBox;
 
+    @FXML//Menu of the attributes a user can filter the listings by, such as borough and room type
+    private MenuButton filterMenuButton;
+
     @FXML//Allows a user to navigate to the previous pane
     private Button leftButton;
 
@@ -45,8 +59,23 @@ public class MainController extends Application {
     @FXML//A layout pane variable which allows child nodes to be placed in the form of a stack
     private StackPane stackPane;
 
-    // A list which stores all the AirbnbListing properties
-    private ArrayList<AirbnbListing> listings;
+    // A column oriented table which stores all the AirbnbListing properties
+    private ListingTable listings;
+
+    // Index of the listings by the attributes they can be filtered by
+    private ListingFilterIndex filterIndex;
+
+    // The values the listings are currently filtered by
+    private ListingFilter filter;
+
+    // Rows of the listings matching the filter, or null if nothing is chosen
+    private RowBitmap filterRows;
+
+    // Index of the listings by where they are, for both the map and the search for the nearest listings
+    private SpatialGridIndex spatialIndex;
+
+    // Index of the names of the listings, or null until they have been indexed
+    private ListingTextIndex textIndex;
 
     // A pane for the Welcome pane
     private Pane welcomePane;
@@ -54,20 +83,20 @@ public class MainController extends Application {
     // A pane for the Welcome pane controller
     private WelcomePaneController welcomePaneController;
 
-    // A pane for the Map pane
-    private Pane mapPane;
+    // A pane for the Map pane, built the first time it is navigated to
+    private LazyPane mapPane;
 
     // A pane for the Map pane controller
     private MapPaneController mapPaneController;
 
-    // A pane for the Statistics pane
-    private Pane statisticsPane;
+    // A pane for the Statistics pane, built the first time it is navigated to
+    private LazyPane statisticsPane;
 
     // A pane for the Statistics pane controller
     private StatisticsPaneController statisticsPaneController;
 
-    // A pane for the Challenge pane
-    private Pane challengePane;
+    // A pane for the Challenge pane, built the first time it is navigated to or a place is clicked on the map
+    private LazyPane challengePane;
 
     // A pane for the Challenge pane controller
     private ChallengePaneController challengePaneController;
@@ -76,6 +105,10 @@ public class MainController extends Application {
     private Integer minPrice = null;
     private Integer maxPrice = null;
 
+    // The last valid price range chosen, passed to each pane as it is built
+    private int chosenMinPrice;
+    private int chosenMaxPrice;
+
     private Pane front;
     private Pane right;
     private Pane back;
@@ -98,32 +131,207 @@ public class MainController extends Application {
     }
 
     /**
-     * This method loads all the relevant data from the 'AirbnbDataLoader' class.
+     * This method starts loading all the relevant data from the 'AirbnbDataLoader' class in the background.
      * Get methods are used to retrieve minimum and maximum price ranges.
      * Left and right button clicks for the user are enabled by setting the setOnAction method.
      */
     @FXML
     public void initialize() {
-        // Load listings into an array
-        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
-        listings = dataLoader.load();
-
         // Add minimum price values
-        minimumPriceComboBox.getItems().addAll("£0", "£10", "£20", "£50", "£100", "£200", "£500", "£1000", "£2500", "£5000");
+        for (int i = 0; i < PRICE_BOUNDARIES.length - 1; i++) {
+            minimumPriceComboBox.getItems().add("£" + PRICE_BOUNDARIES[i]);
+        }
 
         // Add maximum price values
-        maximumPriceComboBox.getItems().addAll("£10", "£20", "£50", "£100", "£200", "£500", "£1000", "£2500", "£5000", "£10000");
+        for (int i = 1; i < PRICE_BOUNDARIES.length; i++) {
+            maximumPriceComboBox.getItems().add("£" + PRICE_BOUNDARIES[i]);
+        }
+
+        // Prices cannot be chosen until the listings have loaded
+        minimumPriceComboBox.setDisable(true);
+        maximumPriceComboBox.setDisable(true);
 
         // Set up left and right button actions
         leftButton.setOnAction(this::leftButtonClick);
         rightButton.setOnAction(this::rightButtonClick);
 
-        // Initialize all panes and then the stack pane.
+        // Initialize the welcome pane, which is shown first, and then the stack pane. The other panes are
+        // only built when they are first navigated to.
         initializeWelcomePane();
-        initializeMapPane();
-        initializeStatisticsPane();
-        initializeChallengePane();
         initializeStackPane();
+
+        // Load listings into a table without holding up the window
+        loadListings();
+
+        // Parse the layouts of the other panes in the meantime, so they are quick to build
+        preloadPanes();
+    }
+
+    /**
+     * Parse the layout files of the panes which are not shown at first on a background thread, in the
+     * order they are most likely to be navigated to.
+     */
+    private void preloadPanes() {
+        // Run on a daemon thread so it does not stop the application closing
+        ExecutorService paneLoader = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Pane loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mapPane.preload(paneLoader);
+        challengePane.preload(paneLoader);
+        statisticsPane.preload(paneLoader);
+
+        // The thread finishes once every layout has been parsed
+        paneLoader.shutdown();
+    }
+
+    /**
+     * Load and index the listings on a background thread so that the window can appear straight away.
+     * Loading progress is shown on the welcome pane.
+     */
+    private void loadListings() {
+        Task<LoadedListings> loadTask = new Task<LoadedListings>() {
+            @Override
+            protected LoadedListings call() throws IOException {
+                AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+                dataLoader.setMemoryMapped(true);
+                // Pass loading progress on to the task, which shows it on the FX thread
+                dataLoader.setProgressListener((rowsLoaded, bytesLoaded, totalBytes) -> {
+                    updateProgress(bytesLoaded, totalBytes);
+                    updateMessage("Loading properties... " + rowsLoaded + " loaded");
+                });
+                ListingTable listings = dataLoader.loadTable();
+
+                // Build the indexes here too, as they take too long to build on the FX thread
+                updateMessage("Indexing properties...");
+                return new LoadedListings(listings, new SpatialGridIndex(listings), new ListingFilterIndex(listings));
+            }
+        };
+        loadTask.setOnSucceeded(event -> listingsLoaded(loadTask.getValue()));
+        loadTask.setOnFailed(event -> loadingFailed());
+        welcomePaneController.showLoadingProgress(loadTask);
+
+        // Run the task on a daemon thread so it does not stop the application closing
+        Thread loadThread = new Thread(loadTask, "Listing loader");
+        loadThread.setDaemon(true);
+        loadThread.start();
+    }
+
+    /**
+     * Pass the loaded listings to the panes which use them and let the user choose a price range.
+     * @param loaded The loaded listings, with the indexes built from them.
+     */
+    private void listingsLoaded(LoadedListings loaded) {
+        this.listings = loaded.listings;
+
+        // The listings are indexed by where they are once, for both the map and the search for the nearest listings.
+        // The panes are given the listings as they are built, which can only happen after a price range is chosen.
+        spatialIndex = loaded.spatialIndex;
+
+        // Index the names of the listings for searching without holding up the window
+        indexListingNames(listings);
+
+        // Offer each value the listings can be filtered by in the filter menu
+        filterIndex = loaded.filterIndex;
+        filter = new ListingFilter();
+        initializeFilterMenu();
+
+        // Allow prices to be chosen
+        welcomePaneController.hideLoadingProgress();
+        minimumPriceComboBox.setDisable(false);
+        maximumPriceComboBox.setDisable(false);
+        filterMenuButton.setDisable(false);
+    }
+
+    /**
+     * Fill the filter menu with a sub menu for each attribute, holding a check item for each of its values.
+     */
+    private void initializeFilterMenu() {
+        filterMenuButton.getItems().clear();
+        for (int attribute = 0; attribute < ListingFilterIndex.ATTRIBUTE_COUNT; attribute++) {
+            Menu attributeMenu = new Menu(ListingFilterIndex.getAttributeName(attribute));
+            for (int value = 0; value < filterIndex.getValueCount(attribute); value++) {
+                CheckMenuItem valueItem = new CheckMenuItem(filterIndex.getValueName(attribute, value));
+                int itemAttribute = attribute;
+                int itemValue = value;
+                valueItem.setOnAction(event -> {
+                    filter.setChosen(itemAttribute, itemValue, valueItem.isSelected());
+                    filterModified();
+                });
+                attributeMenu.getItems().add(valueItem);
+            }
+            filterMenuButton.getItems().add(attributeMenu);
+        }
+
+        // Clear every choice at once
+        MenuItem clearItem = new MenuItem("Clear filters");
+        clearItem.setOnAction(event -> {
+            filter.clear();
+            for (MenuItem attributeMenu : filterMenuButton.getItems()) {
+                if (attributeMenu instanceof Menu) {
+                    for (MenuItem valueItem : ((Menu) attributeMenu).getItems()) {
+                        ((CheckMenuItem) valueItem).setSelected(false);
+                    }
+                }
+            }
+            filterModified();
+        });
+        filterMenuButton.getItems().addAll(new SeparatorMenuItem(), clearItem);
+    }
+
+    /**
+     * Find the listings matching the filter, and show only those in the statistics and on the map.
+     */
+    private void filterModified() {
+        // Show how many values are chosen on the menu button
+        int choices = filter.getChoiceCount();
+        filterMenuButton.setText(choices == 0 ? "Filters" : "Filters (" + choices + ")");
+
+        // Combine the rows of the values chosen, which is null if nothing is chosen
+        filterRows = filterIndex.getRows(filter);
+        if (mapPane.isBuilt()) {
+            mapPaneController.setFilter(filterRows);
+        }
+        if (statisticsPane.isBuilt()) {
+            statisticsPaneController.setFilter(filterRows);
+            statisticsPaneController.requestStatisticsUpdate();
+        }
+    }
+
+    /**
+     * Index the names and host names of the listings on a background thread, allowing them to be searched once done.
+     * @param listings The loaded listings.
+     */
+    private void indexListingNames(ListingTable listings) {
+        Task<ListingTextIndex> indexTask = new Task<ListingTextIndex>() {
+            @Override
+            protected ListingTextIndex call() {
+                return new ListingTextIndex(listings);
+            }
+        };
+        indexTask.setOnSucceeded(event -> {
+            textIndex = indexTask.getValue();
+            if (challengePane.isBuilt()) {
+                challengePaneController.addTextIndex(textIndex);
+            }
+        });
+
+        // Run the task on a daemon thread so it does not stop the application closing
+        Thread indexThread = new Thread(indexTask, "Listing name indexer");
+        indexThread.setDaemon(true);
+        indexThread.start();
+    }
+
+    /**
+     * Display an error message if the listings could not be loaded.
+     */
+    private void loadingFailed() {
+        welcomePaneController.hideLoadingProgress();
+        Alert alert = new Alert(AlertType.ERROR);
+        alert.setTitle("Loading failed");
+        alert.setContentText("The property listings could not be loaded.");
+        alert.showAndWait();
     }
 
     /**
@@ -166,8 +374,25 @@ public class MainController extends Application {
                 int minPriceValue = Integer.parseInt(minPrice.substring(1, minPrice.length()));
                 int maxPriceValue = Integer.parseInt(maxPrice.substring(1, maxPrice.length()));
 
-                // Update statistics for this price range
-                statisticsPaneController.updateStatisticsValues(minPriceValue, maxPriceValue);
+                // Remember the price range for the panes which have not been built yet
+                chosenMinPrice = minPriceValue;
+                chosenMaxPrice = maxPriceValue;
+
+                // Update statistics for this price range in the background, so that changing the range
+                // quickly only calculates the statistics of the last range chosen
+                if (statisticsPane.isBuilt()) {
+                    statisticsPaneController.requestStatisticsUpdate(minPriceValue, maxPriceValue);
+                }
+
+                // Show the listings in this price range on the map
+                if (mapPane.isBuilt()) {
+                    mapPaneController.updatePriceRange(minPriceValue, maxPriceValue);
+                }
+
+                // Find the nearest listings in this price range
+                if (challengePane.isBuilt()) {
+                    challengePaneController.updatePriceRange(minPriceValue, maxPriceValue);
+                }
 
                 // Enable navigation buttons if not already enabled
                 if (buttonsDisabled) {
@@ -206,6 +431,9 @@ public class MainController extends Application {
      * On left button click action. Create transitions between different panes.
      */
     private void leftButtonClick(ActionEvent event) {
+        // Build the pane coming to the front if this is the first time it is shown
+        buildPane((Pane) stackPane.getChildren().get(0));
+
         // Get new front, back, left, right panes for left turn
         front = (Pane) stackPane.getChildren().get(0);
         left  = (Pane) stackPane.getChildren().get(1);
@@ -246,6 +474,9 @@ public class MainController extends Application {
     }
 
     private void rightButtonClick(ActionEvent event) {
+        // Build the pane coming to the front if this is the first time it is shown
+        buildPane((Pane) stackPane.getChildren().get(2));
+
         // Get new front, back, left, right panes for left turn
         back  = (Pane) stackPane.getChildren().get(0);
         right = (Pane) stackPane.getChildren().get(1);
@@ -302,59 +533,83 @@ public class MainController extends Application {
     }
 
     /**
-     * Initialize map pane with it's layout file.
+     * Build a pane if it has not been built yet.
+     * @param pane The pane about to be shown.
      */
-    private void initializeMapPane() {
-        // Try loading FXML, otherwise raise exception
-        try {
-            // Load FXML file and get the controller for the stage
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(getClass().getResource("MapPane.fxml"));
-            mapPane = (AnchorPane) loader.load();
-            mapPaneController = loader.getController();
+    private void buildPane(Pane pane) {
+        if (pane == mapPane) {
+            buildMapPane();
+        } else if (pane == statisticsPane) {
+            buildStatisticsPane();
+        } else if (pane == challengePane) {
+            buildChallengePane();
+        }
+    }
 
-        } catch (IOException e) {
+    /**
+     * Build the map pane if it has not been built yet, and show the listings in the price range chosen on it.
+     */
+    private void buildMapPane() {
+        if (mapPane.build()) {
+            mapPaneController = mapPane.getController();
+            mapPaneController.addListings(spatialIndex);
+            mapPaneController.setFilter(filterRows);
+            mapPaneController.updatePriceRange(chosenMinPrice, chosenMaxPrice);
+
+            // Clicking a place on the map finds the listings nearest to it
+            mapPaneController.setOnPlaceClicked(this::placeClicked);
         }
     }
 
     /**
-     * Initialize statistics pane with it's layout file
+     * Build the statistics pane if it has not been built yet, and show the statistics of the price range chosen.
      */
-    private void initializeStatisticsPane() {
-        // Try loading FXML, otherwise raise exception
-        try {
-            // Load FXML file and get the controller for the stage
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(getClass().getResource("StatisticsPane.fxml"));
-            statisticsPane = (AnchorPane) loader.load();
-            statisticsPaneController = loader.getController();
+    private void buildStatisticsPane() {
+        if (statisticsPane.build()) {
+            statisticsPaneController = statisticsPane.getController();
 
-            // Add reference to listings array for generating statistics
+            // Add reference to listings table for generating statistics
             statisticsPaneController.addListings(listings);
-        } catch (IOException e) {
+            statisticsPaneController.setFilter(filterRows);
+            statisticsPaneController.requestStatisticsUpdate(chosenMinPrice, chosenMaxPrice);
         }
     }
 
     /**
-     * Initialize challenge pane with it's layout file
+     * Build the challenge pane if it has not been built yet, and allow the listings to be searched.
      */
-    private void initializeChallengePane() {
-        // Try loading FXML, otherwise raise exception
-        try {
-            // Load FXML file and get the controller for the stage
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(getClass().getResource("ChallengePane.fxml"));
-            challengePane = (AnchorPane) loader.load();
-            challengePaneController = loader.getController();
-
-        } catch (IOException e) {
+    private void buildChallengePane() {
+        if (challengePane.build()) {
+            challengePaneController = challengePane.getController();
+            challengePaneController.addListings(spatialIndex);
+            challengePaneController.updatePriceRange(chosenMinPrice, chosenMaxPrice);
+
+            // The names may still be being indexed, in which case they are added once done
+            if (textIndex != null) {
+                challengePaneController.addTextIndex(textIndex);
+            }
         }
     }
 
+    /**
+     * Find the listings nearest to a place clicked on the map, ready to be shown on the challenge pane.
+     * @param latitude The latitude of the place.
+     * @param longitude The longitude of the place.
+     */
+    private void placeClicked(double latitude, double longitude) {
+        buildChallengePane();
+        challengePaneController.searchNear(latitude, longitude);
+    }
+
     /**
      * Initialize stack pane with all the panes in order and in correct relative positions
      */
     private void initializeStackPane() {
+        // Create the other panes empty, to be built from their layout files when first shown
+        mapPane = new LazyPane(getClass().getResource("MapPane.fxml"));
+        statisticsPane = new LazyPane(getClass().getResource("StatisticsPane.fxml"));
+        challengePane = new LazyPane(getClass().getResource("ChallengePane.fxml"));
+
         // Add panes to stack pane in reverse order of priority
         stackPane.getChildren().add(challengePane);
         stackPane.getChildren().add(statisticsPane);
@@ -367,4 +622,30 @@ public class MainController extends Application {
         mapPane.setVisible(true);
         welcomePane.setVisible(true);
     }
+
+    /**
+     * The listings loaded in the background, with the indexes built from them.
+     */
+    private static class LoadedListings {
+        // A column oriented table which stores all the AirbnbListing properties
+        private final ListingTable listings;
+
+        // Index of the listings by where they are
+        private final SpatialGridIndex spatialIndex;
+
+        // Index of the listings by the attributes they can be filtered by
+        private final ListingFilterIndex filterIndex;
+
+        /**
+         * Create the result of loading the listings.
+         * @param listings The loaded listings.
+         * @param spatialIndex Index of the listings by where they are.
+         * @param filterIndex Index of the listings by the attributes they can be filtered by.
+         */
+        private LoadedListings(ListingTable listings, SpatialGridIndex spatialIndex, ListingFilterIndex filterIndex) {
+            this.listings = listings;
+            this.spatialIndex = spatialIndex;
+            this.filterIndex = filterIndex;
+        }
+    }
 }
@@ -1,16 +1,53 @@
+import javafx.animation.AnimationTimer;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Label;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+import javafx.geometry.VPos;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
 
 /**
- * Write a description of JavaFX class WelcomePanel here.
+ * This class represents the map of the listings within the selected price range. The listings are
+ * indexed by where they are when they are added, so that the listings in any part of the map can be
+ * found without going through every listing.
  *
- * @author (your name)
- * @version (a version number or a date)
+ * The map is drawn on a single canvas rather than with a node for each listing, and can be dragged
+ * to pan and scrolled to zoom. When more listings are in view than can be told apart, nearby listings
+ * are drawn as one cluster showing how many listings it holds; zooming in far enough shows each
+ * listing on its own. The map is only drawn again once per frame however many changes are made to it.
+ * Underneath the listings, a layer of tiles drawn on background threads shows how densely packed they are.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
  */
 public class MapPaneController
 {
+    // Size in pixels of the cells listings are clustered by
+    private static final int CLUSTER_CELL_SIZE = 48;
+
+    // Largest number of listings in view which are drawn one by one rather than as clusters
+    private static final int POINT_LIMIT = 1500;
+
+    // Diameter in pixels of a single listing
+    private static final double POINT_SIZE = 6;
+
+    // How much one step of the mouse wheel zooms
+    private static final double ZOOM_STEP = 1.2;
+
+    // Colour of clusters, and of single listings of each room type in the order of the room type codes
+    private static final Color CLUSTER_COLOR = Color.rgb(200, 60, 60, 0.75);
+    private static final Color[] ROOM_TYPE_COLORS = { Color.rgb(200, 60, 60), Color.rgb(60, 110, 200),
+        Color.rgb(60, 160, 90), Color.rgb(150, 90, 180) };
+
     @FXML
     private Label minimumPrice;
 
@@ -20,11 +57,123 @@ public class MapPaneController
     @FXML
     private HBox priceRange;
 
+    // Area the map is shown in, and the canvas it is drawn on
+    @FXML
+    private Pane mapArea;
+
+    @FXML
+    private Canvas mapCanvas;
+
+    // Instructions shown until a price range is chosen
+    @FXML
+    private Text instructions;
+
+    // Index of the listings by latitude and longitude
+    private SpatialGridIndex spatialIndex;
+
+    // Tiles showing the density of listings, drawn in the background
+    private HeatTileLayer heatLayer;
+
+    // Minimum and maximum price to filter by
+    private int minPrice;
+    private int maxPrice;
+
+    // Rows of the listings matching the filter, or null to show every listing
+    private RowBitmap filter;
+
+    // Part of the map in view
+    private MapViewport viewport;
+
+    // Whether the view should be fitted to the listings the next time the map is drawn
+    private boolean fitNeeded;
+
+    // Listings in view, gathered into clusters each time the map is drawn
+    private ListingClusters clusters;
+
+    // Whether the map has changed since it was last drawn
+    private boolean redrawNeeded;
+
+    // Position of the mouse at the last drag event
+    private double dragX;
+    private double dragY;
+
+    // Called with the latitude and longitude of a place clicked on the map without dragging it
+    private BiConsumer<Double, Double> placeClicked = (latitude, longitude) -> { };
+
     @FXML
     private void initialize() {
         priceRange.setVisible(false);
+
+        viewport = new MapViewport();
+        clusters = new ListingClusters(CLUSTER_CELL_SIZE);
+
+        // Keep the canvas the size of the area it is shown in
+        mapArea.widthProperty().addListener((observable, oldWidth, newWidth) -> resizeMap());
+        mapArea.heightProperty().addListener((observable, oldHeight, newHeight) -> resizeMap());
+
+        // Drag to pan and scroll to zoom
+        mapCanvas.setOnMousePressed(this::mousePressed);
+        mapCanvas.setOnMouseDragged(this::mouseDragged);
+        mapCanvas.setOnScroll(this::scrolled);
+        mapCanvas.setOnMouseClicked(this::mouseClicked);
+
+        // Draw the map at most once per frame, only when it has changed
+        AnimationTimer redrawTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (redrawNeeded) {
+                    redrawNeeded = false;
+                    drawMap();
+                }
+            }
+        };
+
+        // Only draw while the map is in a window, which also means the timer is started on the FX thread
+        // even if the pane is loaded on another
+        mapCanvas.sceneProperty().addListener((observable, oldScene, newScene) -> {
+            if (newScene != null) {
+                redrawTimer.start();
+            } else {
+                redrawTimer.stop();
+            }
+        });
+    }
+
+    /**
+     * Add the table of listings, indexing them by where they are.
+     * @param table Table of listings to show on the map.
+     */
+    public void addListings(ListingTable table) {
+        addListings(new SpatialGridIndex(table));
+    }
+
+    /**
+     * Add the listings, already indexed by where they are.
+     * @param spatialIndex Index of the listings to show on the map.
+     */
+    public void addListings(SpatialGridIndex spatialIndex) {
+        this.spatialIndex = spatialIndex;
+
+        // Stop drawing tiles of any listings shown before, and draw the map again as each new tile is ready
+        if (heatLayer != null) {
+            heatLayer.shutdown();
+        }
+        heatLayer = new HeatTileLayer(this.spatialIndex, () -> redrawNeeded = true);
+
+        // A filter of any listings shown before does not apply to these
+        filter = null;
+        fitNeeded = true;
+        redrawNeeded = true;
+    }
+
+    /**
+     * Set what happens when a place on the map is clicked without dragging the map.
+     * @param placeClicked Called with the latitude and longitude clicked.
+     */
+    public void setOnPlaceClicked(BiConsumer<Double, Double> placeClicked) {
+        this.placeClicked = placeClicked;
     }
-    
+
     public void updatePriceLabel(String minPrice, String maxPrice)
     {
         minimumPrice.setText(minPrice);
@@ -33,4 +182,170 @@ public class MapPaneController
 
     }
 
+    /**
+     * Update the price range of the listings shown on the map.
+     * @param minPrice The minimum price for the price range.
+     * @param maxPrice The maximum price for the price range.
+     */
+    public void updatePriceRange(int minPrice, int maxPrice) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+
+        // Replace the instructions with the map
+        instructions.setVisible(false);
+        mapArea.setVisible(true);
+        redrawNeeded = true;
+    }
+
+    /**
+     * Limit the listings shown on the map to a set, such as those matching a filter.
+     * @param filter The rows of the listings to show, or null to show every listing.
+     */
+    public void setFilter(RowBitmap filter) {
+        this.filter = filter;
+        if (heatLayer != null) {
+            heatLayer.setFilter(filter);
+        }
+        redrawNeeded = true;
+    }
+
+    /**
+     * Get the listings within the current price range and filter in a part of the map.
+     * @param south The lowest latitude in view.
+     * @param west The lowest longitude in view.
+     * @param north The highest latitude in view.
+     * @param east The highest longitude in view.
+     * @return The table rows of the listings, or an empty array if no listings have been added.
+     */
+    public int[] getVisibleRows(double south, double west, double north, double east) {
+        if (spatialIndex == null) {
+            return new int[0];
+        }
+        int[] rows = spatialIndex.getRows(south, west, north, east, minPrice, maxPrice);
+        if (filter == null) {
+            return rows;
+        }
+        return Arrays.stream(rows).filter(filter::contains).toArray();
+    }
+
+    /**
+     * Resize the canvas and the view to fill the map area.
+     */
+    private void resizeMap() {
+        mapCanvas.setWidth(mapArea.getWidth());
+        mapCanvas.setHeight(mapArea.getHeight());
+        viewport.setSize(mapArea.getWidth(), mapArea.getHeight());
+        redrawNeeded = true;
+    }
+
+    /**
+     * Remember where a drag starts.
+     */
+    private void mousePressed(MouseEvent event) {
+        dragX = event.getX();
+        dragY = event.getY();
+    }
+
+    /**
+     * Pan the map by how far the mouse has been dragged.
+     */
+    private void mouseDragged(MouseEvent event) {
+        viewport.pan(event.getX() - dragX, event.getY() - dragY);
+        dragX = event.getX();
+        dragY = event.getY();
+        redrawNeeded = true;
+    }
+
+    /**
+     * Pass on the position clicked, unless the mouse moved while it was held down to drag the map.
+     */
+    private void mouseClicked(MouseEvent event) {
+        if (event.isStillSincePress() && spatialIndex != null) {
+            placeClicked.accept(viewport.getLatitude(event.getY()), viewport.getLongitude(event.getX()));
+        }
+    }
+
+    /**
+     * Zoom the map around the mouse.
+     */
+    private void scrolled(ScrollEvent event) {
+        if (event.getDeltaY() != 0) {
+            viewport.zoom(event.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP, event.getX(), event.getY());
+            redrawNeeded = true;
+        }
+    }
+
+    /**
+     * Draw the listings within the price range which are in view.
+     */
+    private void drawMap() {
+        GraphicsContext graphics = mapCanvas.getGraphicsContext2D();
+        graphics.clearRect(0, 0, mapCanvas.getWidth(), mapCanvas.getHeight());
+        if (spatialIndex == null || viewport.getWidth() <= 0 || viewport.getHeight() <= 0) {
+            return;
+        }
+        if (fitNeeded) {
+            viewport.fit(spatialIndex.getMinLatitude(), spatialIndex.getMinLongitude(),
+                spatialIndex.getMaxLatitude(), spatialIndex.getMaxLongitude());
+            fitNeeded = false;
+        }
+
+        // Copy the density tiles which are ready, leaving the rest to be drawn in the background
+        heatLayer.draw(graphics, viewport, minPrice, maxPrice);
+
+        // Gather only the listings in view, straight from the index, leaving out any not matching the filter
+        clusters.reset(spatialIndex.getTable(), viewport, POINT_LIMIT);
+        RowBitmap rows = filter;
+        spatialIndex.visitRows(viewport.getSouth(), viewport.getWest(), viewport.getNorth(), viewport.getEast(),
+            minPrice, maxPrice, rows == null ? clusters : row -> {
+                if (rows.contains(row)) {
+                    clusters.accept(row);
+                }
+            });
+
+        if (clusters.isClustered()) {
+            drawClusters(graphics);
+        } else {
+            drawPoints(graphics);
+        }
+    }
+
+    /**
+     * Draw each cell holding listings as a circle sized by how many listings it holds, labelled with the count.
+     */
+    private void drawClusters(GraphicsContext graphics) {
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.CENTER);
+        for (int cell = 0; cell < clusters.getCellCount(); cell++) {
+            int count = clusters.getCount(cell);
+            if (count == 0) {
+                continue;
+            }
+            double radius = Math.min(CLUSTER_CELL_SIZE / 2.0, POINT_SIZE / 2 + 4 * Math.log10(count + 1));
+            graphics.setFill(CLUSTER_COLOR);
+            graphics.fillOval(clusters.getClusterX(cell) - radius, clusters.getClusterY(cell) - radius,
+                2 * radius, 2 * radius);
+            if (count > 1) {
+                graphics.setFill(Color.WHITE);
+                graphics.fillText(Integer.toString(count), clusters.getClusterX(cell), clusters.getClusterY(cell));
+            }
+        }
+    }
+
+    /**
+     * Draw each listing as a dot coloured by its room type, one colour at a time.
+     */
+    private void drawPoints(GraphicsContext graphics) {
+        ListingTable table = spatialIndex.getTable();
+        for (int roomType = 0; roomType < table.getRoomTypes().size(); roomType++) {
+            graphics.setFill(ROOM_TYPE_COLORS[roomType % ROOM_TYPE_COLORS.length]);
+            for (int point = 0; point < clusters.getPointCount(); point++) {
+                if (table.getRoomTypeCode(clusters.getPointRow(point)) == roomType) {
+                    graphics.fillOval(clusters.getPointX(point) - POINT_SIZE / 2,
+                        clusters.getPointY(point) - POINT_SIZE / 2, POINT_SIZE, POINT_SIZE);
+                }
+            }
+        }
+    }
+
 }
@@ -0,0 +1,171 @@
+/**
+ * The part of the map in view, and the conversion between latitude and longitude and pixels on the
+ * screen. Over an area the size of a city the curve of the earth hardly matters, so the map is drawn
+ * as a flat grid with a degree of longitude shrunk by the cosine of the latitude, which keeps distances
+ * in every direction in proportion.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class MapViewport {
+
+    // Range of zoom allowed, in pixels per degree of latitude
+    private static final double MINIMUM_SCALE = 10;
+    private static final double MAXIMUM_SCALE = 1e7;
+
+    // Position at the centre of the view
+    private double centerLatitude;
+    private double centerLongitude;
+
+    // Pixels per degree of latitude
+    private double scale = MINIMUM_SCALE;
+
+    // Width of a degree of longitude compared to a degree of latitude
+    private double longitudeRatio = 1;
+
+    // Size of the view in pixels
+    private double width;
+    private double height;
+
+    /**
+     * Change the size of the view, keeping the same position at its centre.
+     * @param width The width in pixels.
+     * @param height The height in pixels.
+     */
+    public void setSize(double width, double height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Move and zoom the view so that a rectangle just fits in it.
+     * @param south The lowest latitude of the rectangle.
+     * @param west The lowest longitude of the rectangle.
+     * @param north The highest latitude of the rectangle.
+     * @param east The highest longitude of the rectangle.
+     */
+    public void fit(double south, double west, double north, double east) {
+        centerLatitude = (south + north) / 2;
+        centerLongitude = (west + east) / 2;
+        longitudeRatio = Math.cos(Math.toRadians(centerLatitude));
+        double latitudeScale = height / Math.max(north - south, 1e-9);
+        double longitudeScale = width / (Math.max(east - west, 1e-9) * longitudeRatio);
+        scale = clampScale(Math.min(latitudeScale, longitudeScale));
+    }
+
+    /**
+     * Move the view by a number of pixels, as if dragging the map.
+     * @param dx Pixels to move the map right.
+     * @param dy Pixels to move the map down.
+     */
+    public void pan(double dx, double dy) {
+        centerLongitude -= dx / (scale * longitudeRatio);
+        centerLatitude += dy / scale;
+    }
+
+    /**
+     * Zoom the view, keeping the position under a point on the screen in the same place.
+     * @param factor How much larger the map should appear, less than 1 to zoom out.
+     * @param x The horizontal pixel to zoom around.
+     * @param y The vertical pixel to zoom around.
+     */
+    public void zoom(double factor, double x, double y) {
+        double latitude = getLatitude(y);
+        double longitude = getLongitude(x);
+        scale = clampScale(scale * factor);
+        // Move the centre so the position zoomed around is back under the same pixel
+        centerLatitude += latitude - getLatitude(y);
+        centerLongitude += longitude - getLongitude(x);
+    }
+
+    /**
+     * @return The horizontal pixel of a longitude.
+     */
+    public double getX(double longitude) {
+        return (longitude - centerLongitude) * scale * longitudeRatio + width / 2;
+    }
+
+    /**
+     * @return The vertical pixel of a latitude.
+     */
+    public double getY(double latitude) {
+        return (centerLatitude - latitude) * scale + height / 2;
+    }
+
+    /**
+     * @return The longitude at a horizontal pixel.
+     */
+    public double getLongitude(double x) {
+        return centerLongitude + (x - width / 2) / (scale * longitudeRatio);
+    }
+
+    /**
+     * @return The latitude at a vertical pixel.
+     */
+    public double getLatitude(double y) {
+        return centerLatitude - (y - height / 2) / scale;
+    }
+
+    /**
+     * @return The lowest latitude in view.
+     */
+    public double getSouth() {
+        return getLatitude(height);
+    }
+
+    /**
+     * @return The highest latitude in view.
+     */
+    public double getNorth() {
+        return getLatitude(0);
+    }
+
+    /**
+     * @return The lowest longitude in view.
+     */
+    public double getWest() {
+        return getLongitude(0);
+    }
+
+    /**
+     * @return The highest longitude in view.
+     */
+    public double getEast() {
+        return getLongitude(width);
+    }
+
+    /**
+     * @return The width of the view in pixels.
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The height of the view in pixels.
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The zoom of the view, in pixels per degree of latitude.
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * @return The width of a degree of longitude compared to a degree of latitude.
+     */
+    public double getLongitudeRatio() {
+        return longitudeRatio;
+    }
+
+    /**
+     * Keep a zoom within the range allowed.
+     */
+    private static double clampScale(double scale) {
+        return Math.max(MINIMUM_SCALE, Math.min(MAXIMUM_SCALE, scale));
+    }
+}
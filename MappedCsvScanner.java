@@ -0,0 +1,407 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Splits csv rows held in a byte buffer, usually a memory mapped region of the csv file, into fields
+ * without creating a String for every cell. Each call to nextRow() records where each field of the
+ * next row starts and ends in the buffer. Numeric fields can then be decoded straight from the bytes
+ * with getInt and getDouble, and only the text fields which are actually needed are turned into
+ * Strings with getString.
+ *
+ * The quoting rules follow those of the opencsv parser used by AirbnbDataLoader, so fields are split
+ * and unescaped in the same way: a quote starts and ends a quoted section, two quotes inside a field
+ * stand for one quote, a backslash escapes a following quote or backslash, and a line break inside a
+ * quoted section is part of the field. Fields which contain any of these are copied into a scratch
+ * array as they are unescaped; all other fields are read directly from the buffer.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class MappedCsvScanner {
+
+    // Powers of ten which can be represented exactly as a double
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Largest integer below which every long can be represented exactly as a double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // Bytes of the csv text
+    private ByteBuffer buffer;
+
+    // Position of the next byte to read and the position the text ends at
+    private int position;
+    private int limit;
+
+    // Character set used to decode text fields
+    private Charset charset;
+
+    // Number of fields in the current row
+    private int fieldCount;
+
+    // Start and end of each field of the current row, either in the buffer or in the scratch array
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    private boolean[] fieldInScratch;
+
+    // Unescaped bytes of the fields of the current row which could not be read directly
+    private byte[] scratch;
+    private int scratchLength;
+
+    // Position in the scratch array where the field being copied starts
+    private int scratchFieldStart;
+
+    // Reusable array used to copy field bytes out of the buffer when creating a String
+    private byte[] text;
+
+    /**
+     * Create a scanner over part of a buffer.
+     * @param buffer The buffer holding the csv text.
+     * @param start The position of the first byte of the first row.
+     * @param end The position just after the last byte of the last row.
+     * @param charset The character set the text is encoded with.
+     */
+    public MappedCsvScanner(ByteBuffer buffer, int start, int end, Charset charset) {
+        this.buffer = buffer;
+        this.position = start;
+        this.limit = end;
+        this.charset = charset;
+        fieldStarts = new int[16];
+        fieldEnds = new int[16];
+        fieldInScratch = new boolean[16];
+        scratch = new byte[256];
+        text = new byte[256];
+    }
+
+    /**
+     * Move on to the next row, skipping any blank lines.
+     * @return True if there was another row, false if the end of the text has been reached.
+     */
+    public boolean nextRow() {
+        // Skip blank lines between rows
+        while (position < limit && (buffer.get(position) == '\n' || buffer.get(position) == '\r')) {
+            position++;
+        }
+        if (position >= limit) {
+            return false;
+        }
+
+        fieldCount = 0;
+        scratchLength = 0;
+
+        // Quoting state of the parser
+        boolean inQuotes = false;
+        boolean inField = false;
+
+        // Details of the field being read
+        int start = position;
+        boolean copying = false;
+        int lineStart = position;
+
+        while (position < limit) {
+            byte c = buffer.get(position);
+
+            if (c == '\\') {
+                // A backslash escapes a following quote or backslash, and is otherwise dropped
+                if (!copying) {
+                    copying = startCopying(start, position);
+                }
+                position++;
+                if ((inQuotes || inField) && position < limit
+                        && (buffer.get(position) == '"' || buffer.get(position) == '\\')) {
+                    appendScratch(buffer.get(position));
+                    position++;
+                }
+            } else if (c == '"') {
+                if (!copying) {
+                    copying = startCopying(start, position);
+                }
+                position++;
+                if ((inQuotes || inField) && position < limit && buffer.get(position) == '"') {
+                    // Two quotes stand for a single quote
+                    appendScratch((byte) '"');
+                    position++;
+                } else {
+                    inQuotes = !inQuotes;
+                    // A quote in the middle of text, rather than next to a separator, is kept
+                    int column = position - lineStart;
+                    if (column > 3 && buffer.get(position - 2) != ','
+                            && position < limit && !isLineEnd(buffer.get(position)) && buffer.get(position) != ',') {
+                        if (scratchLength > scratchFieldStart && isWhitespace(scratchFieldStart, scratchLength)) {
+                            // Leading white space before a quote is ignored
+                            scratchLength = scratchFieldStart;
+                        } else {
+                            appendScratch((byte) '"');
+                        }
+                    }
+                }
+                inField = !inField;
+            } else if (c == ',' && !inQuotes) {
+                endField(start, position, copying);
+                position++;
+                start = position;
+                copying = false;
+                inField = false;
+            } else if (isLineEnd(c)) {
+                int lineEnd = position;
+                // A line ends with a line feed, optionally preceded by a carriage return
+                if (c == '\r' && position + 1 < limit && buffer.get(position + 1) == '\n') {
+                    position++;
+                }
+                position++;
+                if (!inQuotes) {
+                    endField(start, lineEnd, copying);
+                    return true;
+                }
+                // Inside quotes the line break is part of the field
+                if (!copying) {
+                    copying = startCopying(start, lineEnd);
+                }
+                appendScratch((byte) '\n');
+                lineStart = position;
+            } else {
+                if (copying) {
+                    appendScratch(c);
+                }
+                position++;
+                inField = true;
+            }
+        }
+
+        // The last row may not end with a line break
+        endField(start, position, copying);
+        return true;
+    }
+
+    /**
+     * @return The number of fields in the current row.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Decode a field of the current row as text.
+     * @param field The index of the field.
+     * @return The text of the field.
+     */
+    public String getString(int field) {
+        checkField(field);
+        int length = fieldEnds[field] - fieldStarts[field];
+        if (fieldInScratch[field]) {
+            return new String(scratch, fieldStarts[field], length, charset);
+        }
+        if (text.length < length) {
+            text = new byte[Math.max(length, text.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            text[i] = buffer.get(fieldStarts[field] + i);
+        }
+        return new String(text, 0, length, charset);
+    }
+
+    /**
+     * Decode a field of the current row as an int, in the same way as AirbnbDataLoader.convertInt.
+     * @param field The index of the field.
+     * @return The value of the field, or -1 if the field is empty or just white space.
+     */
+    public int getInt(int field) {
+        checkField(field);
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (isBlank(field)) {
+            return -1;
+        }
+
+        // Read the digits directly, handing anything unusual to Integer.parseInt
+        boolean negative = false;
+        int i = start;
+        byte first = byteAt(field, i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        long value = 0;
+        if (i == end || end - i > 10 || fieldInScratch[field]) {
+            return Integer.parseInt(getString(field));
+        }
+        for (; i < end; i++) {
+            int digit = byteAt(field, i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(getString(field));
+            }
+            value = value * 10 + digit;
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return Integer.parseInt(getString(field));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Decode a field of the current row as a double, in the same way as AirbnbDataLoader.convertDouble.
+     * Plain decimals with up to fifteen significant digits are decoded directly, which gives exactly
+     * the same result as Double.parseDouble; anything else is handed to Double.parseDouble.
+     * @param field The index of the field.
+     * @return The value of the field, or -1.0 if the field is empty or just white space.
+     */
+    public double getDouble(int field) {
+        checkField(field);
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (isBlank(field)) {
+            return -1.0;
+        }
+        if (fieldInScratch[field]) {
+            return Double.parseDouble(getString(field));
+        }
+
+        boolean negative = false;
+        int i = start;
+        byte first = byteAt(field, i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        // Read the digits into a whole number, counting how many came after the decimal point
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            byte c = byteAt(field, i);
+            if (c == '.' && !point) {
+                point = true;
+            } else if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (point) {
+                    decimals++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Double.parseDouble(getString(field));
+                }
+            } else {
+                return Double.parseDouble(getString(field));
+            }
+        }
+        if (digits == 0 || decimals >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(getString(field));
+        }
+
+        // Both values are exact, so a single division gives the correctly rounded result
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return The position in the buffer just after the current row.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Check whether a field is empty or only holds white space.
+     */
+    private boolean isBlank(int field) {
+        for (int i = fieldStarts[field]; i < fieldEnds[field]; i++) {
+            if ((byteAt(field, i) & 0xff) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get a byte of a field from wherever the field is stored.
+     */
+    private byte byteAt(int field, int index) {
+        return fieldInScratch[field] ? scratch[index] : buffer.get(index);
+    }
+
+    /**
+     * Make sure a field exists in the current row.
+     */
+    private void checkField(int field) {
+        if (field >= fieldCount) {
+            throw new ArrayIndexOutOfBoundsException(field);
+        }
+    }
+
+    /**
+     * Record the end of a field.
+     * @param start Position of the start of the field in the buffer.
+     * @param end Position of the end of the field in the buffer.
+     * @param copying Whether the field has been copied into the scratch array.
+     */
+    private void endField(int start, int end, boolean copying) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            fieldInScratch = Arrays.copyOf(fieldInScratch, fieldCount * 2);
+        }
+        if (copying) {
+            fieldStarts[fieldCount] = scratchFieldStart;
+            fieldEnds[fieldCount] = scratchLength;
+            fieldInScratch[fieldCount] = true;
+            // The next field copied to the scratch array starts here
+            scratchFieldStart = scratchLength;
+        } else {
+            fieldStarts[fieldCount] = start;
+            fieldEnds[fieldCount] = end;
+            fieldInScratch[fieldCount] = false;
+        }
+        fieldCount++;
+    }
+
+    /**
+     * Start copying the field being read into the scratch array, beginning with the bytes read so far.
+     * @param start Position of the start of the field in the buffer.
+     * @param end Position in the buffer up to which the field has been read.
+     * @return Always true, so the caller can record that the field is now being copied.
+     */
+    private boolean startCopying(int start, int end) {
+        scratchFieldStart = scratchLength;
+        for (int i = start; i < end; i++) {
+            appendScratch(buffer.get(i));
+        }
+        return true;
+    }
+
+    /**
+     * Add a byte to the end of the scratch array.
+     */
+    private void appendScratch(byte b) {
+        if (scratchLength == scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratch.length * 2);
+        }
+        scratch[scratchLength++] = b;
+    }
+
+    /**
+     * Check whether part of the scratch array only holds white space.
+     */
+    private boolean isWhitespace(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(scratch[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether a byte ends a line.
+     */
+    private static boolean isLineEnd(byte c) {
+        return c == '\n' || c == '\r';
+    }
+}
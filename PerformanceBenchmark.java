@@ -0,0 +1,360 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Benchmarks of loading the listings, calculating their statistics and filtering them, so that the
+ * effect of a change on performance can be checked against numbers. The benchmarks run from the command
+ * line without JavaFX, for data sets of each number of rows given:
+ *
+ *     java PerformanceBenchmark 50000 500000
+ *
+ * A data set of each size is written to a temporary file by the SyntheticDataGenerator, always from the
+ * same seed so that every run benchmarks the same listings. Every benchmark is run a few times to warm
+ * up before it is measured. Along with the time taken, each benchmark reports the memory allocated by
+ * every thread and the garbage collections made while it was measured, much like a garbage collection
+ * profiler would.
+ *
+ * Loading reports the rows and bytes loaded per second for each way the loader can parse the file, and
+ * for streaming the file straight into the statistics without loading it.
+ * Statistics report how long calculating the statistics of every borough takes as the price range moves
+ * through every range the combo boxes allow, both for every listing and limited to each borough in turn.
+ * Filtering reports how long finding the listings matching some typical filters takes.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class PerformanceBenchmark {
+
+    // Numbers of rows benchmarked if none are given
+    private static final int[] DEFAULT_SIZES = { 50000, 500000 };
+
+    // Number of times each benchmark is run before and while it is measured
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+
+    // Number of times each filter is resolved in one iteration, as each takes very little time
+    private static final int FILTER_REPETITIONS = 200;
+
+    // Prices the price range can start and end on, as offered by the main window
+    private static final int[] PRICE_BOUNDARIES = { 0, 10, 20, 50, 100, 200, 500, 1000, 2500, 5000, 10000 };
+
+    // Seed for the order the price ranges are visited in and for the listings, so that every run is the same
+    private static final long RANGE_SEED = 42;
+    private static final long DATA_SEED = 1;
+
+    // Console output, kept while the loader's own messages are hidden
+    private static final PrintStream out = System.out;
+
+    /**
+     * Run every benchmark for each data set size.
+     * @param args The numbers of rows to benchmark, or none for the default sizes.
+     */
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length == 0 ? DEFAULT_SIZES : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+        out.printf(Locale.ROOT, "Java %s, %d processors, %d MB heap%n", System.getProperty("java.version"),
+            Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() >> 20);
+
+        for (int size : sizes) {
+            File file = writeDataSet(size);
+            try {
+                out.printf(Locale.ROOT, "%n== %d rows, %.1f MB ==%n", size, file.length() / 1e6);
+                ListingTable table = benchmarkLoading(file);
+                benchmarkStatistics(table);
+                benchmarkFiltering(table);
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Benchmark loading a data set with each way of parsing it.
+     * @param file The csv file of the data set.
+     * @return The table loaded, for the other benchmarks.
+     */
+    private static ListingTable benchmarkLoading(File file) {
+        out.println("Loading                            rows/s        MB/s   alloc B/row   gc count   gc ms");
+        ListingTable[] table = new ListingTable[1];
+        for (int mode = 0; mode < 4; mode++) {
+            AirbnbDataLoader loader = new AirbnbDataLoader();
+            loader.setDataFile(file);
+            loader.setSnapshotCache(false);
+            loader.setMemoryMapped(mode != 1);
+            String name = mode == 0 ? "loadTable, memory mapped" : mode == 1 ? "loadTable, opencsv"
+                : mode == 2 ? "load, memory mapped" : "loadStatistics, memory mapped";
+
+            // Streaming adds every row to the statistics of the widest price range without keeping a table
+            boolean listings = mode == 2;
+            boolean streamed = mode == 3;
+            Measurement measurement = measure(() -> streamed ? streamStatistics(loader)
+                : listings ? loader.load().size() : (table[0] = loadTable(loader)).size());
+            double seconds = measurement.getMeanNanos() / 1e9;
+            long rows = table[0].size();
+            out.printf(Locale.ROOT, "  %-28s %12.0f %11.1f %13.0f %10d %7d%n", name, rows / seconds,
+                file.length() / 1e6 / seconds, measurement.getMeanAllocatedBytes() / rows, measurement.gcCount,
+                measurement.gcMillis);
+        }
+        return table[0];
+    }
+
+    /**
+     * Benchmark calculating the statistics of every borough for every price range, for every listing and
+     * limited to each borough.
+     * @param table The listings.
+     */
+    private static void benchmarkStatistics(ListingTable table) {
+        // Building the indexes happens once for each table loaded
+        StatisticsCalculator[] calculator = new StatisticsCalculator[1];
+        Measurement indexing = measure(() -> {
+            calculator[0] = new StatisticsCalculator(table);
+            return 1;
+        });
+        out.printf(Locale.ROOT, "Statistics index build: %.1f ms, %.1f MB allocated%n", indexing.getMeanNanos() / 1e6,
+            indexing.getMeanAllocatedBytes() / 1e6);
+
+        // Visit every price range in a shuffled order, calculating the statistics from the totals each time
+        int[][] ranges = getPriceRanges();
+        out.println("Statistics per range change         mean us    p50 us    p90 us    p99 us    max us  alloc KB/op");
+        reportLatencies("  all listings", calculator[0], ranges, null);
+
+        // Limit the statistics to each borough in turn
+        ListingFilterIndex filterIndex = new ListingFilterIndex(table);
+        for (int borough = 0; borough < filterIndex.getValueCount(ListingFilterIndex.BOROUGH); borough++) {
+            RowBitmap rows = filterIndex.getRows(ListingFilterIndex.BOROUGH, borough);
+            reportLatencies("  " + filterIndex.getValueName(ListingFilterIndex.BOROUGH, borough), calculator[0], ranges, rows);
+        }
+    }
+
+    /**
+     * Measure how long calculating the statistics takes as the price range moves through some ranges, and
+     * print the spread of times taken.
+     */
+    private static void reportLatencies(String name, StatisticsCalculator calculator, int[][] ranges, RowBitmap filter) {
+        // Warm up, which also moves the totals over to the filter
+        for (int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++) {
+            for (int[] range : ranges) {
+                calculator.calculateSnapshot(range[0], range[1], filter);
+            }
+        }
+
+        long[] latencies = new long[ranges.length * MEASURED_ITERATIONS];
+        long allocatedBytes = getAllocatedBytes();
+        for (int iteration = 0; iteration < MEASURED_ITERATIONS; iteration++) {
+            for (int i = 0; i < ranges.length; i++) {
+                long start = System.nanoTime();
+                calculator.calculateSnapshot(ranges[i][0], ranges[i][1], filter);
+                latencies[iteration * ranges.length + i] = System.nanoTime() - start;
+            }
+        }
+        allocatedBytes = getAllocatedBytes() - allocatedBytes;
+
+        Arrays.sort(latencies);
+        out.printf(Locale.ROOT, "  %-32s %9.1f %9.1f %9.1f %9.1f %9.1f %12.1f%n", name.trim(),
+            Arrays.stream(latencies).average().orElse(0) / 1e3, getPercentile(latencies, 0.5) / 1e3,
+            getPercentile(latencies, 0.9) / 1e3, getPercentile(latencies, 0.99) / 1e3,
+            latencies[latencies.length - 1] / 1e3, allocatedBytes / 1e3 / latencies.length);
+    }
+
+    /**
+     * Benchmark finding the listings matching some typical filters.
+     * @param table The listings.
+     */
+    private static void benchmarkFiltering(ListingTable table) {
+        ListingFilterIndex filterIndex = new ListingFilterIndex(table);
+        out.println("Filtering                            mean us   matching  alloc KB/op");
+
+        ListingFilter oneBorough = new ListingFilter();
+        oneBorough.setChosen(ListingFilterIndex.BOROUGH, 0, true);
+        reportFilter("  one borough", filterIndex, oneBorough);
+
+        ListingFilter oneRoomType = new ListingFilter();
+        oneRoomType.setChosen(ListingFilterIndex.ROOM_TYPE, 0, true);
+        reportFilter("  one room type", filterIndex, oneRoomType);
+
+        ListingFilter boroughsAndRoomType = new ListingFilter();
+        for (int borough = 0; borough < Math.min(5, filterIndex.getValueCount(ListingFilterIndex.BOROUGH)); borough++) {
+            boroughsAndRoomType.setChosen(ListingFilterIndex.BOROUGH, borough, true);
+        }
+        boroughsAndRoomType.setChosen(ListingFilterIndex.ROOM_TYPE, 0, true);
+        reportFilter("  five boroughs, one room type", filterIndex, boroughsAndRoomType);
+
+        ListingFilter everyAttribute = new ListingFilter();
+        for (int attribute = 0; attribute < ListingFilterIndex.ATTRIBUTE_COUNT; attribute++) {
+            for (int value = 0; value < filterIndex.getValueCount(attribute); value += 2) {
+                everyAttribute.setChosen(attribute, value, true);
+            }
+        }
+        reportFilter("  half the values of every one", filterIndex, everyAttribute);
+    }
+
+    /**
+     * Measure how long finding the listings matching a filter takes, and print the time taken.
+     */
+    private static void reportFilter(String name, ListingFilterIndex filterIndex, ListingFilter filter) {
+        Measurement measurement = measure(() -> {
+            int matching = 0;
+            for (int repetition = 0; repetition < FILTER_REPETITIONS; repetition++) {
+                matching = filterIndex.getRows(filter).size();
+            }
+            return matching;
+        });
+        out.printf(Locale.ROOT, "  %-32s %9.1f %10d %12.1f%n", name.trim(), measurement.getMeanNanos() / 1e3 / FILTER_REPETITIONS,
+            filterIndex.getRows(filter).size(), measurement.getMeanAllocatedBytes() / 1e3 / FILTER_REPETITIONS);
+    }
+
+    /**
+     * Load a data set into a table.
+     * @return The table of listings.
+     */
+    private static ListingTable loadTable(AirbnbDataLoader loader) {
+        try {
+            return loader.loadTable();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stream a data set into the statistics of the widest price range.
+     * @return The number of listings read.
+     */
+    private static int streamStatistics(AirbnbDataLoader loader) {
+        try {
+            return (int) loader.loadStatistics(0, Integer.MAX_VALUE).getListingsRead();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Run a benchmark a few times to warm up, then measure it, hiding anything it prints.
+     * @param benchmark The benchmark, returning a result which is kept so the work is not optimised away.
+     * @return The measurements of the measured runs.
+     */
+    private static Measurement measure(Supplier<Integer> benchmark) {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long result = 0;
+            for (int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++) {
+                result += benchmark.get();
+            }
+
+            Measurement measurement = new Measurement();
+            long gcCount = getGcCount();
+            long gcMillis = getGcMillis();
+            long allocatedBytes = getAllocatedBytes();
+            long start = System.nanoTime();
+            for (int iteration = 0; iteration < MEASURED_ITERATIONS; iteration++) {
+                result += benchmark.get();
+            }
+            measurement.nanos = System.nanoTime() - start;
+            measurement.allocatedBytes = getAllocatedBytes() - allocatedBytes;
+            measurement.gcCount = getGcCount() - gcCount;
+            measurement.gcMillis = getGcMillis() - gcMillis;
+            measurement.result = result;
+            return measurement;
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * @return Every price range the combo boxes allow, in a shuffled order which is the same every run.
+     */
+    private static int[][] getPriceRanges() {
+        ArrayList<int[]> ranges = new ArrayList<int[]>();
+        for (int min = 0; min < PRICE_BOUNDARIES.length - 1; min++) {
+            for (int max = min + 1; max < PRICE_BOUNDARIES.length; max++) {
+                ranges.add(new int[] { PRICE_BOUNDARIES[min], PRICE_BOUNDARIES[max] });
+            }
+        }
+        Collections.shuffle(ranges, new Random(RANGE_SEED));
+        return ranges.toArray(new int[0][]);
+    }
+
+    /**
+     * @return The value a fraction of the way through some sorted values.
+     */
+    private static long getPercentile(long[] sorted, double fraction) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(fraction * (sorted.length - 1)))];
+    }
+
+    /**
+     * @return The number of bytes allocated so far by every live thread, or 0 if the JVM cannot tell.
+     */
+    private static long getAllocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of garbage collections so far.
+     */
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * @return The time spent on garbage collections so far, in milliseconds.
+     */
+    private static long getGcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /**
+     * Write a data set of some number of rows to a temporary file.
+     * @param size The number of rows.
+     * @return The csv file.
+     */
+    private static File writeDataSet(int size) throws IOException {
+        File file = File.createTempFile("airbnb-benchmark-" + size + "-", ".csv");
+        file.deleteOnExit();
+        new SyntheticDataGenerator(size, DATA_SEED).write(file);
+        return file;
+    }
+
+    /**
+     * The time, memory allocated and garbage collections of the measured runs of a benchmark.
+     */
+    private static class Measurement {
+        long nanos;
+        long allocatedBytes;
+        long gcCount;
+        long gcMillis;
+        long result;
+
+        double getMeanNanos() {
+            return (double) nanos / MEASURED_ITERATIONS;
+        }
+
+        double getMeanAllocatedBytes() {
+            return (double) allocatedBytes / MEASURED_ITERATIONS;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+import java.util.Arrays;
+
+/**
+ * An estimate of the distribution of a set of non-negative prices, from which the median and other
+ * percentiles can be read, kept in a fixed amount of memory however many prices are added. Prices
+ * are counted in buckets whose bounds grow by a fixed ratio, so every price in a bucket is within 1%
+ * of the value the bucket stands for and every percentile read from the sketch is within 1% of the
+ * true one.
+ *
+ * As each bucket is just a count, a price can be taken away again as easily as it was added, and
+ * two sketches can be merged by adding their counts, which gives the same sketch as adding every price
+ * to one of them.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class QuantileSketch {
+
+    // Largest relative difference between a price and the value of its bucket
+    private static final double RELATIVE_ACCURACY = 0.01;
+
+    // Ratio between the upper and lower bound of each bucket
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+
+    // Natural logarithm of the ratio, used to find the bucket of a price
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // Number of buckets needed to hold every price up to the largest int
+    private static final int BUCKET_COUNT = (int) Math.ceil(Math.log(Integer.MAX_VALUE) / LOG_GAMMA) + 1;
+
+    // Number of prices of 0, which have no bucket as their logarithm is not defined
+    private long zeroCount;
+
+    // Number of prices in each bucket, where bucket i holds prices above GAMMA^(i-1) and up to GAMMA^i
+    private long[] counts;
+
+    // Number of prices in the sketch
+    private long count;
+
+    /**
+     * Create an empty sketch.
+     */
+    public QuantileSketch() {
+        counts = new long[BUCKET_COUNT];
+    }
+
+    /**
+     * Add a price.
+     * @param price The price, where a negative price is counted as 0.
+     */
+    public void add(int price) {
+        change(price, 1);
+    }
+
+    /**
+     * Take away a price added before.
+     * @param price The price.
+     */
+    public void remove(int price) {
+        change(price, -1);
+    }
+
+    /**
+     * @return The number of prices in the sketch.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the price at a quantile of the prices in the sketch, using the nearest rank, so the median
+     * of 4 prices is the second.
+     * @param quantile The quantile between 0 and 1, such as 0.5 for the median or 0.9 for the 90th percentile.
+     * @return The estimated price, or -1 if the sketch is empty.
+     */
+    public long getQuantile(double quantile) {
+        if (count == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = zeroCount;
+        if (seen >= rank) {
+            return 0;
+        }
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                // The value within 1% of every price in the bucket
+                return Math.round(2 * Math.pow(GAMMA, bucket) / (GAMMA + 1));
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Add the prices of another sketch to this one.
+     * @param other The sketch to merge into this one.
+     */
+    public void merge(QuantileSketch other) {
+        zeroCount += other.zeroCount;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        count += other.count;
+    }
+
+    /**
+     * Remove every price.
+     */
+    public void clear() {
+        zeroCount = 0;
+        Arrays.fill(counts, 0);
+        count = 0;
+    }
+
+    /**
+     * @return A copy of this sketch which will not change when this one does.
+     */
+    public QuantileSketch copy() {
+        QuantileSketch copy = new QuantileSketch();
+        copy.zeroCount = zeroCount;
+        copy.counts = counts.clone();
+        copy.count = count;
+        return copy;
+    }
+
+    /**
+     * Change the number of times a price appears in the sketch.
+     */
+    private void change(int price, int change) {
+        if (price <= 0) {
+            zeroCount += change;
+        } else {
+            counts[(int) Math.ceil(Math.log(price) / LOG_GAMMA)] += change;
+        }
+        count += change;
+    }
+}
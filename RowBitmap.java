@@ -0,0 +1,387 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of rows of a table, which can be combined with other sets a whole machine word of
+ * rows at a time rather than one row at a time.
+ *
+ * The rows are split into chunks of 65536 rows, and only chunks holding at least one row are stored.
+ * A chunk holding only a few rows stores them as a sorted array of the low 16 bits of each row, which
+ * takes two bytes a row; a chunk holding more stores one bit for every row it could hold, which takes
+ * 8 kilobytes however many rows it holds. A chunk switches between the two at 4096 rows, where they
+ * take the same memory, so a set never takes more than about two bytes a row or one bit a row,
+ * whichever is less.
+ *
+ * A set is built by adding its rows in increasing order, and never changes once built. Combining two
+ * sets makes a new set.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class RowBitmap {
+
+    // Number of bits of a row which give its position within its chunk
+    private static final int CHUNK_BITS = 16;
+
+    // Number of 64 bit words in a chunk stored as bits
+    private static final int CHUNK_WORDS = (1 << CHUNK_BITS) / 64;
+
+    // Largest number of rows a chunk stores as an array
+    private static final int ARRAY_LIMIT = 4096;
+
+    // Number of each chunk holding rows, in increasing order
+    private int[] chunks;
+
+    // Rows of each chunk, either as a sorted array of their low bits or as bits, the other being null
+    private char[][] chunkArrays;
+    private long[][] chunkBits;
+
+    // Number of rows in each chunk
+    private int[] chunkCounts;
+
+    // Number of chunks holding rows
+    private int chunkCount;
+
+    /**
+     * Create an empty set.
+     */
+    public RowBitmap() {
+        chunks = new int[4];
+        chunkArrays = new char[4][];
+        chunkBits = new long[4][];
+        chunkCounts = new int[4];
+    }
+
+    /**
+     * Add a row, which must be after every row already in the set.
+     * @param row The row to add.
+     */
+    public void add(int row) {
+        int chunk = row >>> CHUNK_BITS;
+        char low = (char) row;
+        int last = chunkCount - 1;
+        if (chunkCount == 0 || chunks[last] != chunk) {
+            if (chunkCount > 0 && chunks[last] > chunk) {
+                throw new IllegalArgumentException("Rows must be added in increasing order");
+            }
+            addChunk(chunk, new char[16], null, 0);
+            last++;
+        }
+
+        int count = chunkCounts[last];
+        if (chunkBits[last] != null) {
+            chunkBits[last][low >>> 6] |= 1L << low;
+        } else if (count == ARRAY_LIMIT) {
+            // The array is as large as the bits would be, so switch to bits
+            chunkBits[last] = toBits(chunkArrays[last], count);
+            chunkArrays[last] = null;
+            chunkBits[last][low >>> 6] |= 1L << low;
+        } else {
+            if (count > 0 && chunkArrays[last][count - 1] >= low) {
+                throw new IllegalArgumentException("Rows must be added in increasing order");
+            }
+            if (count == chunkArrays[last].length) {
+                chunkArrays[last] = Arrays.copyOf(chunkArrays[last], Math.min(ARRAY_LIMIT, count * 2));
+            }
+            chunkArrays[last][count] = low;
+        }
+        chunkCounts[last] = count + 1;
+    }
+
+    /**
+     * Release any spare capacity left over from adding rows.
+     */
+    public void trimToSize() {
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (chunkArrays[chunk] != null) {
+                chunkArrays[chunk] = Arrays.copyOf(chunkArrays[chunk], chunkCounts[chunk]);
+            }
+        }
+        chunks = Arrays.copyOf(chunks, chunkCount);
+        chunkArrays = Arrays.copyOf(chunkArrays, chunkCount);
+        chunkBits = Arrays.copyOf(chunkBits, chunkCount);
+        chunkCounts = Arrays.copyOf(chunkCounts, chunkCount);
+    }
+
+    /**
+     * Check whether a row is in the set.
+     * @param row The row to look for.
+     * @return True if the row is in the set.
+     */
+    public boolean contains(int row) {
+        int chunk = Arrays.binarySearch(chunks, 0, chunkCount, row >>> CHUNK_BITS);
+        if (chunk < 0) {
+            return false;
+        }
+        char low = (char) row;
+        if (chunkBits[chunk] != null) {
+            return (chunkBits[chunk][low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch(chunkArrays[chunk], 0, chunkCounts[chunk], low) >= 0;
+    }
+
+    /**
+     * @return The number of rows in the set.
+     */
+    public int size() {
+        int size = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            size += chunkCounts[chunk];
+        }
+        return size;
+    }
+
+    /**
+     * Go through every row in the set in increasing order.
+     * @param visitor Called with each row.
+     */
+    public void forEach(IntConsumer visitor) {
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            int base = chunks[chunk] << CHUNK_BITS;
+            if (chunkBits[chunk] != null) {
+                long[] bits = chunkBits[chunk];
+                for (int word = 0; word < CHUNK_WORDS; word++) {
+                    // Take each set bit off the word, lowest first
+                    for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1) {
+                        visitor.accept(base + word * 64 + Long.numberOfTrailingZeros(remaining));
+                    }
+                }
+            } else {
+                for (int i = 0; i < chunkCounts[chunk]; i++) {
+                    visitor.accept(base + chunkArrays[chunk][i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return A new array of the rows in the set in increasing order.
+     */
+    public int[] toArray() {
+        int[] rows = new int[size()];
+        int[] count = { 0 };
+        forEach(row -> rows[count[0]++] = row);
+        return rows;
+    }
+
+    /**
+     * Find the rows in both this set and another.
+     * @param other The other set.
+     * @return A new set of the rows in both.
+     */
+    public RowBitmap and(RowBitmap other) {
+        RowBitmap result = new RowBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount && j < other.chunkCount) {
+            if (chunks[i] < other.chunks[j]) {
+                i++;
+            } else if (chunks[i] > other.chunks[j]) {
+                j++;
+            } else {
+                if (chunkBits[i] != null && other.chunkBits[j] != null) {
+                    result.addBits(chunks[i], andBits(chunkBits[i], other.chunkBits[j]));
+                } else if (chunkBits[i] != null) {
+                    result.addArray(chunks[i], filterArray(other.chunkArrays[j], other.chunkCounts[j], chunkBits[i]));
+                } else if (other.chunkBits[j] != null) {
+                    result.addArray(chunks[i], filterArray(chunkArrays[i], chunkCounts[i], other.chunkBits[j]));
+                } else {
+                    result.addArray(chunks[i], intersectArrays(chunkArrays[i], chunkCounts[i],
+                        other.chunkArrays[j], other.chunkCounts[j]));
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the rows in either this set or another.
+     * @param other The other set.
+     * @return A new set of the rows in either.
+     */
+    public RowBitmap or(RowBitmap other) {
+        RowBitmap result = new RowBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount || j < other.chunkCount) {
+            if (j == other.chunkCount || (i < chunkCount && chunks[i] < other.chunks[j])) {
+                result.addChunk(chunks[i], chunkArrays[i], chunkBits[i], chunkCounts[i]);
+                i++;
+            } else if (i == chunkCount || chunks[i] > other.chunks[j]) {
+                result.addChunk(other.chunks[j], other.chunkArrays[j], other.chunkBits[j], other.chunkCounts[j]);
+                j++;
+            } else {
+                if (chunkCounts[i] + other.chunkCounts[j] <= ARRAY_LIMIT) {
+                    // Both are arrays small enough that their union is too
+                    result.addArray(chunks[i], unionArrays(chunkArrays[i], chunkCounts[i],
+                        other.chunkArrays[j], other.chunkCounts[j]));
+                } else {
+                    long[] bits = chunkBits[i] != null ? chunkBits[i].clone() : toBits(chunkArrays[i], chunkCounts[i]);
+                    if (other.chunkBits[j] != null) {
+                        for (int word = 0; word < CHUNK_WORDS; word++) {
+                            bits[word] |= other.chunkBits[j][word];
+                        }
+                    } else {
+                        for (int k = 0; k < other.chunkCounts[j]; k++) {
+                            char low = other.chunkArrays[j][k];
+                            bits[low >>> 6] |= 1L << low;
+                        }
+                    }
+                    result.addBits(chunks[i], bits);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of chunks stored as bits rather than as arrays.
+     */
+    public int getBitChunkCount() {
+        int count = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (chunkBits[chunk] != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Add a chunk found by combining sets, held as bits, storing it as an array instead if it holds few enough rows.
+     */
+    private void addBits(int chunk, long[] bits) {
+        int count = 0;
+        for (long word : bits) {
+            count += Long.bitCount(word);
+        }
+        if (count == 0) {
+            return;
+        }
+        if (count > ARRAY_LIMIT) {
+            addChunk(chunk, null, bits, count);
+            return;
+        }
+        char[] array = new char[count];
+        int position = 0;
+        for (int word = 0; word < CHUNK_WORDS; word++) {
+            for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1) {
+                array[position++] = (char) (word * 64 + Long.numberOfTrailingZeros(remaining));
+            }
+        }
+        addChunk(chunk, array, null, count);
+    }
+
+    /**
+     * Add a chunk found by combining sets, held as an array which is exactly full, unless it is empty.
+     */
+    private void addArray(int chunk, char[] array) {
+        if (array.length > 0) {
+            addChunk(chunk, array, null, array.length);
+        }
+    }
+
+    /**
+     * Add a chunk after every chunk already in the set. The array or bits are shared rather than copied,
+     * which is safe because a chunk is never changed once another chunk has been added after it.
+     */
+    private void addChunk(int chunk, char[] array, long[] bits, int count) {
+        if (chunkCount == chunks.length) {
+            // A trimmed bitmap may have no room at all
+            int capacity = Math.max(4, chunkCount * 2);
+            chunks = Arrays.copyOf(chunks, capacity);
+            chunkArrays = Arrays.copyOf(chunkArrays, capacity);
+            chunkBits = Arrays.copyOf(chunkBits, capacity);
+            chunkCounts = Arrays.copyOf(chunkCounts, capacity);
+        }
+        chunks[chunkCount] = chunk;
+        chunkArrays[chunkCount] = array;
+        chunkBits[chunkCount] = bits;
+        chunkCounts[chunkCount] = count;
+        chunkCount++;
+    }
+
+    /**
+     * Turn a chunk held as an array into bits.
+     */
+    private static long[] toBits(char[] array, int count) {
+        long[] bits = new long[CHUNK_WORDS];
+        for (int i = 0; i < count; i++) {
+            bits[array[i] >>> 6] |= 1L << array[i];
+        }
+        return bits;
+    }
+
+    /**
+     * Find the rows in both of two chunks held as bits, a word at a time.
+     */
+    private static long[] andBits(long[] first, long[] second) {
+        long[] bits = new long[CHUNK_WORDS];
+        for (int word = 0; word < CHUNK_WORDS; word++) {
+            bits[word] = first[word] & second[word];
+        }
+        return bits;
+    }
+
+    /**
+     * Find the rows of a chunk held as an array which are also in a chunk held as bits.
+     */
+    private static char[] filterArray(char[] array, int count, long[] bits) {
+        char[] found = new char[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if ((bits[array[i] >>> 6] & (1L << array[i])) != 0) {
+                found[size++] = array[i];
+            }
+        }
+        return Arrays.copyOf(found, size);
+    }
+
+    /**
+     * Find the rows in both of two chunks held as sorted arrays, by going through them side by side.
+     */
+    private static char[] intersectArrays(char[] first, int firstCount, char[] second, int secondCount) {
+        char[] found = new char[Math.min(firstCount, secondCount)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < firstCount && j < secondCount) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                found[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(found, size);
+    }
+
+    /**
+     * Find the rows in either of two chunks held as sorted arrays, by going through them side by side.
+     */
+    private static char[] unionArrays(char[] first, int firstCount, char[] second, int secondCount) {
+        char[] found = new char[firstCount + secondCount];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < firstCount || j < secondCount) {
+            if (j == secondCount || (i < firstCount && first[i] < second[j])) {
+                found[size++] = first[i++];
+            } else if (i == firstCount || first[i] > second[j]) {
+                found[size++] = second[j++];
+            } else {
+                found[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(found, size);
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+/**
+ * An index of the rows of a ListingTable sorted by their minimum stay price, the price per night
+ * multiplied by the minimum number of nights, which is what the price range selection filters on.
+ *
+ * The listings priced within a range always sit next to each other in the sorted order, so the
+ * positions of the first and last of them can be found with a binary search. Code which only needs
+ * the listings within a range can then go through that slice of the index instead of checking the
+ * price of every listing. Listings with the same price keep the order they have in the table.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class SortedPriceIndex {
+
+    // Rows of the table in order of price
+    private int[] rows;
+
+    // Price of each row, in the same order, so that searches do not have to go back to the table
+    private int[] prices;
+
+    /**
+     * Build the index for a table.
+     * @param table The listings to index.
+     */
+    public SortedPriceIndex(ListingTable table) {
+        int size = table.size();
+
+        // Sort the price and row of each listing together, the price in the high half so it decides
+        // the order and the row in the low half so equal prices stay in table order
+        long[] keys = new long[size];
+        for (int row = 0; row < size; row++) {
+            keys[row] = ((long) table.getMinimumStayPrice(row) << 32) | row;
+        }
+        Arrays.parallelSort(keys);
+
+        rows = new int[size];
+        prices = new int[size];
+        for (int position = 0; position < size; position++) {
+            rows[position] = (int) keys[position];
+            prices[position] = (int) (keys[position] >> 32);
+        }
+    }
+
+    /**
+     * @return The number of rows in the index.
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * Get the row of the table at a position in the sorted order.
+     * @param position The position in the index.
+     * @return The row of the table.
+     */
+    public int getRow(int position) {
+        return rows[position];
+    }
+
+    /**
+     * Get the price of the row at a position in the sorted order.
+     * @param position The position in the index.
+     * @return The minimum stay price of the row.
+     */
+    public int getPrice(int position) {
+        return prices[position];
+    }
+
+    /**
+     * Find where the listings priced at or above a price start.
+     * @param price The price.
+     * @return The position of the first row priced at or above the price, or the size of the index
+     *         if there is none.
+     */
+    public int getStart(int price) {
+        // Binary search for the first price which is not below the given price
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (prices[middle] < price) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Find where the listings priced below a price end.
+     * @param price The price.
+     * @return The position just after the last row priced below the price.
+     */
+    public int getEnd(int price) {
+        return getStart(price);
+    }
+
+    /**
+     * Get the rows priced within a range, in order of price.
+     * @param minPrice The lowest price in the range.
+     * @param maxPrice The price the range stops just below.
+     * @return A new array holding the rows of the table.
+     */
+    public int[] getRows(int minPrice, int maxPrice) {
+        int start = getStart(minPrice);
+        int end = Math.max(start, getEnd(maxPrice));
+        return Arrays.copyOfRange(rows, start, end);
+    }
+}
@@ -0,0 +1,477 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * An index of the rows of a ListingTable by where they are, so that the listings within a rectangle
+ * of latitude and longitude, such as the part of the map in view, can be found without checking the
+ * position of every listing.
+ *
+ * The rectangle holding every listing is split into a uniform grid of cells, sized so that each cell
+ * holds a handful of listings on average. Listings without a position are not indexed, so they are
+ * never found and do not stretch the grid. The rows of each cell are stored next to each other in order
+ * of their minimum stay price, the price the price range selection filters on, so the listings of a
+ * cell within a price range are found with a binary search. A query only goes through the cells which
+ * overlap its rectangle, and only checks the position of listings in cells on the edge of it.
+ *
+ * The listings nearest a position are found by going through the cells in rings around the cell the
+ * position lies in, stopping once every cell not yet gone through is further away than the furthest
+ * of the nearest listings found so far.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class SpatialGridIndex {
+
+    // Number of listings to aim for in each cell
+    private static final int LISTINGS_PER_CELL = 8;
+
+    // Largest number of columns or rows of cells
+    private static final int MAXIMUM_CELLS_PER_SIDE = 1024;
+
+    // Mean radius of the earth in metres
+    public static final double EARTH_RADIUS = 6371008.8;
+
+    // Latitude or longitude given by the loader to a listing whose position is missing
+    public static final double MISSING_COORDINATE = -1.0;
+
+    // Room type code matching every room type when finding the nearest listings
+    public static final int ANY_ROOM_TYPE = -1;
+
+    // Listings which are indexed
+    private ListingTable table;
+
+    // Rectangle holding every listing
+    private double minLatitude;
+    private double maxLatitude;
+    private double minLongitude;
+    private double maxLongitude;
+
+    // Number of columns of cells from west to east and rows of cells from south to north
+    private int columns;
+    private int rows;
+
+    // Size of each cell in degrees
+    private double cellHeight;
+    private double cellWidth;
+
+    // Position in the sorted rows where each cell starts, with one more at the end for where the last cell ends
+    private int[] cellStarts;
+
+    // Rows of the table grouped by cell, in order of price within each cell
+    private int[] cellRows;
+
+    // Minimum stay price of each row, in the same order
+    private int[] cellPrices;
+
+    /**
+     * Build the index for a table.
+     * @param table The listings to index.
+     */
+    public SpatialGridIndex(ListingTable table) {
+        this.table = table;
+        int size = table.size();
+
+        // Find the rectangle holding every listing with a position, leaving out any without one so that
+        // they cannot stretch the grid far beyond the others
+        minLatitude = Double.POSITIVE_INFINITY;
+        maxLatitude = Double.NEGATIVE_INFINITY;
+        minLongitude = Double.POSITIVE_INFINITY;
+        maxLongitude = Double.NEGATIVE_INFINITY;
+        int placed = 0;
+        for (int row = 0; row < size; row++) {
+            if (!hasPosition(row)) {
+                continue;
+            }
+            minLatitude = Math.min(minLatitude, table.getLatitude(row));
+            maxLatitude = Math.max(maxLatitude, table.getLatitude(row));
+            minLongitude = Math.min(minLongitude, table.getLongitude(row));
+            maxLongitude = Math.max(maxLongitude, table.getLongitude(row));
+            placed++;
+        }
+        if (placed == 0) {
+            minLatitude = maxLatitude = minLongitude = maxLongitude = 0;
+        }
+
+        // Split the rectangle into roughly square cells, enough for a handful of listings each
+        double latitudeSpan = Math.max(maxLatitude - minLatitude, 1e-9);
+        double longitudeSpan = Math.max(maxLongitude - minLongitude, 1e-9);
+        double cellCount = Math.max(1.0, (double) placed / LISTINGS_PER_CELL);
+        columns = clampCells(Math.sqrt(cellCount * longitudeSpan / latitudeSpan));
+        rows = clampCells(cellCount / columns);
+        cellWidth = longitudeSpan / columns;
+        cellHeight = latitudeSpan / rows;
+
+        // Count the listings in each cell, then turn the counts into the positions where each cell starts
+        SortedPriceIndex priceOrder = new SortedPriceIndex(table);
+        cellStarts = new int[columns * rows + 1];
+        for (int row = 0; row < size; row++) {
+            if (hasPosition(row)) {
+                cellStarts[getCell(table.getLatitude(row), table.getLongitude(row)) + 1]++;
+            }
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        // Place each row in its cell, going through the rows in order of price so each cell ends up in order of price
+        cellRows = new int[placed];
+        cellPrices = new int[placed];
+        int[] next = Arrays.copyOf(cellStarts, columns * rows);
+        for (int position = 0; position < size; position++) {
+            int row = priceOrder.getRow(position);
+            if (!hasPosition(row)) {
+                continue;
+            }
+            int cell = getCell(table.getLatitude(row), table.getLongitude(row));
+            cellRows[next[cell]] = row;
+            cellPrices[next[cell]] = priceOrder.getPrice(position);
+            next[cell]++;
+        }
+    }
+
+    /**
+     * Go through every listing within a rectangle and a price range.
+     * @param south The lowest latitude of the rectangle.
+     * @param west The lowest longitude of the rectangle.
+     * @param north The highest latitude of the rectangle.
+     * @param east The highest longitude of the rectangle.
+     * @param minPrice The lowest price in the range.
+     * @param maxPrice The price the range stops just below.
+     * @param visitor Called with the table row of each listing found, in no particular order.
+     * @return The number of listings found.
+     */
+    public int visitRows(double south, double west, double north, double east, int minPrice, int maxPrice,
+            IntConsumer visitor) {
+        if (south > north || west > east || north < minLatitude || south > maxLatitude
+                || east < minLongitude || west > maxLongitude) {
+            return 0;
+        }
+        int firstColumn = getColumn(west);
+        int lastColumn = getColumn(east);
+        int firstRow = getRow(south);
+        int lastRow = getRow(north);
+
+        int found = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                // Only cells on the edge of the rectangle can hold listings outside it
+                boolean edge = row == firstRow || row == lastRow || column == firstColumn || column == lastColumn;
+                int cell = row * columns + column;
+                int end = cellStarts[cell + 1];
+                for (int position = getStart(cell, minPrice); position < end && cellPrices[position] < maxPrice; position++) {
+                    int tableRow = cellRows[position];
+                    if (edge && !isWithin(tableRow, south, west, north, east)) {
+                        continue;
+                    }
+                    visitor.accept(tableRow);
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Get the listings within a rectangle and a price range.
+     * @return A new array holding the table rows of the listings, in no particular order.
+     * @see #visitRows
+     */
+    public int[] getRows(double south, double west, double north, double east, int minPrice, int maxPrice) {
+        int[][] found = { new int[16] };
+        int[] count = { 0 };
+        visitRows(south, west, north, east, minPrice, maxPrice, row -> {
+            if (count[0] == found[0].length) {
+                found[0] = Arrays.copyOf(found[0], count[0] * 2);
+            }
+            found[0][count[0]++] = row;
+        });
+        return Arrays.copyOf(found[0], count[0]);
+    }
+
+    /**
+     * Count the listings within a rectangle and a price range.
+     * @see #visitRows
+     */
+    public int countRows(double south, double west, double north, double east, int minPrice, int maxPrice) {
+        return visitRows(south, west, north, east, minPrice, maxPrice, row -> { });
+    }
+
+    /**
+     * Find the listings nearest a position, within a price range and optionally of one room type.
+     * @param latitude The latitude of the position.
+     * @param longitude The longitude of the position.
+     * @param count The largest number of listings to find.
+     * @param minPrice The lowest price in the range.
+     * @param maxPrice The price the range stops just below.
+     * @param roomType The code of the room type to find, or ANY_ROOM_TYPE to find every room type.
+     * @return The table rows of the listings found, nearest first. Fewer than count are found only if
+     *         fewer listings match.
+     */
+    public int[] findNearest(double latitude, double longitude, int count, int minPrice, int maxPrice, int roomType) {
+        if (count <= 0 || cellRows.length == 0) {
+            return new int[0];
+        }
+
+        // The nearest listings found so far, kept as a heap with the furthest of them at the top
+        double[] heapDistances = new double[count];
+        int[] heapRows = new int[count];
+        int found = 0;
+
+        // How much a degree of longitude can shrink between the position and the furthest latitude in the grid
+        double widthRatio = Math.sqrt(Math.cos(Math.toRadians(latitude))
+            * Math.cos(Math.toRadians(Math.max(Math.abs(minLatitude), Math.abs(maxLatitude)))));
+
+        int centerColumn = getColumn(longitude);
+        int centerRow = getRow(latitude);
+        for (int ring = 0; ; ring++) {
+            int firstColumn = centerColumn - ring;
+            int lastColumn = centerColumn + ring;
+            int firstRow = centerRow - ring;
+            int lastRow = centerRow + ring;
+
+            // Go through the cells on the edge of this ring which lie within the grid
+            for (int row = Math.max(0, firstRow); row <= Math.min(rows - 1, lastRow); row++) {
+                boolean edgeRow = row == firstRow || row == lastRow;
+                int step = edgeRow ? 1 : lastColumn - firstColumn;
+                for (int column = firstColumn; column <= lastColumn; column += Math.max(1, step)) {
+                    if (column < 0 || column >= columns) {
+                        continue;
+                    }
+                    int cell = row * columns + column;
+                    int end = cellStarts[cell + 1];
+                    for (int position = getStart(cell, minPrice); position < end && cellPrices[position] < maxPrice; position++) {
+                        int tableRow = cellRows[position];
+                        if (roomType != ANY_ROOM_TYPE && table.getRoomTypeCode(tableRow) != roomType) {
+                            continue;
+                        }
+                        double distance = getDistance(latitude, longitude, table.getLatitude(tableRow), table.getLongitude(tableRow));
+                        if (found < count) {
+                            heapDistances[found] = distance;
+                            heapRows[found] = tableRow;
+                            siftUp(heapDistances, heapRows, found);
+                            found++;
+                        } else if (distance < heapDistances[0]) {
+                            heapDistances[0] = distance;
+                            heapRows[0] = tableRow;
+                            siftDown(heapDistances, heapRows, found);
+                        }
+                    }
+                }
+            }
+
+            // Stop once the rings cover the whole grid
+            boolean westDone = firstColumn <= 0;
+            boolean eastDone = lastColumn >= columns - 1;
+            boolean southDone = firstRow <= 0;
+            boolean northDone = lastRow >= rows - 1;
+            if (westDone && eastDone && southDone && northDone) {
+                break;
+            }
+
+            // Stop once every cell outside the rings is further away than the furthest listing kept
+            if (found == count) {
+                double nearestOutside = Double.POSITIVE_INFINITY;
+                if (!southDone) {
+                    nearestOutside = Math.min(nearestOutside, getLatitudeDistance(latitude - (minLatitude + firstRow * cellHeight)));
+                }
+                if (!northDone) {
+                    nearestOutside = Math.min(nearestOutside, getLatitudeDistance(minLatitude + (lastRow + 1) * cellHeight - latitude));
+                }
+                if (!westDone) {
+                    nearestOutside = Math.min(nearestOutside, getLongitudeDistance(longitude - (minLongitude + firstColumn * cellWidth), widthRatio));
+                }
+                if (!eastDone) {
+                    nearestOutside = Math.min(nearestOutside, getLongitudeDistance(minLongitude + (lastColumn + 1) * cellWidth - longitude, widthRatio));
+                }
+                if (nearestOutside >= heapDistances[0]) {
+                    break;
+                }
+            }
+        }
+
+        // Take the furthest listing off the heap each time, filling the result from the end
+        int[] nearest = new int[found];
+        for (int remaining = found; remaining > 0; remaining--) {
+            nearest[remaining - 1] = heapRows[0];
+            heapDistances[0] = heapDistances[remaining - 1];
+            heapRows[0] = heapRows[remaining - 1];
+            siftDown(heapDistances, heapRows, remaining - 1);
+        }
+        return nearest;
+    }
+
+    /**
+     * Check whether a listing has a usable position. The loader fills in a missing latitude or
+     * longitude with MISSING_COORDINATE, which is left out along with any position not on the earth.
+     */
+    private boolean hasPosition(int row) {
+        double latitude = table.getLatitude(row);
+        double longitude = table.getLongitude(row);
+        return latitude != MISSING_COORDINATE && longitude != MISSING_COORDINATE
+            && latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180;
+    }
+
+    /**
+     * Find the distance between two positions along the surface of the earth, using the haversine formula.
+     * @return The distance in metres.
+     */
+    public static double getDistance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeChange = Math.toRadians(latitude2 - latitude1);
+        double longitudeChange = Math.toRadians(longitude2 - longitude1);
+        double haversine = Math.pow(Math.sin(latitudeChange / 2), 2) + Math.cos(Math.toRadians(latitude1))
+            * Math.cos(Math.toRadians(latitude2)) * Math.pow(Math.sin(longitudeChange / 2), 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(haversine)));
+    }
+
+    /**
+     * @return The table the index was built for.
+     */
+    public ListingTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return The lowest latitude of any listing.
+     */
+    public double getMinLatitude() {
+        return minLatitude;
+    }
+
+    /**
+     * @return The highest latitude of any listing.
+     */
+    public double getMaxLatitude() {
+        return maxLatitude;
+    }
+
+    /**
+     * @return The lowest longitude of any listing.
+     */
+    public double getMinLongitude() {
+        return minLongitude;
+    }
+
+    /**
+     * @return The highest longitude of any listing.
+     */
+    public double getMaxLongitude() {
+        return maxLongitude;
+    }
+
+    /**
+     * Find the shortest distance between two positions this many degrees of latitude apart.
+     */
+    private static double getLatitudeDistance(double degrees) {
+        return Math.max(0, Math.toRadians(degrees)) * EARTH_RADIUS;
+    }
+
+    /**
+     * Find the shortest distance between two positions this many degrees of longitude apart, from the
+     * haversine formula with the product of the cosines of their latitudes at least widthRatio squared.
+     */
+    private static double getLongitudeDistance(double degrees, double widthRatio) {
+        double sine = widthRatio * Math.sin(Math.toRadians(Math.max(0, Math.min(180, degrees))) / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, sine));
+    }
+
+    /**
+     * Move the listing at a position of the heap up until it is no further than the listing above it.
+     */
+    private static void siftUp(double[] distances, int[] rows, int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (distances[parent] >= distances[position]) {
+                return;
+            }
+            swap(distances, rows, parent, position);
+            position = parent;
+        }
+    }
+
+    /**
+     * Move the listing at the top of the heap down until it is no nearer than either listing below it.
+     */
+    private static void siftDown(double[] distances, int[] rows, int size) {
+        int position = 0;
+        while (true) {
+            int furthest = position;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                if (distances[child] > distances[furthest]) {
+                    furthest = child;
+                }
+            }
+            if (furthest == position) {
+                return;
+            }
+            swap(distances, rows, position, furthest);
+            position = furthest;
+        }
+    }
+
+    /**
+     * Swap two listings in the heap.
+     */
+    private static void swap(double[] distances, int[] rows, int first, int second) {
+        double distance = distances[first];
+        distances[first] = distances[second];
+        distances[second] = distance;
+        int row = rows[first];
+        rows[first] = rows[second];
+        rows[second] = row;
+    }
+
+    /**
+     * Find the first position in a cell priced at or above a price.
+     */
+    private int getStart(int cell, int price) {
+        // Binary search for the first price which is not below the given price
+        int low = cellStarts[cell];
+        int high = cellStarts[cell + 1];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cellPrices[middle] < price) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Check whether a listing lies within a rectangle.
+     */
+    private boolean isWithin(int row, double south, double west, double north, double east) {
+        double latitude = table.getLatitude(row);
+        double longitude = table.getLongitude(row);
+        return south <= latitude && latitude <= north && west <= longitude && longitude <= east;
+    }
+
+    /**
+     * Find the cell a position lies in.
+     */
+    private int getCell(double latitude, double longitude) {
+        return getRow(latitude) * columns + getColumn(longitude);
+    }
+
+    /**
+     * Find the column of cells a longitude lies in, using the nearest column for longitudes outside the grid.
+     */
+    private int getColumn(double longitude) {
+        return Math.max(0, Math.min(columns - 1, (int) ((longitude - minLongitude) / cellWidth)));
+    }
+
+    /**
+     * Find the row of cells a latitude lies in, using the nearest row for latitudes outside the grid.
+     */
+    private int getRow(double latitude) {
+        return Math.max(0, Math.min(rows - 1, (int) ((latitude - minLatitude) / cellHeight)));
+    }
+
+    /**
+     * Round a number of cells along one side of the grid to a whole number within the allowed range.
+     */
+    private static int clampCells(double cells) {
+        return (int) Math.max(1, Math.min(MAXIMUM_CELLS_PER_SIDE, Math.ceil(cells)));
+    }
+}
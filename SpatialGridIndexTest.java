@@ -0,0 +1,206 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import javafx.scene.image.WritableImage;
+
+/**
+ * The test class SpatialGridIndexTest.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class SpatialGridIndexTest
+{
+
+    // Table of listings for the tests
+    private ListingTable table;
+
+    // Index of the table by where each listing is
+    private SpatialGridIndex index;
+
+    /**
+     * Constructor for the test class.
+     */
+    public SpatialGridIndexTest() throws IOException {
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        table = dataLoader.loadTable();
+        index = new SpatialGridIndex(table);
+    }
+
+    /**
+     * Test that the whole area and price range finds every listing exactly once.
+     */
+    @Test
+    public void testWholeArea() {
+        int[] rows = index.getRows(index.getMinLatitude(), index.getMinLongitude(),
+            index.getMaxLatitude(), index.getMaxLongitude(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+        Arrays.sort(rows);
+        assertEquals(table.size(), rows.length);
+        for (int row = 0; row < rows.length; row++) {
+            assertEquals(row, rows[row]);
+        }
+    }
+
+    /**
+     * Test that rectangles and price ranges find exactly the listings found by checking every listing.
+     */
+    @Test
+    public void testQueries() {
+        double latitudeSpan = index.getMaxLatitude() - index.getMinLatitude();
+        double longitudeSpan = index.getMaxLongitude() - index.getMinLongitude();
+        double[][] areas = { { 0.4, 0.4, 0.6, 0.6 }, { 0.0, 0.0, 0.1, 0.3 }, { 0.25, 0.5, 0.3, 0.52 },
+            { -0.5, -0.5, 0.5, 1.5 }, { 0.9, 0.9, 2.0, 2.0 }, { 1.5, 1.5, 2.0, 2.0 } };
+        int[][] prices = { { 0, 10000 }, { 50, 500 }, { 100, 101 } };
+        for (double[] area : areas) {
+            double south = index.getMinLatitude() + area[0] * latitudeSpan;
+            double west = index.getMinLongitude() + area[1] * longitudeSpan;
+            double north = index.getMinLatitude() + area[2] * latitudeSpan;
+            double east = index.getMinLongitude() + area[3] * longitudeSpan;
+            for (int[] price : prices) {
+                int expected = 0;
+                for (int row = 0; row < table.size(); row++) {
+                    if (south <= table.getLatitude(row) && table.getLatitude(row) <= north
+                            && west <= table.getLongitude(row) && table.getLongitude(row) <= east
+                            && price[0] <= table.getMinimumStayPrice(row) && table.getMinimumStayPrice(row) < price[1]) {
+                        expected++;
+                    }
+                }
+                int[] rows = index.getRows(south, west, north, east, price[0], price[1]);
+                assertEquals(expected, rows.length);
+                assertEquals(expected, index.countRows(south, west, north, east, price[0], price[1]));
+                for (int row : rows) {
+                    assertTrue(south <= table.getLatitude(row) && table.getLatitude(row) <= north);
+                    assertTrue(west <= table.getLongitude(row) && table.getLongitude(row) <= east);
+                    assertTrue(price[0] <= table.getMinimumStayPrice(row) && table.getMinimumStayPrice(row) < price[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test that clustering the listings in view accounts for every listing exactly once, and that
+     * zooming keeps the position under the mouse in place.
+     */
+    @Test
+    public void testClusters() {
+        MapViewport viewport = new MapViewport();
+        viewport.setSize(800, 600);
+        viewport.fit(index.getMinLatitude(), index.getMinLongitude(), index.getMaxLatitude(), index.getMaxLongitude());
+        double latitude = viewport.getLatitude(150);
+        double longitude = viewport.getLongitude(200);
+        viewport.zoom(3, 200, 150);
+        assertEquals(200, viewport.getX(longitude), 1e-6);
+        assertEquals(150, viewport.getY(latitude), 1e-6);
+
+        ListingClusters clusters = new ListingClusters(48);
+        clusters.reset(table, viewport, 100);
+        int found = index.visitRows(viewport.getSouth(), viewport.getWest(), viewport.getNorth(), viewport.getEast(),
+            0, 10000, clusters);
+        assertEquals(found, clusters.getTotal());
+        int clustered = 0;
+        for (int cell = 0; cell < clusters.getCellCount(); cell++) {
+            clustered += clusters.getCount(cell);
+        }
+        assertEquals(found, clustered);
+        assertEquals(found > 100, clusters.isClustered());
+        assertEquals(Math.min(found, 100), clusters.getPointCount());
+    }
+
+    /**
+     * Test that density tiles are only coloured where there are listings, and that the tile cache
+     * keeps only the tiles used most recently.
+     */
+    @Test
+    public void testHeatTiles() {
+        HeatTileLayer layer = new HeatTileLayer(index, () -> { });
+        double ratio = Math.cos(Math.toRadians((index.getMinLatitude() + index.getMaxLatitude()) / 2));
+        int level = 2;
+        double tileHeight = HeatTileLayer.TILE_SIZE / (256.0 * (1 << level));
+        double latitude = (index.getMinLatitude() + index.getMaxLatitude()) / 2;
+        double longitude = (index.getMinLongitude() + index.getMaxLongitude()) / 2;
+        int column = (int) Math.floor(longitude / (tileHeight / ratio));
+        int row = (int) Math.floor(-latitude / tileHeight);
+
+        // The tile in the middle of the listings has colour, one far away has none
+        assertTrue(Arrays.stream(layer.renderPixels(level, column, row, 0, 10000, ratio, null)).anyMatch(pixel -> pixel != 0));
+        assertTrue(Arrays.stream(layer.renderPixels(level, column + 50, row, 0, 10000, ratio, null)).allMatch(pixel -> pixel == 0));
+        // An empty price range has no colour anywhere
+        assertTrue(Arrays.stream(layer.renderPixels(level, column, row, 5, 5, ratio, null)).allMatch(pixel -> pixel == 0));
+        layer.shutdown();
+
+        // Using the first tile again leaves the second as the least recently used, so it is dropped for the third
+        TileCache cache = new TileCache(2);
+        TileCache.Key first = new TileCache.Key(1, 0, 0, 0, 100);
+        TileCache.Key second = new TileCache.Key(1, 1, 0, 0, 100);
+        cache.put(first, new WritableImage(1, 1));
+        cache.put(second, new WritableImage(1, 1));
+        assertNotNull(cache.get(new TileCache.Key(1, 0, 0, 0, 100)));
+        cache.put(new TileCache.Key(1, 2, 0, 0, 100), new WritableImage(1, 1));
+        assertNull(cache.get(second));
+        assertNotNull(cache.get(first));
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * Test that the nearest listings found are the same distances away as the nearest found by checking
+     * every listing, for positions inside and outside the listings and with and without filters.
+     */
+    @Test
+    public void testNearest() {
+        double latitudeSpan = index.getMaxLatitude() - index.getMinLatitude();
+        double longitudeSpan = index.getMaxLongitude() - index.getMinLongitude();
+        double[][] positions = { { 0.5, 0.5 }, { 0.1, 0.9 }, { 0.0, 0.0 }, { -0.3, 0.5 }, { 1.2, 1.4 } };
+        int[][] filters = { { 0, 10000, SpatialGridIndex.ANY_ROOM_TYPE }, { 50, 100, SpatialGridIndex.ANY_ROOM_TYPE },
+            { 0, 10000, 1 }, { 100, 101, 0 } };
+        for (double[] position : positions) {
+            double latitude = index.getMinLatitude() + position[0] * latitudeSpan;
+            double longitude = index.getMinLongitude() + position[1] * longitudeSpan;
+            for (int[] filter : filters) {
+                double[] expected = IntStream.range(0, table.size())
+                    .filter(row -> filter[0] <= table.getMinimumStayPrice(row) && table.getMinimumStayPrice(row) < filter[1])
+                    .filter(row -> filter[2] == SpatialGridIndex.ANY_ROOM_TYPE || table.getRoomTypeCode(row) == filter[2])
+                    .mapToDouble(row -> SpatialGridIndex.getDistance(latitude, longitude, table.getLatitude(row), table.getLongitude(row)))
+                    .sorted().limit(7).toArray();
+                int[] nearest = index.findNearest(latitude, longitude, 7, filter[0], filter[1], filter[2]);
+                assertEquals(expected.length, nearest.length);
+                for (int i = 0; i < nearest.length; i++) {
+                    double distance = SpatialGridIndex.getDistance(latitude, longitude,
+                        table.getLatitude(nearest[i]), table.getLongitude(nearest[i]));
+                    assertEquals(expected[i], distance, 1e-6);
+                }
+            }
+        }
+
+        // A degree of latitude is about 111 kilometres
+        assertEquals(111195, SpatialGridIndex.getDistance(51, 0, 52, 0), 1);
+        assertEquals(0, index.findNearest(51.5, 0, 0, 0, 10000, SpatialGridIndex.ANY_ROOM_TYPE).length);
+    }
+
+    /**
+     * Test that listings without a position are left out of the index rather than stretching it.
+     */
+    @Test
+    public void testMissingPositions() {
+        ListingTable withMissing = new ListingTable();
+        withMissing.append(table);
+        int first = withMissing.size();
+        withMissing.add("missing1", "No position", "1", "Host", "Camden", -1.0, -1.0, "Private room",
+            50, 1, 0, "", -1.0, 1, 0);
+        withMissing.add("missing2", "No longitude", "1", "Host", "Camden", 51.5, -1.0, "Private room",
+            50, 1, 0, "", -1.0, 1, 0);
+        withMissing.add("missing3", "Off the earth", "1", "Host", "Camden", 151.5, 0.1, "Private room",
+            50, 1, 0, "", -1.0, 1, 0);
+        SpatialGridIndex missingIndex = new SpatialGridIndex(withMissing);
+
+        assertEquals(index.getMinLatitude(), missingIndex.getMinLatitude(), 0);
+        assertEquals(index.getMaxLatitude(), missingIndex.getMaxLatitude(), 0);
+        assertEquals(index.getMinLongitude(), missingIndex.getMinLongitude(), 0);
+        assertEquals(index.getMaxLongitude(), missingIndex.getMaxLongitude(), 0);
+        assertEquals(table.size(), missingIndex.countRows(-90, -180, 90, 180, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        for (int row : missingIndex.findNearest(-1.0, -1.0, 5, 0, 10000, SpatialGridIndex.ANY_ROOM_TYPE)) {
+            assertTrue(row < first);
+        }
+    }
+}
@@ -0,0 +1,840 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Keeps the raw totals behind the statistics of every borough for the listings priced within a
+ * range: the number of listings, reviews and entire homes, the total price, the cheapest private and
+ * shared room, the reviews and listings of every host, and sketches of the distinct hosts and the
+ * nightly prices.
+ *
+ * When the range changes the totals are not thrown away. Listings between the old and the new
+ * bounds are added or taken away instead, which is much less work than going through the whole new
+ * range when the user only moves the minimum or only the maximum price. Taking a listing away can
+ * leave the cheapest room or the leading hosts of a borough out of date; those are only worked out
+ * again when they are next asked for.
+ *
+ * The hosts with the most reviews and with the most listings in each borough are kept on bounded
+ * leaderboards which are offered a host's new totals whenever they change, so the leaders are known
+ * as soon as the listings have been added rather than found by going through every host afterwards.
+ *
+ * When the totals do have to be worked out from scratch, a large range is split into partitions
+ * whose totals are collected in parallel on the common fork/join pool and then merged. Every total is
+ * either a sum, a minimum or a per-host sum, so merging gives exactly the same results as going
+ * through the range in one go. Merging only ever raises a host's totals, so the merged leaderboards
+ * are kept up to date by offering them the hosts of the other accumulator as they are added. Merged
+ * estimates of host totals are different, as they do not record their hosts, so their leaderboards
+ * are worked out again from the listings in the range when they are next asked for.
+ *
+ * For data sets with a very large number of hosts, the totals of each host can be estimated with a
+ * count-min sketch instead of being kept exactly, so that the memory used per borough does not grow
+ * with the number of hosts. The leaderboards are then ranked by the estimates, which may be slightly
+ * too high for hosts sharing counters with busier hosts.
+ *
+ * The number of distinct hosts and the percentiles of the nightly prices are estimated with sketches
+ * which take the same memory however many listings there are. They are only kept for each
+ * neighbourhood; the sketches for all boroughs together are made by merging them when asked for. A
+ * price can be taken away from its sketch, but a host cannot, so taking a listing away leaves the
+ * distinct hosts of its borough to be counted again when they are next asked for.
+ *
+ * Working out the totals is abandoned part way through if the thread asking for them is interrupted,
+ * in which case the totals are emptied so that they are worked out from scratch the next time.
+ *
+ * The totals can be limited to a set of rows, such as the listings matching a ListingFilter, in which
+ * case listings in the range but not in the set are left out as though they were not in the table.
+ *
+ * Boroughs are identified by their neighbourhood code in the table. The code one past the last
+ * neighbourhood code stands for all boroughs together. Hosts are identified by their host id code.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class StatisticsAccumulator {
+
+    // Smallest number of listings worth handing to a separate task
+    private static final int MINIMUM_PARTITION_SIZE = 1 << 13;
+
+    // Number of partitions to aim for per processor, so that busy threads can take work from each other
+    private static final int PARTITIONS_PER_PROCESSOR = 4;
+
+    // Number of hosts kept on each leaderboard
+    public static final int LEADERBOARD_SIZE = 10;
+
+    // Number of rows and counters in each row of the sketches used to estimate host totals
+    public static final int SKETCH_DEPTH = 4;
+    public static final int SKETCH_WIDTH = 1 << 10;
+
+    // Number of listings gone through between checks for the thread asking for the totals being interrupted
+    private static final int INTERRUPT_CHECK_INTERVAL = 1 << 12;
+
+    // Listings and the order of their prices
+    private ListingTable table;
+    private SortedPriceIndex priceOrder;
+
+    // Codes of the room types statistics are collected for
+    private int entireHomeCode;
+    private int privateRoomCode;
+    private int sharedRoomCode;
+
+    // Number of boroughs, including all boroughs together
+    private int boroughCount;
+
+    // Positions in the price order of the first listing in the range and just after the last one
+    private int start;
+    private int end;
+
+    // Totals for each borough, kept as longs so that they cannot overflow however many listings there are
+    private long[] counts;
+    private long[] reviews;
+    private long[] entireHomes;
+    private long[] totalPrices;
+
+    // Cheapest private and shared room in each borough, and whether they need working out again
+    private int[] cheapestPrivateRooms;
+    private int[] cheapestSharedRooms;
+    private boolean[] cheapestRoomsStale;
+
+    // Whether host totals are estimated with sketches rather than kept exactly
+    private boolean hostSketch;
+
+    // Total reviews and number of listings for each host with listings in each borough, keyed by host
+    // code, or null if host totals are estimated
+    private IntLongHashMap[] hostReviews;
+    private IntLongHashMap[] hostListings;
+
+    // Estimated total reviews and number of listings for each host in each borough, or null if host
+    // totals are kept exactly
+    private CountMinSketch[] hostReviewSketches;
+    private CountMinSketch[] hostListingSketches;
+
+    // Distinct hosts of the listings in each neighbourhood, not including all boroughs together, and
+    // whether they need counting again
+    private HyperLogLog[] distinctHosts;
+    private boolean[] distinctHostsStale;
+
+    // Nightly prices of the listings in each neighbourhood, not including all boroughs together
+    private QuantileSketch[] nightlyPrices;
+
+    // Hosts with the most reviews and the most listings in each borough, and whether they need working out again
+    private HostLeaderboard[] reviewLeaders;
+    private HostLeaderboard[] listingLeaders;
+    private boolean[] leadersStale;
+
+    // Whether totals worked out from scratch are collected in parallel
+    private boolean parallel = true;
+
+    // Thread asking for the totals, whose interruption abandons working them out
+    private Thread callingThread;
+
+    // Rows the totals are limited to, or null to include every row
+    private RowBitmap filter;
+
+    /**
+     * Create an accumulator for an empty range which keeps the totals of every host exactly.
+     * @param table The listings statistics are collected for.
+     * @param priceOrder The listings of the table in order of price.
+     */
+    public StatisticsAccumulator(ListingTable table, SortedPriceIndex priceOrder) {
+        this(table, priceOrder, false);
+    }
+
+    /**
+     * Create an accumulator for an empty range.
+     * @param table The listings statistics are collected for.
+     * @param priceOrder The listings of the table in order of price.
+     * @param hostSketch True to estimate the totals of each host in a fixed amount of memory, false to
+     *                   keep them exactly.
+     */
+    public StatisticsAccumulator(ListingTable table, SortedPriceIndex priceOrder, boolean hostSketch) {
+        this.table = table;
+        this.priceOrder = priceOrder;
+        this.hostSketch = hostSketch;
+
+        SymbolTable roomTypes = table.getRoomTypes();
+        entireHomeCode = roomTypes.getCode("Entire home/apt");
+        privateRoomCode = roomTypes.getCode("Private room");
+        sharedRoomCode = roomTypes.getCode("Shared room");
+
+        boroughCount = table.getNeighbourhoods().size() + 1;
+        counts = new long[boroughCount];
+        reviews = new long[boroughCount];
+        entireHomes = new long[boroughCount];
+        totalPrices = new long[boroughCount];
+        cheapestPrivateRooms = new int[boroughCount];
+        cheapestSharedRooms = new int[boroughCount];
+        cheapestRoomsStale = new boolean[boroughCount];
+        if (hostSketch) {
+            hostReviewSketches = new CountMinSketch[boroughCount];
+            hostListingSketches = new CountMinSketch[boroughCount];
+        } else {
+            hostReviews = new IntLongHashMap[boroughCount];
+            hostListings = new IntLongHashMap[boroughCount];
+        }
+        reviewLeaders = new HostLeaderboard[boroughCount];
+        listingLeaders = new HostLeaderboard[boroughCount];
+        for (int borough = 0; borough < boroughCount; borough++) {
+            if (hostSketch) {
+                hostReviewSketches[borough] = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+                hostListingSketches[borough] = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+            } else {
+                hostReviews[borough] = new IntLongHashMap();
+                hostListings[borough] = new IntLongHashMap();
+            }
+            reviewLeaders[borough] = new HostLeaderboard(LEADERBOARD_SIZE);
+            listingLeaders[borough] = new HostLeaderboard(LEADERBOARD_SIZE);
+        }
+        leadersStale = new boolean[boroughCount];
+        distinctHosts = new HyperLogLog[boroughCount - 1];
+        distinctHostsStale = new boolean[boroughCount - 1];
+        nightlyPrices = new QuantileSketch[boroughCount - 1];
+        for (int borough = 0; borough < boroughCount - 1; borough++) {
+            distinctHosts[borough] = new HyperLogLog();
+            nightlyPrices[borough] = new QuantileSketch();
+        }
+        clear();
+    }
+
+    /**
+     * Change the price range the totals are kept for. This is abandoned if the calling thread is
+     * interrupted, leaving the totals empty.
+     * @param minPrice The lowest price in the range.
+     * @param maxPrice The price the range stops just below.
+     * @return True if the totals are for the new range, false if working them out was abandoned.
+     */
+    public boolean setRange(int minPrice, int maxPrice) {
+        callingThread = Thread.currentThread();
+        int newStart = priceOrder.getStart(minPrice);
+        int newEnd = Math.max(newStart, priceOrder.getEnd(maxPrice));
+
+        // Work out how many listings would have to be added or taken away to move each bound
+        boolean overlapping = newStart < end && start < newEnd;
+        int changed = Math.abs(newStart - start) + Math.abs(newEnd - end);
+        if (!overlapping || changed >= newEnd - newStart) {
+            // Starting again is no more work than moving the bounds
+            if (parallel && newEnd - newStart > MINIMUM_PARTITION_SIZE) {
+                // Collect the totals of each partition in parallel and take on the merged result
+                int partitionSize = Math.max(MINIMUM_PARTITION_SIZE,
+                    (newEnd - newStart) / (PARTITIONS_PER_PROCESSOR * ForkJoinPool.getCommonPoolParallelism()));
+                StatisticsAccumulator totals =
+                    ForkJoinPool.commonPool().invoke(new PartialTotals(newStart, newEnd, partitionSize));
+                if (isAbandoned()) {
+                    clear();
+                    return false;
+                }
+                copyTotals(totals);
+            } else {
+                clear();
+                if (!addAll(newStart, newEnd)) {
+                    clear();
+                    return false;
+                }
+            }
+        } else {
+            // Listings below the new minimum are taken away, and those from the new minimum up to the old one
+            // added, then likewise at the maximum. Totals left part way between two ranges are of no use.
+            if (!removeAll(start, newStart) || !addAll(newStart, start)
+                    || !removeAll(newEnd, end) || !addAll(end, newEnd)) {
+                clear();
+                return false;
+            }
+        }
+        start = newStart;
+        end = newEnd;
+        return true;
+    }
+
+    /**
+     * Limit the totals to a set of rows. The totals are worked out from scratch the next time the range
+     * is set, so this should be followed by setting the range.
+     * @param filter The rows to include, or null to include every row.
+     */
+    public void setFilter(RowBitmap filter) {
+        this.filter = filter;
+        clear();
+    }
+
+    /**
+     * Set whether totals which have to be worked out from scratch are collected in parallel. The
+     * totals are the same either way.
+     * @param parallel True to split large ranges between threads, false to use just the calling thread.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return The number of listings in a borough.
+     */
+    public long getCount(int borough) {
+        return counts[borough];
+    }
+
+    /**
+     * @return The total number of reviews of listings in a borough.
+     */
+    public long getReviews(int borough) {
+        return reviews[borough];
+    }
+
+    /**
+     * @return The number of entire homes and apartments in a borough.
+     */
+    public long getEntireHomes(int borough) {
+        return entireHomes[borough];
+    }
+
+    /**
+     * @return The total price of listings in a borough.
+     */
+    public long getTotalPrice(int borough) {
+        return totalPrices[borough];
+    }
+
+    /**
+     * @return The price of the cheapest private room in a borough, or Integer.MAX_VALUE if there is none.
+     */
+    public int getCheapestPrivateRoom(int borough) {
+        if (cheapestRoomsStale[borough]) {
+            updateCheapestRooms();
+        }
+        return cheapestPrivateRooms[borough];
+    }
+
+    /**
+     * @return The price of the cheapest shared room in a borough, or Integer.MAX_VALUE if there is none.
+     */
+    public int getCheapestSharedRoom(int borough) {
+        if (cheapestRoomsStale[borough]) {
+            updateCheapestRooms();
+        }
+        return cheapestSharedRooms[borough];
+    }
+
+    /**
+     * @return True if the totals of each host are estimated rather than kept exactly.
+     */
+    public boolean isHostSketch() {
+        return hostSketch;
+    }
+
+    /**
+     * @return The total reviews of a host's listings in a borough, which is an estimate if host totals are estimated.
+     */
+    public long getHostReviews(int borough, int host) {
+        return hostSketch ? hostReviewSketches[borough].estimate(host) : hostReviews[borough].get(host);
+    }
+
+    /**
+     * @return The number of a host's listings in a borough, which is an estimate if host totals are estimated.
+     */
+    public long getHostListings(int borough, int host) {
+        return hostSketch ? hostListingSketches[borough].estimate(host) : hostListings[borough].get(host);
+    }
+
+    /**
+     * @return The estimated number of distinct hosts with listings in a borough.
+     */
+    public long getDistinctHosts(int borough) {
+        if (borough != boroughCount - 1) {
+            if (distinctHostsStale[borough]) {
+                updateDistinctHosts();
+            }
+            return distinctHosts[borough].estimate();
+        }
+        // Merge the sketches of every neighbourhood, which counts a host with listings in several only once
+        HyperLogLog allHosts = new HyperLogLog();
+        for (int neighbourhood = 0; neighbourhood < boroughCount - 1; neighbourhood++) {
+            if (distinctHostsStale[neighbourhood]) {
+                updateDistinctHosts();
+            }
+            allHosts.merge(distinctHosts[neighbourhood]);
+        }
+        return allHosts.estimate();
+    }
+
+    /**
+     * Get the nightly prices of the listings in a borough, from which percentiles can be read.
+     * @param borough The borough code.
+     * @return A sketch of the prices, which does not change when the range does.
+     */
+    public QuantileSketch getNightlyPrices(int borough) {
+        if (borough != boroughCount - 1) {
+            return nightlyPrices[borough].copy();
+        }
+        QuantileSketch allPrices = new QuantileSketch();
+        for (QuantileSketch neighbourhoodPrices : nightlyPrices) {
+            allPrices.merge(neighbourhoodPrices);
+        }
+        return allPrices;
+    }
+
+    /**
+     * Get the host with the most reviews in a borough. If several hosts have the most reviews the one
+     * which appears first in the data set is chosen.
+     * @param borough The borough code.
+     * @return The host code, or -1 if no host in the borough has any reviews.
+     */
+    public int getMostPopularHost(int borough) {
+        HostLeaderboard leaders = getLeaders(reviewLeaders, borough);
+        return leaders.size() == 0 ? -1 : leaders.getHost(0);
+    }
+
+    /**
+     * Get the hosts with the most reviews in a borough. Hosts without any reviews are left out.
+     * @param borough The borough code.
+     * @return A copy of the leaderboard, which does not change when the range does.
+     */
+    public HostLeaderboard getReviewLeaders(int borough) {
+        return getLeaders(reviewLeaders, borough).copy();
+    }
+
+    /**
+     * Get the hosts with the most listings in a borough.
+     * @param borough The borough code.
+     * @return A copy of the leaderboard, which does not change when the range does.
+     */
+    public HostLeaderboard getListingLeaders(int borough) {
+        return getLeaders(listingLeaders, borough).copy();
+    }
+
+    /**
+     * Reset the accumulator to an empty range.
+     */
+    private void clear() {
+        start = 0;
+        end = 0;
+        Arrays.fill(counts, 0);
+        Arrays.fill(reviews, 0);
+        Arrays.fill(entireHomes, 0);
+        Arrays.fill(totalPrices, 0);
+        Arrays.fill(cheapestPrivateRooms, Integer.MAX_VALUE);
+        Arrays.fill(cheapestSharedRooms, Integer.MAX_VALUE);
+        Arrays.fill(cheapestRoomsStale, false);
+        for (int borough = 0; borough < boroughCount; borough++) {
+            if (hostSketch) {
+                hostReviewSketches[borough].clear();
+                hostListingSketches[borough].clear();
+            } else {
+                hostReviews[borough].clear();
+                hostListings[borough].clear();
+            }
+            reviewLeaders[borough].clear();
+            listingLeaders[borough].clear();
+        }
+        Arrays.fill(leadersStale, false);
+        for (int borough = 0; borough < boroughCount - 1; borough++) {
+            distinctHosts[borough].clear();
+            nightlyPrices[borough].clear();
+        }
+        Arrays.fill(distinctHostsStale, false);
+    }
+
+    /**
+     * Add every listing between two positions in the price order.
+     * @return True if every listing was added, false if this was abandoned part way through.
+     */
+    private boolean addAll(int from, int to) {
+        for (int position = from; position < to; position++) {
+            if ((position - from) % INTERRUPT_CHECK_INTERVAL == 0 && isAbandoned()) {
+                return false;
+            }
+            add(position);
+        }
+        return true;
+    }
+
+    /**
+     * Take away every listing between two positions in the price order.
+     * @return True if every listing was taken away, false if this was abandoned part way through.
+     */
+    private boolean removeAll(int from, int to) {
+        for (int position = from; position < to; position++) {
+            if ((position - from) % INTERRUPT_CHECK_INTERVAL == 0 && isAbandoned()) {
+                return false;
+            }
+            remove(position);
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the thread asking for the totals has been interrupted, so they are no longer wanted.
+     */
+    private boolean isAbandoned() {
+        return callingThread != null && callingThread.isInterrupted();
+    }
+
+    /**
+     * Add the totals of another accumulator, collected over a separate part of the same table, to
+     * the totals of this one.
+     * @param other The accumulator to merge into this one.
+     */
+    private void merge(StatisticsAccumulator other) {
+        for (int borough = 0; borough < boroughCount; borough++) {
+            counts[borough] += other.counts[borough];
+            reviews[borough] += other.reviews[borough];
+            entireHomes[borough] += other.entireHomes[borough];
+            totalPrices[borough] += other.totalPrices[borough];
+            cheapestPrivateRooms[borough] = Math.min(cheapestPrivateRooms[borough], other.cheapestPrivateRooms[borough]);
+            cheapestSharedRooms[borough] = Math.min(cheapestSharedRooms[borough], other.cheapestSharedRooms[borough]);
+            if (hostSketch) {
+                mergeHostSketches(borough, other);
+            } else {
+                mergeHostTotals(borough, other);
+            }
+        }
+        for (int borough = 0; borough < boroughCount - 1; borough++) {
+            distinctHosts[borough].merge(other.distinctHosts[borough]);
+            nightlyPrices[borough].merge(other.nightlyPrices[borough]);
+        }
+    }
+
+    /**
+     * Add the exact host totals of another accumulator in one borough to the totals of this one.
+     * Totals only go up, so offering the leaderboards each host whose totals changed keeps them exact.
+     */
+    private void mergeHostTotals(int borough, StatisticsAccumulator other) {
+        IntLongHashMap otherReviews = other.hostReviews[borough];
+        for (int slot = 0; slot < otherReviews.getSlotCount(); slot++) {
+            if (otherReviews.isSlotUsed(slot)) {
+                int host = otherReviews.getKeyAt(slot);
+                long totalReviews = hostReviews[borough].add(host, otherReviews.getValueAt(slot));
+                long totalListings = hostListings[borough].add(host, other.hostListings[borough].get(host));
+                reviewLeaders[borough].offer(host, totalReviews);
+                listingLeaders[borough].offer(host, totalListings);
+            }
+        }
+    }
+
+    /**
+     * Add the estimated host totals of another accumulator in one borough to the estimates of this
+     * one. The sketches do not record which hosts they hold, and a host which led neither accumulator
+     * may lead the merged totals, so the leaderboards are left to be worked out again from every
+     * listing in the merged range.
+     */
+    private void mergeHostSketches(int borough, StatisticsAccumulator other) {
+        hostReviewSketches[borough].merge(other.hostReviewSketches[borough]);
+        hostListingSketches[borough].merge(other.hostListingSketches[borough]);
+        leadersStale[borough] = true;
+    }
+
+    /**
+     * Take on the totals of another accumulator over the same table in place of the totals of this one.
+     */
+    private void copyTotals(StatisticsAccumulator other) {
+        counts = other.counts;
+        reviews = other.reviews;
+        entireHomes = other.entireHomes;
+        totalPrices = other.totalPrices;
+        cheapestPrivateRooms = other.cheapestPrivateRooms;
+        cheapestSharedRooms = other.cheapestSharedRooms;
+        cheapestRoomsStale = other.cheapestRoomsStale;
+        hostReviews = other.hostReviews;
+        hostListings = other.hostListings;
+        hostReviewSketches = other.hostReviewSketches;
+        hostListingSketches = other.hostListingSketches;
+        reviewLeaders = other.reviewLeaders;
+        listingLeaders = other.listingLeaders;
+        leadersStale = other.leadersStale;
+        distinctHosts = other.distinctHosts;
+        distinctHostsStale = other.distinctHostsStale;
+        nightlyPrices = other.nightlyPrices;
+    }
+
+    /**
+     * Add the listing at a position in the price order to the totals of its borough and of all boroughs.
+     */
+    private void add(int position) {
+        int row = priceOrder.getRow(position);
+        if (!isIncluded(row)) {
+            return;
+        }
+        int price = priceOrder.getPrice(position);
+        int neighbourhood = table.getNeighbourhoodCode(row);
+        add(neighbourhood, row, price);
+        add(boroughCount - 1, row, price);
+
+        // Sketches are only kept for the neighbourhood, all boroughs together being their merge
+        if (!distinctHostsStale[neighbourhood]) {
+            distinctHosts[neighbourhood].add(table.getHostIdCode(row));
+        }
+        nightlyPrices[neighbourhood].add(table.getPrice(row));
+    }
+
+    /**
+     * Add a listing to the totals of one borough.
+     */
+    private void add(int borough, int row, int price) {
+        counts[borough] += 1;
+        reviews[borough] += table.getNumberOfReviews(row);
+        totalPrices[borough] += price;
+
+        int roomType = table.getRoomTypeCode(row);
+        if (roomType == entireHomeCode) {
+            entireHomes[borough] += 1;
+        } else if (roomType == privateRoomCode) {
+            cheapestPrivateRooms[borough] = Math.min(cheapestPrivateRooms[borough], price);
+        } else if (roomType == sharedRoomCode) {
+            cheapestSharedRooms[borough] = Math.min(cheapestSharedRooms[borough], price);
+        }
+
+        changeHostTotals(borough, table.getHostIdCode(row), table.getNumberOfReviews(row), 1);
+    }
+
+    /**
+     * Take the listing at a position in the price order away from the totals of its borough and of all boroughs.
+     */
+    private void remove(int position) {
+        int row = priceOrder.getRow(position);
+        if (!isIncluded(row)) {
+            return;
+        }
+        int price = priceOrder.getPrice(position);
+        int neighbourhood = table.getNeighbourhoodCode(row);
+        remove(neighbourhood, row, price);
+        remove(boroughCount - 1, row, price);
+
+        // The host may have other listings in the range, so the distinct hosts have to be counted again
+        distinctHostsStale[neighbourhood] = true;
+        nightlyPrices[neighbourhood].remove(table.getPrice(row));
+    }
+
+    /**
+     * Take a listing away from the totals of one borough.
+     */
+    private void remove(int borough, int row, int price) {
+        counts[borough] -= 1;
+        reviews[borough] -= table.getNumberOfReviews(row);
+        totalPrices[borough] -= price;
+
+        // Taking away the cheapest room means the next cheapest has to be found
+        int roomType = table.getRoomTypeCode(row);
+        if (roomType == entireHomeCode) {
+            entireHomes[borough] -= 1;
+        } else if (roomType == privateRoomCode && price == cheapestPrivateRooms[borough]) {
+            cheapestRoomsStale[borough] = true;
+        } else if (roomType == sharedRoomCode && price == cheapestSharedRooms[borough]) {
+            cheapestRoomsStale[borough] = true;
+        }
+
+        changeHostTotals(borough, table.getHostIdCode(row), -table.getNumberOfReviews(row), -1);
+    }
+
+    /**
+     * Change the total reviews and number of listings of a host in a borough, keeping the
+     * leaderboards up to date.
+     * @param reviewChange The number of reviews to add, or take away if negative.
+     * @param listingChange The number of listings to add, or take away if negative.
+     */
+    private void changeHostTotals(int borough, int host, int reviewChange, int listingChange) {
+        long totalReviews;
+        long totalListings;
+        if (hostSketch) {
+            totalReviews = hostReviewSketches[borough].add(host, reviewChange);
+            totalListings = hostListingSketches[borough].add(host, listingChange);
+        } else {
+            totalReviews = hostReviews[borough].add(host, reviewChange);
+            totalListings = hostListings[borough].add(host, listingChange);
+        }
+        if (leadersStale[borough]) {
+            return;
+        }
+        // A leader losing reviews or listings means a host which is not on the leaderboard may now belong there
+        boolean reviewLeadersKept = reviewLeaders[borough].offer(host, totalReviews);
+        boolean listingLeadersKept = listingLeaders[borough].offer(host, totalListings);
+        if (!reviewLeadersKept || !listingLeadersKept) {
+            leadersStale[borough] = true;
+        }
+    }
+
+    /**
+     * Get one of the leaderboards of a borough, working the leaderboards out again first if a leader
+     * has been taken away.
+     */
+    private HostLeaderboard getLeaders(HostLeaderboard[] leaderboards, int borough) {
+        if (leadersStale[borough]) {
+            updateLeaders();
+        }
+        return leaderboards[borough];
+    }
+
+    /**
+     * Work out the leaderboards again in every borough where a leader has lost reviews or listings.
+     * Exact host totals are gone through host by host. Estimated totals do not record which hosts
+     * they hold, so the hosts of the listings in the range are offered instead, which is abandoned if
+     * the calling thread is interrupted, leaving the leaderboards to be worked out again next time.
+     */
+    private void updateLeaders() {
+        for (int borough = 0; borough < boroughCount; borough++) {
+            if (leadersStale[borough]) {
+                reviewLeaders[borough].clear();
+                listingLeaders[borough].clear();
+            }
+        }
+        if (hostSketch) {
+            int all = boroughCount - 1;
+            for (int position = start; position < end; position++) {
+                if ((position - start) % INTERRUPT_CHECK_INTERVAL == 0 && isAbandoned()) {
+                    return;
+                }
+                int row = priceOrder.getRow(position);
+                if (!isIncluded(row)) {
+                    continue;
+                }
+                offerEstimates(table.getNeighbourhoodCode(row), table.getHostIdCode(row));
+                offerEstimates(all, table.getHostIdCode(row));
+            }
+        } else {
+            for (int borough = 0; borough < boroughCount; borough++) {
+                if (!leadersStale[borough]) {
+                    continue;
+                }
+                IntLongHashMap boroughHostReviews = hostReviews[borough];
+                for (int slot = 0; slot < boroughHostReviews.getSlotCount(); slot++) {
+                    if (boroughHostReviews.isSlotUsed(slot)) {
+                        int host = boroughHostReviews.getKeyAt(slot);
+                        reviewLeaders[borough].offer(host, boroughHostReviews.getValueAt(slot));
+                        listingLeaders[borough].offer(host, hostListings[borough].get(host));
+                    }
+                }
+            }
+        }
+        Arrays.fill(leadersStale, false);
+    }
+
+    /**
+     * Count the distinct hosts again in every neighbourhood where a listing has been taken away, by
+     * adding the host of every listing in the range to a cleared sketch. This is abandoned if the calling
+     * thread is interrupted, leaving the hosts to be counted again next time.
+     */
+    private void updateDistinctHosts() {
+        for (int borough = 0; borough < boroughCount - 1; borough++) {
+            if (distinctHostsStale[borough]) {
+                distinctHosts[borough].clear();
+            }
+        }
+        for (int position = start; position < end; position++) {
+            if ((position - start) % INTERRUPT_CHECK_INTERVAL == 0 && isAbandoned()) {
+                return;
+            }
+            int row = priceOrder.getRow(position);
+            int neighbourhood = table.getNeighbourhoodCode(row);
+            if (distinctHostsStale[neighbourhood] && isIncluded(row)) {
+                distinctHosts[neighbourhood].add(table.getHostIdCode(row));
+            }
+        }
+        Arrays.fill(distinctHostsStale, false);
+    }
+
+    /**
+     * Check whether a row is in the set the totals are limited to.
+     */
+    private boolean isIncluded(int row) {
+        return filter == null || filter.contains(row);
+    }
+
+    /**
+     * Offer the estimated totals of a host to the leaderboards of a borough if they are being worked out again.
+     */
+    private void offerEstimates(int borough, int host) {
+        if (leadersStale[borough]) {
+            reviewLeaders[borough].offer(host, hostReviewSketches[borough].estimate(host));
+            listingLeaders[borough].offer(host, hostListingSketches[borough].estimate(host));
+        }
+    }
+
+    /**
+     * Work out the cheapest rooms again in every borough where a listing taken away may have been one
+     * of them. As the range is in order of price, the cheapest rooms are the first ones found in it,
+     * so this stops as soon as every one of them has been found.
+     */
+    private void updateCheapestRooms() {
+        int all = boroughCount - 1;
+        int missing = 0;
+        for (int borough = 0; borough < boroughCount; borough++) {
+            if (cheapestRoomsStale[borough]) {
+                cheapestPrivateRooms[borough] = Integer.MAX_VALUE;
+                cheapestSharedRooms[borough] = Integer.MAX_VALUE;
+                missing += 2;
+            }
+        }
+        for (int position = start; position < end && missing > 0; position++) {
+            int row = priceOrder.getRow(position);
+            if (!isIncluded(row)) {
+                continue;
+            }
+            int roomType = table.getRoomTypeCode(row);
+            int price = priceOrder.getPrice(position);
+            missing -= updateCheapestRoom(table.getNeighbourhoodCode(row), roomType, price);
+            missing -= updateCheapestRoom(all, roomType, price);
+        }
+        Arrays.fill(cheapestRoomsStale, false);
+    }
+
+    /**
+     * Record a room as the cheapest of its type in a borough if the borough is being worked out again
+     * and no room of that type has been found yet.
+     * @return 1 if the room was recorded, otherwise 0.
+     */
+    private int updateCheapestRoom(int borough, int roomType, int price) {
+        if (!cheapestRoomsStale[borough]) {
+            return 0;
+        }
+        if (roomType == privateRoomCode && cheapestPrivateRooms[borough] == Integer.MAX_VALUE) {
+            cheapestPrivateRooms[borough] = price;
+            return 1;
+        }
+        if (roomType == sharedRoomCode && cheapestSharedRooms[borough] == Integer.MAX_VALUE) {
+            cheapestSharedRooms[borough] = price;
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Collects the totals of a range of positions in the price order, splitting it in half and
+     * collecting the totals of each half in parallel while it is larger than the partition size.
+     */
+    private class PartialTotals extends RecursiveTask<StatisticsAccumulator> {
+
+        // Version of the task, which is only serializable because every fork/join task is
+        private static final long serialVersionUID = 1L;
+
+        // Positions of the first listing in the range and just after the last one
+        private int from;
+        private int to;
+
+        // Largest number of listings collected without splitting the range
+        private int partitionSize;
+
+        public PartialTotals(int from, int to, int partitionSize) {
+            this.from = from;
+            this.to = to;
+            this.partitionSize = partitionSize;
+        }
+
+        @Override
+        protected StatisticsAccumulator compute() {
+            if (to - from <= partitionSize) {
+                StatisticsAccumulator totals = new StatisticsAccumulator(table, priceOrder, hostSketch);
+                totals.filter = filter;
+                totals.callingThread = callingThread;
+                totals.addAll(from, to);
+                return totals;
+            }
+
+            // Collect the first half on another thread while this thread collects the second half
+            int middle = (from + to) >>> 1;
+            PartialTotals firstHalf = new PartialTotals(from, middle, partitionSize);
+            firstHalf.fork();
+            StatisticsAccumulator secondTotals = new PartialTotals(middle, to, partitionSize).compute();
+            StatisticsAccumulator totals = firstHalf.join();
+
+            // Merged totals are thrown away if the work has been abandoned
+            if (!isAbandoned()) {
+                totals.merge(secondTotals);
+            }
+            return totals;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * The test class StatisticsAccumulatorTest.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class StatisticsAccumulatorTest
+{
+
+    // Price ranges to move through, changing one or both bounds at a time
+    private static final int[][] RANGES = { { 0, 10000 }, { 50, 10000 }, { 50, 500 }, { 100, 500 },
+        { 20, 500 }, { 20, 2500 }, { 200, 1000 }, { 0, 50 }, { 10, 50 }, { 10, 5000 }, { 37, 412 },
+        { 38, 411 }, { 500, 500 }, { 0, 10000 } };
+
+    // Table of listings for the tests
+    private ListingTable table;
+
+    // Listings of the table in order of price
+    private SortedPriceIndex priceOrder;
+
+    /**
+     * Constructor for the test class.
+     */
+    public StatisticsAccumulatorTest() throws IOException {
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        table = dataLoader.loadTable();
+        priceOrder = new SortedPriceIndex(table);
+    }
+
+    /**
+     * Test that the sorted price index finds exactly the listings priced within a range.
+     */
+    @Test
+    public void testPriceOrder() {
+        int expected = 0;
+        for (int row = 0; row < table.size(); row++) {
+            if (50 <= table.getMinimumStayPrice(row) && table.getMinimumStayPrice(row) < 500) {
+                expected++;
+            }
+        }
+        int[] rows = priceOrder.getRows(50, 500);
+        assertEquals(expected, rows.length);
+        for (int row : rows) {
+            assertTrue(50 <= table.getMinimumStayPrice(row) && table.getMinimumStayPrice(row) < 500);
+        }
+    }
+
+    /**
+     * Test that the totals for a range match those found by checking every listing.
+     */
+    @Test
+    public void testTotals() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator(table, priceOrder);
+        accumulator.setRange(50, 500);
+
+        int all = table.getNeighbourhoods().size();
+        int count = 0;
+        int reviews = 0;
+        int cheapestPrivateRoom = Integer.MAX_VALUE;
+        for (int row = 0; row < table.size(); row++) {
+            int price = table.getMinimumStayPrice(row);
+            if (50 <= price && price < 500) {
+                count++;
+                reviews += table.getNumberOfReviews(row);
+                if (table.getRoomType(row).equals("Private room")) {
+                    cheapestPrivateRoom = Math.min(cheapestPrivateRoom, price);
+                }
+            }
+        }
+        assertEquals(count, accumulator.getCount(all));
+        assertEquals(reviews, accumulator.getReviews(all));
+        assertEquals(cheapestPrivateRoom, accumulator.getCheapestPrivateRoom(all));
+    }
+
+    /**
+     * Test that moving the range one bound at a time gives the same totals as starting from scratch.
+     */
+    @Test
+    public void testIncrementalRanges() {
+        StatisticsAccumulator incremental = new StatisticsAccumulator(table, priceOrder);
+        for (int[] range : RANGES) {
+            incremental.setRange(range[0], range[1]);
+            StatisticsAccumulator fresh = new StatisticsAccumulator(table, priceOrder);
+            fresh.setRange(range[0], range[1]);
+            assertSameTotals(fresh, incremental);
+        }
+    }
+
+    /**
+     * Test that collecting the totals in parallel gives the same totals as collecting them on one thread.
+     */
+    @Test
+    public void testParallelTotals() {
+        for (int[] range : RANGES) {
+            StatisticsAccumulator sequential = new StatisticsAccumulator(table, priceOrder);
+            sequential.setParallel(false);
+            sequential.setRange(range[0], range[1]);
+            StatisticsAccumulator parallel = new StatisticsAccumulator(table, priceOrder);
+            parallel.setRange(range[0], range[1]);
+            assertSameTotals(sequential, parallel);
+        }
+    }
+
+    /**
+     * Test that the leaderboards hold the hosts with the most reviews and listings found by checking every listing.
+     */
+    @Test
+    public void testLeaderboards() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator(table, priceOrder);
+        accumulator.setRange(20, 1000);
+
+        int all = table.getNeighbourhoods().size();
+        long[] reviews = new long[table.getHostIds().size()];
+        long[] listings = new long[table.getHostIds().size()];
+        for (int row = 0; row < table.size(); row++) {
+            int price = table.getMinimumStayPrice(row);
+            if (20 <= price && price < 1000) {
+                reviews[table.getHostIdCode(row)] += table.getNumberOfReviews(row);
+                listings[table.getHostIdCode(row)] += 1;
+            }
+        }
+        assertLeaders(reviews, accumulator.getReviewLeaders(all));
+        assertLeaders(listings, accumulator.getListingLeaders(all));
+    }
+
+    /**
+     * Test that estimating host totals with sketches never ranks a host below its true totals.
+     */
+    @Test
+    public void testHostSketch() {
+        assertSketchLeaders(table, priceOrder);
+    }
+
+    /**
+     * Test that hosts are ranked by their estimated totals when the totals are collected in parallel on
+     * made up listings with many hosts, where the leaders of the merged range may have led no partition.
+     */
+    @Test
+    public void testHostSketchWhenMerged() throws IOException {
+        File file = File.createTempFile("accumulator-", ".csv");
+        try {
+            new SyntheticDataGenerator(200000, 3).write(file);
+            AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+            dataLoader.setDataFile(file);
+            dataLoader.setSnapshotCache(false);
+            ListingTable generated = dataLoader.loadTable();
+            assertSketchLeaders(generated, new SortedPriceIndex(generated));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test that the distinct hosts and nightly price percentiles estimated by the sketches are close
+     * to those found by checking every listing, for one borough and for all boroughs together.
+     */
+    @Test
+    public void testSketches() {
+        StatisticsAccumulator accumulator = new StatisticsAccumulator(table, priceOrder);
+        // Move the range so that listings are taken away as well as added
+        accumulator.setRange(0, 10000);
+        accumulator.setRange(20, 1000);
+
+        int all = table.getNeighbourhoods().size();
+        for (int borough : new int[] { 0, all }) {
+            HashSet<Integer> hosts = new HashSet<Integer>();
+            ArrayList<Integer> prices = new ArrayList<Integer>();
+            for (int row = 0; row < table.size(); row++) {
+                int price = table.getMinimumStayPrice(row);
+                if (20 <= price && price < 1000 && (borough == all || table.getNeighbourhoodCode(row) == borough)) {
+                    hosts.add(table.getHostIdCode(row));
+                    prices.add(table.getPrice(row));
+                }
+            }
+            Collections.sort(prices);
+
+            // Distinct hosts within 10%, well beyond the usual error of the sketch
+            assertEquals(hosts.size(), accumulator.getDistinctHosts(borough), hosts.size() * 0.1);
+
+            // Percentiles within the 1% accuracy of the sketch, allowing for rounding
+            QuantileSketch nightlyPrices = accumulator.getNightlyPrices(borough);
+            assertEquals(prices.size(), nightlyPrices.getCount());
+            for (double quantile : new double[] { 0.25, 0.5, 0.75, 0.9, 0.99 }) {
+                int expected = prices.get((int) Math.ceil(quantile * prices.size()) - 1);
+                assertEquals(expected, nightlyPrices.getQuantile(quantile), expected * 0.01 + 1);
+            }
+        }
+    }
+
+    /**
+     * Test that totals limited to a set of rows match those found by checking the rows in the set, as
+     * the range moves and when collected in parallel.
+     */
+    @Test
+    public void testFilter() {
+        RowBitmap filter = new RowBitmap();
+        for (int row = 0; row < table.size(); row++) {
+            if (table.getNumberOfReviews(row) % 3 == 0) {
+                filter.add(row);
+            }
+        }
+        StatisticsAccumulator accumulator = new StatisticsAccumulator(table, priceOrder);
+        accumulator.setRange(0, 10000);
+        accumulator.setFilter(filter);
+
+        int all = table.getNeighbourhoods().size();
+        for (int[] range : RANGES) {
+            accumulator.setRange(range[0], range[1]);
+            long count = 0;
+            long reviews = 0;
+            long entireHomes = 0;
+            int cheapestSharedRoom = Integer.MAX_VALUE;
+            for (int row = 0; row < table.size(); row++) {
+                int price = table.getMinimumStayPrice(row);
+                if (range[0] <= price && price < range[1] && filter.contains(row)) {
+                    count++;
+                    reviews += table.getNumberOfReviews(row);
+                    if (table.getRoomType(row).equals("Entire home/apt")) {
+                        entireHomes++;
+                    } else if (table.getRoomType(row).equals("Shared room")) {
+                        cheapestSharedRoom = Math.min(cheapestSharedRoom, price);
+                    }
+                }
+            }
+            assertEquals(count, accumulator.getCount(all));
+            assertEquals(reviews, accumulator.getReviews(all));
+            assertEquals(entireHomes, accumulator.getEntireHomes(all));
+            assertEquals(cheapestSharedRoom, accumulator.getCheapestSharedRoom(all));
+
+            StatisticsAccumulator sequential = new StatisticsAccumulator(table, priceOrder);
+            sequential.setParallel(false);
+            sequential.setFilter(filter);
+            sequential.setRange(range[0], range[1]);
+            assertSameTotals(sequential, accumulator);
+        }
+    }
+
+    /**
+     * Test that moving to a range is abandoned if the thread is interrupted, and that moving to it again
+     * afterwards gives the same totals as never having been interrupted, on one thread and in parallel.
+     */
+    @Test
+    public void testAbandonedRanges() {
+        for (boolean parallel : new boolean[] { true, false }) {
+            StatisticsAccumulator accumulator = new StatisticsAccumulator(table, priceOrder);
+            accumulator.setParallel(parallel);
+            int abandoned = 0;
+            for (int[] range : RANGES) {
+                Thread.currentThread().interrupt();
+                if (!accumulator.setRange(range[0], range[1])) {
+                    abandoned++;
+                }
+                assertTrue(Thread.interrupted());
+
+                assertTrue(accumulator.setRange(range[0], range[1]));
+                StatisticsAccumulator fresh = new StatisticsAccumulator(table, priceOrder);
+                fresh.setRange(range[0], range[1]);
+                assertSameTotals(fresh, accumulator);
+            }
+            assertTrue(abandoned > RANGES.length / 2);
+        }
+    }
+
+    /**
+     * Check that over every range the hosts ranked by estimated totals are never ranked below their true
+     * totals, and that the top host's estimate is at least the highest true total.
+     */
+    private void assertSketchLeaders(ListingTable table, SortedPriceIndex priceOrder) {
+        StatisticsAccumulator exact = new StatisticsAccumulator(table, priceOrder);
+        StatisticsAccumulator sketch = new StatisticsAccumulator(table, priceOrder, true);
+        for (int[] range : RANGES) {
+            exact.setRange(range[0], range[1]);
+            sketch.setRange(range[0], range[1]);
+            for (int borough = 0; borough <= table.getNeighbourhoods().size(); borough++) {
+                HostLeaderboard leaders = sketch.getListingLeaders(borough);
+                for (int rank = 0; rank < leaders.size(); rank++) {
+                    int host = leaders.getHost(rank);
+                    assertTrue(leaders.getScore(rank) >= exact.getHostListings(borough, host));
+                }
+                HostLeaderboard exactLeaders = exact.getListingLeaders(borough);
+                if (exactLeaders.size() > 0) {
+                    assertTrue(leaders.getScore(0) >= exactLeaders.getScore(0));
+                }
+                leaders = sketch.getReviewLeaders(borough);
+                exactLeaders = exact.getReviewLeaders(borough);
+                if (exactLeaders.size() > 0) {
+                    assertTrue(leaders.getScore(0) >= exactLeaders.getScore(0));
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that a leaderboard holds the hosts with the highest scores, lowest host code first on a tie.
+     */
+    private void assertLeaders(long[] scores, HostLeaderboard leaders) {
+        Integer[] hosts = new Integer[scores.length];
+        for (int host = 0; host < hosts.length; host++) {
+            hosts[host] = host;
+        }
+        Arrays.sort(hosts, (a, b) -> scores[a] != scores[b] ? Long.compare(scores[b], scores[a]) : a - b);
+        for (int rank = 0; rank < leaders.size(); rank++) {
+            assertEquals((int) hosts[rank], leaders.getHost(rank));
+            assertEquals(scores[hosts[rank]], leaders.getScore(rank));
+        }
+        assertEquals(StatisticsAccumulator.LEADERBOARD_SIZE, leaders.size());
+    }
+
+    /**
+     * Check that two accumulators hold the same totals for every borough.
+     */
+    private void assertSameTotals(StatisticsAccumulator expected, StatisticsAccumulator actual) {
+        for (int borough = 0; borough <= table.getNeighbourhoods().size(); borough++) {
+            assertEquals(expected.getCount(borough), actual.getCount(borough));
+            assertEquals(expected.getReviews(borough), actual.getReviews(borough));
+            assertEquals(expected.getEntireHomes(borough), actual.getEntireHomes(borough));
+            assertEquals(expected.getTotalPrice(borough), actual.getTotalPrice(borough));
+            assertEquals(expected.getCheapestPrivateRoom(borough), actual.getCheapestPrivateRoom(borough));
+            assertEquals(expected.getCheapestSharedRoom(borough), actual.getCheapestSharedRoom(borough));
+            assertEquals(expected.getMostPopularHost(borough), actual.getMostPopularHost(borough));
+            assertSameLeaders(expected.getReviewLeaders(borough), actual.getReviewLeaders(borough));
+            assertSameLeaders(expected.getListingLeaders(borough), actual.getListingLeaders(borough));
+            assertEquals(expected.getDistinctHosts(borough), actual.getDistinctHosts(borough));
+            assertEquals(expected.getNightlyPrices(borough).getQuantile(0.5), actual.getNightlyPrices(borough).getQuantile(0.5));
+        }
+    }
+
+    /**
+     * Check that two leaderboards hold the same hosts with the same scores in the same order.
+     */
+    private void assertSameLeaders(HostLeaderboard expected, HostLeaderboard actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertEquals(expected.getHost(rank), actual.getHost(rank));
+            assertEquals(expected.getScore(rank), actual.getScore(rank));
+        }
+    }
+}
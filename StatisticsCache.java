@@ -0,0 +1,112 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the finished statistics for the price ranges viewed most recently. Once the cache is
+ * full, adding the statistics of another price range drops those of the range which has gone unused
+ * the longest. Each snapshot only holds a few numbers per borough, so a full cache stays small.
+ *
+ * The cache counts how many lookups found a snapshot and how many did not, so that its hit rate can
+ * be checked.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class StatisticsCache {
+
+    // Number of price ranges kept when no capacity is given, enough for every range the combo boxes allow
+    private static final int DEFAULT_CAPACITY = 64;
+
+    // Largest number of price ranges kept
+    private int capacity;
+
+    // Snapshots keyed by price range, in order from least to most recently used
+    private LinkedHashMap<Long, StatisticsSnapshot> snapshots;
+
+    // Number of lookups which found a snapshot and which did not
+    private long hits;
+    private long misses;
+
+    /**
+     * Create an empty cache with the default capacity.
+     */
+    public StatisticsCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty cache.
+     * @param capacity The largest number of price ranges to keep.
+     */
+    public StatisticsCache(int capacity) {
+        this.capacity = capacity;
+        // Keep the entries in access order so the eldest entry is always the least recently used
+        snapshots = new LinkedHashMap<Long, StatisticsSnapshot>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, StatisticsSnapshot> eldest) {
+                return size() > StatisticsCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Look up the statistics of a price range.
+     * @param minPrice The lowest price in the range.
+     * @param maxPrice The price the range stops just below.
+     * @return The snapshot of the statistics, or null if they are not in the cache.
+     */
+    public StatisticsSnapshot get(int minPrice, int maxPrice) {
+        StatisticsSnapshot snapshot = snapshots.get(getKey(minPrice, maxPrice));
+        if (snapshot == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Add the statistics of a price range to the cache, making room if the cache is full.
+     * @param minPrice The lowest price in the range.
+     * @param maxPrice The price the range stops just below.
+     * @param snapshot The snapshot of the statistics.
+     */
+    public void put(int minPrice, int maxPrice, StatisticsSnapshot snapshot) {
+        snapshots.put(getKey(minPrice, maxPrice), snapshot);
+    }
+
+    /**
+     * Remove every snapshot, for example because the listings have changed.
+     */
+    public void clear() {
+        snapshots.clear();
+    }
+
+    /**
+     * @return The number of price ranges in the cache.
+     */
+    public int size() {
+        return snapshots.size();
+    }
+
+    /**
+     * @return The number of lookups which found a snapshot.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of lookups which did not find a snapshot.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Combine the two prices of a range into a single key.
+     */
+    private static long getKey(int minPrice, int maxPrice) {
+        return ((long) minPrice << 32) | (maxPrice & 0xffffffffL);
+    }
+}
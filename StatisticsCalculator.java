@@ -0,0 +1,264 @@
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * Calculates the statistics of every borough for a price range from a ListingTable, without anything
+ * to do with how they are displayed, so that they can be calculated on any thread, or without a window
+ * at all as when they are benchmarked.
+ *
+ * The calculator holds the indexes the statistics are calculated with: the order of the listings by
+ * price, and the totals of every borough over the current price range, which follow the range as it
+ * changes. Statistics already calculated are kept in a StatisticsCache.
+ * Only one thread at a time can calculate statistics, as every calculation moves the same totals.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class StatisticsCalculator {
+
+    // Number of hosts above which host totals are estimated rather than kept exactly
+    public static final int HOST_SKETCH_THRESHOLD = 1 << 18;
+
+    // Number of statistics saved for each borough
+    public static final int BOROUGH_STATISTICS_COUNT = 13;
+
+    // Column oriented table of listings which statistics are generated from
+    private ListingTable table;
+
+    // Index of the rows of the table in order of price
+    private SortedPriceIndex priceOrder;
+
+    // Every borough in the table, in alphabetical order, along with "All" for every borough together
+    private TreeSet<String> boroughs;
+
+    // Name of each host, by host id code, as given on the last of their listings
+    private String[] hostNames;
+
+    // Raw totals for each borough over the current price range, kept between price range changes
+    private StatisticsAccumulator accumulator;
+
+    // Finished statistics of the price ranges viewed most recently
+    private StatisticsCache statisticsCache;
+
+    // Rows the accumulator and cache currently hold the totals of, or null for every listing
+    private RowBitmap calculatedFilter;
+
+    // Modification count of the table when the indexes were built
+    private int indexedModificationCount;
+
+    /**
+     * Build the indexes of a table, starting with empty totals and an empty cache.
+     * @param table Table of listings to generate stats from.
+     */
+    public StatisticsCalculator(ListingTable table) {
+        this.table = table;
+
+        // Index the order of the listings by price
+        priceOrder = new SortedPriceIndex(table);
+
+        // Create empty totals for each borough, which follow the price range as it changes, estimating
+        // the totals of each host if there are too many hosts to keep them all
+        accumulator = new StatisticsAccumulator(table, priceOrder, table.getHostIds().size() >= HOST_SKETCH_THRESHOLD);
+        statisticsCache = new StatisticsCache();
+        indexedModificationCount = table.getModificationCount();
+
+        // Add an "All" borough to represent no specific selection, and each distinct borough in the table
+        boroughs = new TreeSet<String>();
+        boroughs.add("All");
+        SymbolTable neighbourhoods = table.getNeighbourhoods();
+        for (int code = 0; code < neighbourhoods.size(); code++) {
+            boroughs.add(neighbourhoods.getSymbol(code));
+        }
+
+        // Look up the name of each host so that the top hosts can be shown by name
+        hostNames = new String[table.getHostIds().size()];
+        for (int row = 0; row < table.size(); row++) {
+            hostNames[table.getHostIdCode(row)] = table.getHostName(row);
+        }
+    }
+
+    /**
+     * Get the statistics of each borough for a price range, calculating them only if they are not
+     * already in the cache. A calculation is abandoned if its thread is interrupted.
+     * @param minPrice The minimum price for the price range.
+     * @param maxPrice The maximum price for the price range.
+     * @param filter The rows of the listings to include, or null to include every listing.
+     * @return The statistics, or null if the calculation was abandoned.
+     */
+    public synchronized StatisticsSnapshot getSnapshot(int minPrice, int maxPrice, RowBitmap filter) {
+        // Statistics calculated with another filter no longer apply
+        setFilter(filter);
+
+        // Look up the statistics for this price range, only calculating them the first time they are needed
+        StatisticsSnapshot snapshot = statisticsCache.get(minPrice, maxPrice);
+        if (snapshot == null) {
+            snapshot = calculateSnapshot(minPrice, maxPrice, filter);
+            if (snapshot != null) {
+                statisticsCache.put(minPrice, maxPrice, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Calculate each of the statistics for each borough for a price range, whether or not they are in the
+     * cache, and without adding them to it. A calculation is abandoned if its thread is interrupted.
+     * @param minPrice The minimum price for the price range.
+     * @param maxPrice The maximum price for the price range.
+     * @param filter The rows of the listings to include, or null to include every listing.
+     * @return The finished statistics, or null if the calculation was abandoned.
+     */
+    public synchronized StatisticsSnapshot calculateSnapshot(int minPrice, int maxPrice, RowBitmap filter) {
+        setFilter(filter);
+
+        // Boroughs and hosts are identified by their codes in the table
+        SymbolTable neighbourhoods = table.getNeighbourhoods();
+        SymbolTable hostIds = table.getHostIds();
+        // Code of the totals for all boroughs
+        int all = neighbourhoods.size();
+
+        // Move the totals over to the new price range, which only adds or takes away the listings priced
+        // between the old and new minimum and between the old and new maximum
+        if (!accumulator.setRange(minPrice, maxPrice)) {
+            return null;
+        }
+
+        // Create statistics array for each borough
+        HashMap<String, long[]> statisticsByBorough = new HashMap<String, long[]>();
+
+        // Create leaderboards of the top hosts for each borough
+        HashMap<String, HostLeaderboard> reviewLeaders = new HashMap<String, HostLeaderboard>();
+        HashMap<String, HostLeaderboard> listingLeaders = new HashMap<String, HostLeaderboard>();
+
+        // Set most expensive price to default
+        long mostExpensivePrice = 0;
+        // Set most expensive borough to default
+        String mostExpensiveBorough = "All";
+        
+        // Iterate through all boroughs
+        for (String borough : boroughs) {
+            // Stop between boroughs if the calculation has been abandoned, leaving the totals usable by the next
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+
+            // Get the code of the totals for this borough
+            int code = borough.equals("All") ? all : neighbourhoods.getCode(borough);
+
+            // Create this boroughs statistics with default values
+            long[] statistics = new long[BOROUGH_STATISTICS_COUNT];
+            statisticsByBorough.put(borough, statistics);
+
+            // Copy the totals for this borough into its statistics
+            statistics[0] = accumulator.getReviews(code);
+            statistics[1] = accumulator.getCount(code);
+            statistics[2] = accumulator.getEntireHomes(code);
+            statistics[3] = accumulator.getTotalPrice(code);
+            statistics[5] = accumulator.getCheapestPrivateRoom(code);
+            statistics[6] = accumulator.getCheapestSharedRoom(code);
+
+            // Get specific values from statistics
+            long totalReviews = statistics[0];
+            long totalProperties = statistics[1];
+            long totalPrice = statistics[3];
+
+            // Check if there are any properties in this borough (for this price range)
+            if (totalProperties > 0) {
+                // Calculate average reviews
+                statistics[0] = totalReviews / totalProperties;
+                // Calculate average price
+                statistics[3] = totalPrice / totalProperties;
+                
+                // If average price for this borough is greater than the most expensive borough price
+                if (statistics[3] > mostExpensivePrice) {
+                    // Replace most expensive price
+                    mostExpensivePrice = statistics[3];
+                    // Update most expensive borough to this one
+                    mostExpensiveBorough = borough;
+                }
+            }
+            
+            // Get the host with the most reviews in this borough
+            int popularHost = accumulator.getMostPopularHost(code);
+
+            // Save most popular host ID as a number, or 0 if no host has any reviews
+            statistics[7] = popularHost < 0 ? 0 : Long.parseLong(hostIds.getSymbol(popularHost));
+
+            // Save the estimated number of distinct hosts, which for all boroughs is merged from the
+            // sketches of each borough so that hosts in several boroughs are only counted once
+            statistics[8] = accumulator.getDistinctHosts(code);
+
+            // Read the nightly price percentiles from a sketch of the prices, likewise merged for all boroughs
+            QuantileSketch nightlyPrices = accumulator.getNightlyPrices(code);
+            statistics[9] = nightlyPrices.getQuantile(0.5);
+            statistics[10] = nightlyPrices.getQuantile(0.9);
+            statistics[11] = nightlyPrices.getQuantile(0.99);
+            statistics[12] = nightlyPrices.getQuantile(0.75) - nightlyPrices.getQuantile(0.25);
+
+            // Save the hosts with the most reviews and the most listings in this borough
+            reviewLeaders.put(borough, accumulator.getReviewLeaders(code));
+            listingLeaders.put(borough, accumulator.getListingLeaders(code));
+        }
+
+        // Totals read while the calculation was being abandoned may not have been worked out in full
+        if (Thread.currentThread().isInterrupted()) {
+            return null;
+        }
+        return new StatisticsSnapshot(statisticsByBorough, mostExpensiveBorough, reviewLeaders, listingLeaders);
+    }
+
+    /**
+     * @return True if listings have been added to the table since it was indexed, so the statistics
+     *         calculated no longer include every listing.
+     */
+    public boolean isOutdated() {
+        return table.getModificationCount() != indexedModificationCount;
+    }
+
+    /**
+     * @return The table the statistics are calculated from.
+     */
+    public ListingTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return Every borough in the table in alphabetical order, along with "All".
+     */
+    public TreeSet<String> getBoroughs() {
+        return boroughs;
+    }
+
+    /**
+     * @param host The code of a host id in the table.
+     * @return The name given on the last listing of the host.
+     */
+    public String getHostName(int host) {
+        return hostNames[host];
+    }
+
+    /**
+     * @return The totals of each borough over the price range calculated most recently.
+     */
+    public StatisticsAccumulator getAccumulator() {
+        return accumulator;
+    }
+
+    /**
+     * @return The cache of the statistics calculated.
+     */
+    public StatisticsCache getStatisticsCache() {
+        return statisticsCache;
+    }
+
+    /**
+     * Limit the totals to a set of listings, emptying the cache if the set has changed.
+     */
+    private void setFilter(RowBitmap filter) {
+        if (filter != calculatedFilter) {
+            accumulator.setFilter(filter);
+            statisticsCache = new StatisticsCache();
+            calculatedFilter = filter;
+        }
+    }
+}
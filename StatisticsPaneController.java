@@ -1,3 +1,4 @@
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
@@ -9,6 +10,10 @@ import java.util.TreeSet;
 import javafx.scene.control.ComboBox;
 import javafx.event.ActionEvent;
 import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class represents a series of statistics based on the data set provided. The structure of the panel is 
@@ -16,14 +21,25 @@ import java.util.Arrays;
  * to navigate through each one accordingly. The core functionalities and calculations for statistics are handled 
  * within this class as well as the relevant validation checks. 
  *
+ * When the price range or filter changes quickly, such as while the user scrolls through the combo boxes,
+ * the statistics are calculated on a background thread once the changes have paused for a moment. A
+ * calculation still running when another change arrives is abandoned, and only the statistics of the
+ * latest change are shown.
+ *
  * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
  * @version 1.6
  */
 public class StatisticsPaneController {
 
+    // Number of hosts shown in the top host statistics
+    private static final int TOP_HOSTS_SHOWN = 3;
+
+    // Time to wait for further changes before calculating the statistics in the background
+    private static final long CALCULATION_DELAY_MILLIS = 100;
+
     // ComboBox allows a user to select a borough of their choice
     @FXML
-    private ComboBox boroughComboBox;
+    private ComboBox<String> boroughComboBox;
 
     // Label for the statistics name at index 0
     @FXML
@@ -98,6 +114,9 @@ public class StatisticsPaneController {
     // Reference to the array of listings
     private ArrayList<AirbnbListing> listings;
 
+    // Column oriented table of listings which statistics are generated from
+    private ListingTable table;
+
     // Minimum and maximum price to filter by
     private int minPrice;
     private int maxPrice;
@@ -105,10 +124,13 @@ public class StatisticsPaneController {
     // Array to hold statistic names
     private String[] statNames = { "Average number of reviews per property", "Total number of available properties",
     "The number of entire home and apartments (as opposed to private rooms)", "The most expensive borough",
-    "Average property price", "Least expensive private room", "Least expensive shared room", "Most popular host" };
+    "Average property price", "Least expensive private room", "Least expensive shared room", "Most popular host",
+    "Top hosts by number of reviews", "Top hosts by number of listings", "Number of distinct hosts (approximate)",
+    "Median nightly price (approximate)", "90th percentile nightly price (approximate)",
+    "99th percentile nightly price (approximate)", "Interquartile range of nightly prices (approximate)" };
     
     // Array to hold statistic values
-    private String[] statValues = { "0", "0", "0", "0", "0", "0", "0", "0" };
+    private String[] statValues = { "0", "0", "0", "0", "0", "0", "0", "0", "0", "0", "0", "0", "0", "0", "0" };
     
     // Ordered set to keep track of boroughs
     private TreeSet<String> boroughs;
@@ -117,9 +139,26 @@ public class StatisticsPaneController {
     private String currentBorough;
 
     // Statistics for each borough
-    HashMap<String, Integer[]> boroughStatistics;
-    // Statistics for each host in each borough
-    HashMap<String, HashMap<String, Integer>> boroughHostStatistics;
+    HashMap<String, long[]> boroughStatistics;
+
+    // Calculates the statistics of each borough, holding the indexes and totals they are calculated with,
+    // and replaced on the calculation thread when listings are added
+    private volatile StatisticsCalculator calculator;
+
+    // Rows the statistics are limited to, or null for every listing
+    private RowBitmap filter;
+
+    // Thread the statistics are calculated on in the background, created when first needed
+    private ScheduledExecutorService calculationThread;
+
+    // The latest calculation waiting to start or running in the background, or null if there is none
+    private ScheduledFuture<?> pendingCalculation;
+
+    // Number of calculations requested, so that only the statistics of the latest one are shown
+    private long calculationsRequested;
+
+    // Statistics shown for the current price range, or null if none have been shown yet
+    private StatisticsSnapshot shownSnapshot;
 
     /**
      * Initialize this pane with some initial statistics.
@@ -137,60 +176,123 @@ public class StatisticsPaneController {
     }
 
     /** 
-     * Add the listings array reference.
+     * Add the listings array reference. Listings added to the end of the array later are included the
+     * next time the statistics are updated.
      * @param listings Array of listings to generate stats from.
      */
     public void addListings(ArrayList<AirbnbListing> listings) {
         // Set a reference to the array
         this.listings = listings;
 
-        // Create an empty set of boroughs
-        boroughs = new TreeSet<String>();
-        
-        // Add an "All" borough to represented no specific selection
-        boroughs.add("All");
+        // Generate statistics from a table holding the same rows
+        setTable(ListingTable.fromListings(listings));
+    }
 
-        // Iterate through all listings
-        for (AirbnbListing listing : listings) {
-            // Add their borough to the set of boroughs
-            boroughs.add(listing.getNeighbourhood());
-        }
+    /** 
+     * Add the table of listings. Rows added to the table later are included the next time the statistics
+     * are updated.
+     * @param table Table of listings to generate stats from.
+     */
+    public void addListings(ListingTable table) {
+        // The table is not made from an array of listings, so there is no array to follow
+        listings = null;
+        setTable(table);
+    }
 
-        // Add boroughs to the borough selection combo box
-        boroughComboBox.getItems().addAll(boroughs);
+    /**
+     * Generate statistics from a table of listings, starting with every borough selected.
+     * @param table Table of listings to generate stats from.
+     */
+    private void setTable(ListingTable table) {
+        // Set a reference to the table
+        this.table = table;
 
         // Set default value of borough selection to be "All"
-        boroughComboBox.setValue("All");
         currentBorough = "All";
 
-        // Create statistics array for each borough
-        boroughStatistics = new HashMap<String, Integer[]>();
+        // Build the indexes and caches the statistics are calculated with, and show the boroughs of the table
+        indexListings();
+        boroughComboBox.setValue("All");
+    }
 
-        // Create empty statistics for each borough in the set
+    /**
+     * Build the indexes of the table and start with empty totals and an empty cache, so that
+     * statistics are calculated from the listings currently in the table.
+     */
+    private void indexListings() {
+        // Index the order of the listings by price, the totals for each borough, which follow the price
+        // range as it changes, and the name of each host
+        calculator = new StatisticsCalculator(table);
+
+        // Listings added since the table was last indexed may be in boroughs not yet shown
+        updateBoroughs(calculator);
+
+        // A filter of the older listings no longer applies
+        filter = null;
+    }
+
+    /**
+     * Show the boroughs a calculator has statistics for in the borough selection, keeping the selected
+     * borough if there is one, and start each borough with empty statistics.
+     * @param calculator The calculator the statistics shown next come from.
+     */
+    private void updateBoroughs(StatisticsCalculator calculator) {
+        // Get the set of boroughs, with an "All" borough to represent no specific selection
+        boroughs = calculator.getBoroughs();
+
+        // Add boroughs to the borough selection combo box in alphabetical order, keeping those already
+        // added, so that the selected borough stays selected
+        int index = 0;
         for (String borough : boroughs) {
-            boroughStatistics.put(borough, new Integer[8]);
+            if (index == boroughComboBox.getItems().size() || !borough.equals(boroughComboBox.getItems().get(index))) {
+                boroughComboBox.getItems().add(index, borough);
+            }
+            index++;
         }
 
-        // Create host map for each borough
-        boroughHostStatistics = new HashMap<String, HashMap<String, Integer>>();
+        // Create statistics array for each borough
+        boroughStatistics = new HashMap<String, long[]>();
 
         // Create empty statistics for each borough in the set
         for (String borough : boroughs) {
-            boroughHostStatistics.put(borough, new HashMap<String, Integer>());
+            boroughStatistics.put(borough, new long[StatisticsCalculator.BOROUGH_STATISTICS_COUNT]);
+        }
+    }
+
+    /**
+     * Add the listings added to the end of the array of listings since the table was made from it to the
+     * table too, so that the statistics see they are out of date.
+     */
+    private void addNewListings() {
+        if (listings != null) {
+            for (int row = table.size(); row < listings.size(); row++) {
+                table.add(listings.get(row));
+            }
         }
     }
 
+    /**
+     * Limit the statistics to a set of listings, such as those matching a filter. The statistics shown
+     * change the next time they are updated.
+     * @param filter The rows of the listings to include, or null to include every listing.
+     */
+    public void setFilter(RowBitmap filter) {
+        this.filter = filter;
+    }
+
     /**
      * Action if borough selection has been changed.
      */
     @FXML
     private void boroughModified(ActionEvent event) {
         // Get selected borough
-        currentBorough = (String) boroughComboBox.getValue();
+        currentBorough = boroughComboBox.getValue();
         
-        // Calculate and update statistics
-        calculateStatisticsValues();
-        updateStatisticsText();
+        // Show the statistics already calculated for this borough, if any have been
+        if (shownSnapshot != null) {
+            setStatisticsValues(shownSnapshot);
+            updateStatisticsText();
+        }
     }
 
     /**
@@ -200,11 +302,11 @@ public class StatisticsPaneController {
         // Set first statistic left button action
         stat0Left.setOnAction(event -> {
             // Decrease currently selected statistic and wrap around if negative
-            stat0 = (stat0 + 7) % 8;
+            stat0 = (stat0 + statNames.length - 1) % statNames.length;
             // While new statistic is already in the list
             while (stat0 == stat1 || stat0 == stat2 || stat0 == stat3) {
                 // Move to previous statistic
-                stat0 = (stat0 + 7) % 8;
+                stat0 = (stat0 + statNames.length - 1) % statNames.length;
             }
             // Once valid statistic has been selected, update statistics text
             updateStatisticsText();
@@ -213,11 +315,11 @@ public class StatisticsPaneController {
         // Set first statistic right button action
         stat0Right.setOnAction(event -> {
             // Increase to next statistic and wrap around if greater than number of statistics
-            stat0 = (stat0 + 1) % 8;
+            stat0 = (stat0 + 1) % statNames.length;
             // While new statistic is already in the list
             while (stat0 == stat1 || stat0 == stat2 || stat0 == stat3) {
                 // Move to next statistic
-                stat0 = (stat0 + 1) % 8;
+                stat0 = (stat0 + 1) % statNames.length;
             }
             // Once valid statistic has been selected, update statistics text
             updateStatisticsText();
@@ -225,54 +327,54 @@ public class StatisticsPaneController {
         
         // Set second statistic left button action
         stat1Left.setOnAction(event -> {
-            stat1 = (stat1 + 7) % 8;
+            stat1 = (stat1 + statNames.length - 1) % statNames.length;
             while (stat1 == stat0 || stat1 == stat2 || stat1 == stat3) {
-                stat1 = (stat1 + 7) % 8;
+                stat1 = (stat1 + statNames.length - 1) % statNames.length;
             }
             updateStatisticsText();
         });
 
         // Set second statistic right button action
         stat1Right.setOnAction(event -> {
-            stat1 = (stat1 + 1) % 8;
+            stat1 = (stat1 + 1) % statNames.length;
             while (stat1 == stat0 || stat1 == stat2 || stat1 == stat3) {
-                stat1 = (stat1 + 1) % 8;
+                stat1 = (stat1 + 1) % statNames.length;
             }
             updateStatisticsText();
         });
 
         // Set third statistic left button action
         stat2Left.setOnAction(event -> {
-            stat2 = (stat2 + 7) % 8;
+            stat2 = (stat2 + statNames.length - 1) % statNames.length;
             while (stat2 == stat0 || stat2 == stat1 || stat2 == stat3) {
-                stat2 = (stat2 + 7) % 8;
+                stat2 = (stat2 + statNames.length - 1) % statNames.length;
             }
             updateStatisticsText();
         });
 
         // Set third statistic right button action
         stat2Right.setOnAction(event -> {
-            stat2 = (stat2 + 1) % 8;
+            stat2 = (stat2 + 1) % statNames.length;
             while (stat2 == stat0 || stat2 == stat1 || stat2 == stat3) {
-                stat2 = (stat2 + 1) % 8;
+                stat2 = (stat2 + 1) % statNames.length;
             }
             updateStatisticsText();
         });
 
         // Set fourth statistic left button action
         stat3Left.setOnAction(event -> {
-            stat3 = (stat3 + 7) % 8;
+            stat3 = (stat3 + statNames.length - 1) % statNames.length;
             while (stat3 == stat0 || stat3 == stat1 || stat3 == stat2) {
-                stat3 = (stat3 + 7) % 8;
+                stat3 = (stat3 + statNames.length - 1) % statNames.length;
             }
             updateStatisticsText();
         });
 
         // Set fourth statistic right button action
         stat3Right.setOnAction(event -> {
-            stat3 = (stat3 + 1) % 8;
+            stat3 = (stat3 + 1) % statNames.length;
             while (stat3 == stat0 || stat3 == stat1 || stat3 == stat2) {
-                stat3 = (stat3 + 1) % 8;
+                stat3 = (stat3 + 1) % statNames.length;
             }
             updateStatisticsText();
         });
@@ -294,6 +396,85 @@ public class StatisticsPaneController {
         updateStatisticsText();
     }
 
+    /**
+     * Update statistics values for the current price range, for example after the filter has changed.
+     */
+    public void updateStatisticsValues() {
+        calculateStatisticsValues();
+        updateStatisticsText();
+    }
+
+    /**
+     * Update statistics values for a price range in the background, without holding up the window. The
+     * statistics are calculated once no other update has been requested for a moment, abandoning any
+     * calculation still running, and are shown on the FX thread unless a later update has been requested.
+     * @param minPrice The minimum price for the price range.
+     * @param maxPrice The maximum price for the price range.
+     */
+    public void requestStatisticsUpdate(int minPrice, int maxPrice) {
+        // Set min and max price for statistics
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        requestStatisticsUpdate();
+    }
+
+    /**
+     * Update statistics values for the current price range in the background, for example after the
+     * filter has changed.
+     */
+    public void requestStatisticsUpdate() {
+        // Calculate on a daemon thread so it does not stop the application closing
+        if (calculationThread == null) {
+            calculationThread = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Statistics calculator");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        // Abandon the previous calculation, interrupting it if it has started
+        if (pendingCalculation != null) {
+            pendingCalculation.cancel(true);
+        }
+
+        // If listings have been added since the table was indexed, a filter of the older listings no longer applies
+        addNewListings();
+        if (calculator.isOutdated()) {
+            filter = null;
+        }
+
+        // Capture what to calculate now, as the fields may change before the calculation starts
+        ListingTable calculationTable = table;
+        long calculation = ++calculationsRequested;
+        int calculationMinPrice = minPrice;
+        int calculationMaxPrice = maxPrice;
+        RowBitmap calculationFilter = filter;
+        pendingCalculation = calculationThread.schedule(() -> {
+            // Start again from the new listings if any have been added, indexing them here rather than
+            // holding up the window, unless an earlier calculation has already done so
+            StatisticsCalculator currentCalculator = calculator;
+            if (currentCalculator.isOutdated()) {
+                StatisticsCalculator indexedCalculator = new StatisticsCalculator(calculationTable);
+                calculator = indexedCalculator;
+                Platform.runLater(() -> updateBoroughs(indexedCalculator));
+                currentCalculator = indexedCalculator;
+            }
+
+            StatisticsSnapshot snapshot = currentCalculator.getSnapshot(calculationMinPrice, calculationMaxPrice,
+                calculationFilter);
+
+            // Show the statistics unless the calculation was abandoned or a later one has been requested since
+            if (snapshot != null) {
+                Platform.runLater(() -> {
+                    if (calculation == calculationsRequested) {
+                        setStatisticsValues(snapshot);
+                        updateStatisticsText();
+                    }
+                });
+            }
+        }, CALCULATION_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
     /**
      * Update text of statistic labels.
      */
@@ -312,187 +493,65 @@ public class StatisticsPaneController {
     }
 
     /**
-     * Calculate each of the statistics for each borough.
+     * Get the statistics of each borough for the current price range, calculating them only if they
+     * are not already in the cache, and set the values for the currently selected borough.
      */
     private void calculateStatisticsValues() {
-        // Set statistics for each borough to defaults to begin with.
-        for (String borough : boroughs) {
-            // Get statistics array
-            Integer[] stats = boroughStatistics.get(borough);
-            // Set to default values
-            Arrays.fill(stats, Integer.valueOf(0));
-            stats[5] = Integer.MAX_VALUE;
-            stats[6] = Integer.MAX_VALUE;
-
-            // Clear host popularity in this borough
-            boroughHostStatistics.get(borough).clear();
+        // If listings have been added since the table was indexed, start again from the new listings
+        addNewListings();
+        if (calculator.isOutdated()) {
+            indexListings();
         }
+        setStatisticsValues(calculator.getSnapshot(minPrice, maxPrice, filter));
+    }
 
-        // Iterate through all the listings
-        for (AirbnbListing listing : listings) {
-            // Get the minimum price of listing as the price per night multiplied by the minimum number of nights
-            Integer listingPrice = listing.getPrice() * listing.getMinimumNights();
-
-            // Check if listing price lies within the price range
-            if (minPrice <= listingPrice && listingPrice < maxPrice) {
-                 // Get reference to all borough statistics
-                Integer[] statsAll = boroughStatistics.get("All");
-
-                // Get the borough of this listing
-                String listingBorough = listing.getNeighbourhood();
-                // Get reference to the statistics for this listing's borough
-                Integer[] statsBorough = boroughStatistics.get(listingBorough);
-
-                // Get the number of reviews for this listing
-                Integer listingReviews = listing.getNumberOfReviews();
-                
-                // Add this listing's reviews to the total reviews for all boroughs
-                statsAll[0] += listingReviews;
-                // Add this listing's reviews to the total reviews for this borough
-                statsBorough[0] += listingReviews;
-
-                // Increment total number of properties for all boroughs
-                statsAll[1] += 1;
-                // Increment total number of properties for this borough
-                statsBorough[1] += 1;
-
-                // Get the room type for this listing
-                String listingRoom = listing.getRoom_type();
-                // Check if listing room is an entire home or apartment
-                if (listingRoom.equals("Entire home/apt")) {
-                    // Increment total number of entire homes/apartments for all boroughs
-                    statsAll[2] += 1;
-                    // Increment total number of entire homes/apartments for this borough
-                    statsBorough[2] += 1;
-                }
-                // Check if listing room is a private room
-                else if (listingRoom.equals("Private room")) {
-                    // If listing price is less than current lowest private room cost for all boroughs
-                    if (listingPrice < statsAll[5]) {
-                        // Update lowest cost private room
-                        statsAll[5] = listingPrice;
-                    }
-                    // If listing price is less than current lowest private room cost for this borough
-                    if (listingPrice < statsBorough[5]) {
-                        // Update lowest cost private room
-                        statsBorough[5] = listingPrice;
-                    }
-                }
-                // Check if listing room is a shared room
-                else if (listingRoom.equals("Shared room")) {
-                    // If listing price is less than current lowest shared room cost for all boroughs
-                    if (listingPrice < statsAll[6]) {
-                        // Update lowest cost shared room
-                        statsAll[6] = listingPrice;
-                    }
-                    // If listing price is less than current lowest shared room cost for this borough
-                    if (listingPrice < statsBorough[6]) {
-                        // Update lowest cost shared room
-                        statsBorough[6] = listingPrice;
-                    }
-                }
-
-                // Add listing price to total prices for all boroughs
-                statsAll[3] += listingPrice;
-                // Add listing price to total prices for this borough
-                statsBorough[3] += listingPrice;
-
-                // Get host ID of this listing
-                String listingHostID = listing.getHost_id();
-
-                // Get the hosts for all boroughs
-                HashMap<String, Integer> hostStatsAll = boroughHostStatistics.get("All");
-                // Increase hosts reviews across all boroughs
-                hostStatsAll.put(listingHostID, hostStatsAll.getOrDefault(listingHostID, 0) + listingReviews);
-                
-                // Get the hosts for this borough
-                HashMap<String, Integer> hostStatsBorough = boroughHostStatistics.get(listingBorough);
-                // Increase hosts reviews for this borough
-                hostStatsBorough.put(listingHostID, hostStatsBorough.getOrDefault(listingHostID, 0) + listingReviews);
-            }
-        }
-
-        // Set most expensive price to default
-        Integer mostExpensivePrice = 0;
-        // Set most expensive borough to default
-        String mostExpensiveBorough = "All";
-        
-        // Iterate through all boroughs
-        for (String borough : boroughs) {
-            // Get this boroughs statistics
-            Integer[] statistics = boroughStatistics.get(borough);
-            // Get specific values from statistics
-            Integer totalReviews = statistics[0];
-            Integer totalProperties = statistics[1];
-            Integer totalPrice = statistics[3];
-
-            // Check if there are any properties in this borough (for this price range)
-            if (totalProperties > 0) {
-                // Calculate average reviews
-                statistics[0] = totalReviews / totalProperties;
-                // Calculate average price
-                statistics[3] = totalPrice / totalProperties;
-                
-                // If average price for this borough is greater than the most expensive borough price
-                if (statistics[3] > mostExpensivePrice) {
-                    // Replace most expensive price
-                    mostExpensivePrice = statistics[3];
-                    // Update most expensive borough to this one
-                    mostExpensiveBorough = borough;
-                }
-            }
-            
-            // Set highest reviews to start at minimum
-            Integer highestReviews = 0;
-            // Set popular host to be default
-            String highestReviewsHost = "0";
-            
-            // Get this boroughs host popularity
-            HashMap<String, Integer> hostStatsBorough = boroughHostStatistics.get(borough);
-
-            // Go through all hosts
-            for (String host : hostStatsBorough.keySet()) {
-                // If host is more popular than current most popular
-                if (hostStatsBorough.get(host) > highestReviews) {
-                    // Update highest reviews
-                    highestReviews = hostStatsBorough.get(host);
-                    // Update most popular host
-                    highestReviewsHost = host;
-                }
-            }
-
-            // Save most popular host ID as a number
-            statistics[7] = Integer.parseInt(highestReviewsHost);
-        }
+    /**
+     * Set the values of the statistics for the currently selected borough.
+     * @param snapshot The statistics of each borough for the current price range.
+     */
+    private void setStatisticsValues(StatisticsSnapshot snapshot) {
+        shownSnapshot = snapshot;
+        boroughStatistics = snapshot.getBoroughStatistics();
+        String mostExpensiveBorough = snapshot.getMostExpensiveBorough();
 
         // Get the statistics for the currently selected borough
-        Integer[] currentStatistics = boroughStatistics.get(currentBorough);
+        long[] currentStatistics = boroughStatistics.get(currentBorough);
 
         // Average reviews
-        String averageReviews = currentStatistics[0].toString();
+        String averageReviews = Long.toString(currentStatistics[0]);
         // Total properties
-        String totalProperties = currentStatistics[1].toString();
+        String totalProperties = Long.toString(currentStatistics[1]);
         // Total homes/apartments
-        String totalHomes = currentStatistics[2].toString();
+        String totalHomes = Long.toString(currentStatistics[2]);
         // Most expensive borough
         String mostExpensive = mostExpensiveBorough;
         // Average cost
-        String averageCost = currentStatistics[3].toString();
+        String averageCost = Long.toString(currentStatistics[3]);
         // Minimum cost of private room
-        String minimumPrivate = currentStatistics[5].toString();
+        String minimumPrivate = Long.toString(currentStatistics[5]);
         // Minimum cost of shared room
-        String minimumShared = currentStatistics[6].toString();
+        String minimumShared = Long.toString(currentStatistics[6]);
         // Most popular host
-        String popularHost = currentStatistics[7].toString();
+        String popularHost = Long.toString(currentStatistics[7]);
+        // Top hosts by reviews and by listings
+        String topReviewHosts = formatTopHosts(snapshot.getReviewLeaders().get(currentBorough), "reviews");
+        String topListingHosts = formatTopHosts(snapshot.getListingLeaders().get(currentBorough), "listings");
+        // Distinct hosts
+        String distinctHosts = Long.toString(currentStatistics[8]);
+        // Nightly price percentiles and interquartile range
+        String medianPrice = "£" + currentStatistics[9];
+        String ninetiethPercentilePrice = "£" + currentStatistics[10];
+        String ninetyNinthPercentilePrice = "£" + currentStatistics[11];
+        String interquartileRange = "£" + currentStatistics[12];
         
         // If minimum value is still max
-        if (minimumPrivate.equals("2147483647")) {
+        if (currentStatistics[5] == Integer.MAX_VALUE) {
             // Give error message
             minimumPrivate = "No available private rooms";
         }
         
         // If minimum value is still max
-        if (minimumShared.equals("2147483647")) {
+        if (currentStatistics[6] == Integer.MAX_VALUE) {
             // Give error message
             minimumShared = "No available shared rooms";
         }
@@ -504,6 +563,13 @@ public class StatisticsPaneController {
         if (totalProperties.equals("0")) {
             // Give error messages
             popularHost = "No hosts available";
+            topReviewHosts = "No hosts available";
+            topListingHosts = "No hosts available";
+            distinctHosts = "No hosts available";
+            medianPrice = "No prices available";
+            ninetiethPercentilePrice = "No prices available";
+            ninetyNinthPercentilePrice = "No prices available";
+            interquartileRange = "No prices available";
             averageReviews = "No reviews available";
             averageCost = "No costs available";
             totalHomes = "No homes available";
@@ -518,6 +584,32 @@ public class StatisticsPaneController {
         statValues[5] = minimumPrivate;
         statValues[6] = minimumShared;
         statValues[7] = popularHost;
+        statValues[8] = topReviewHosts;
+        statValues[9] = topListingHosts;
+        statValues[10] = distinctHosts;
+        statValues[11] = medianPrice;
+        statValues[12] = ninetiethPercentilePrice;
+        statValues[13] = ninetyNinthPercentilePrice;
+        statValues[14] = interquartileRange;
+    }
+
+    /**
+     * Format the first few hosts on a leaderboard for display.
+     * @param leaders The leaderboard.
+     * @param unit What the hosts are ranked by, such as "reviews".
+     * @return The names and scores of the top hosts, best first.
+     */
+    private String formatTopHosts(HostLeaderboard leaders, String unit) {
+        // If no host has a score
+        if (leaders.size() == 0) {
+            return "No hosts available";
+        }
+        String[] topHosts = new String[Math.min(TOP_HOSTS_SHOWN, leaders.size())];
+        for (int rank = 0; rank < topHosts.length; rank++) {
+            topHosts[rank] = (rank + 1) + ". " + calculator.getHostName(leaders.getHost(rank))
+                + " (" + leaders.getScore(rank) + " " + unit + ")";
+        }
+        return String.join("  ", topHosts);
     }
 
     public ArrayList<AirbnbListing> testListings() {
@@ -540,12 +632,20 @@ public class StatisticsPaneController {
         return boroughs;
     }
 
-    public HashMap<String, Integer[]> testBoroughStatistics() {
+    public HashMap<String, long[]> testBoroughStatistics() {
         return boroughStatistics;
     }
 
-    public HashMap<String, HashMap<String, Integer>> testBoroughHostStatistics() {
-        return boroughHostStatistics;
+    public ComboBox<String> testBoroughComboBox() {
+        return boroughComboBox;
+    }
+
+    public StatisticsAccumulator testAccumulator() {
+        return calculator.getAccumulator();
+    }
+
+    public StatisticsCache testStatisticsCache() {
+        return calculator.getStatisticsCache();
     }
 
     public ArrayList<String> testStatisticsNames() {
@@ -115,15 +115,15 @@ public class StatisticsPaneControllerTest
             boroughs.add(listing.getNeighbourhood());
         }
 
-        HashMap<String, Integer[]> boroughStatistics = new HashMap<String, Integer[]>();
+        HashMap<String, long[]> boroughStatistics = new HashMap<String, long[]>();
         
         for (String borough : boroughs) {
-            boroughStatistics.put(borough, new Integer[8]);
+            boroughStatistics.put(borough, new long[13]);
         }
 
         statisticsPaneController.addListings(listings);
 
-        HashMap<String, Integer[]> testBoroughStatistics =  statisticsPaneController.testBoroughStatistics();
+        HashMap<String, long[]> testBoroughStatistics =  statisticsPaneController.testBoroughStatistics();
         
         for (String borough : boroughs) {
             assertArrayEquals(boroughStatistics.get(borough), testBoroughStatistics.get(borough));
@@ -134,26 +134,96 @@ public class StatisticsPaneControllerTest
      * Test that host statistics are correctly initialized.
      */
     @Test
-    public void testBoroughHostStatistics() {
+    public void testAccumulator() {
         AirbnbDataLoader dataLoader = new AirbnbDataLoader();
         ArrayList<AirbnbListing> listings = dataLoader.load();
 
         TreeSet<String> boroughs = new TreeSet<String>();  
-        
-        boroughs.add("All");
-        
+
         for (AirbnbListing listing : listings) {
             boroughs.add(listing.getNeighbourhood());
         }
-        
-        HashMap<String, HashMap<String, Integer>> boroughHostStatistics = new HashMap<String, HashMap<String, Integer>>();
-        
-        for (String borough : boroughs) {
-            boroughHostStatistics.put(borough, new HashMap<String, Integer>());
+
+        statisticsPaneController.addListings(listings);
+        StatisticsAccumulator accumulator = statisticsPaneController.testAccumulator();
+
+        for (int borough = 0; borough <= boroughs.size(); borough++) {
+            assertEquals(0, accumulator.getCount(borough));
+            assertEquals(-1, accumulator.getMostPopularHost(borough));
         }
+    }
+
+    /**
+     * Test that statistics for a price range are only calculated the first time they are needed.
+     */
+    @Test
+    public void testStatisticsCache() {
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        ArrayList<AirbnbListing> listings = dataLoader.load();
+        statisticsPaneController.addListings(listings);
 
+        statisticsPaneController.updateStatisticsValues(20, 1000);
+        ArrayList<String> statValues = statisticsPaneController.testStatisticsValues();
+        statisticsPaneController.updateStatisticsValues(50, 1000);
+        statisticsPaneController.updateStatisticsValues(20, 1000);
+
+        StatisticsCache statisticsCache = statisticsPaneController.testStatisticsCache();
+        assertEquals(2, statisticsCache.getMisses());
+        assertEquals(1, statisticsCache.getHits());
+        assertEquals(statValues, statisticsPaneController.testStatisticsValues());
+    }
+
+    /**
+     * Test that listings added to the table in a new borough are included once the statistics are
+     * updated, rather than the statistics cached before, and that the borough can then be selected
+     * without changing the selected borough.
+     */
+    @Test
+    public void testNewBorough() throws IOException {
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        ListingTable table = dataLoader.loadTable();
+        statisticsPaneController.addListings(table);
+        statisticsPaneController.testBoroughComboBox().setValue("Camden");
+        statisticsPaneController.updateStatisticsValues(0, 10000);
+        statisticsPaneController.updateStatisticsValues(0, 10000);
+        assertEquals(1, statisticsPaneController.testStatisticsCache().getHits());
+        assertFalse(statisticsPaneController.testBoroughSet().contains("Atlantis"));
+
+        table.add("1", "Test listing", "1", "Test host", "Atlantis", 51.5, -0.1, "Private room", 50, 1, 3, "",
+            0.5, 1, 100);
+        statisticsPaneController.updateStatisticsValues(0, 10000);
+
+        assertEquals(1, statisticsPaneController.testStatisticsCache().getMisses());
+        assertEquals(0, statisticsPaneController.testStatisticsCache().getHits());
+        assertTrue(statisticsPaneController.testBoroughSet().contains("Atlantis"));
+        assertTrue(statisticsPaneController.testBoroughComboBox().getItems().contains("Atlantis"));
+        assertEquals("Camden", statisticsPaneController.testBoroughComboBox().getValue());
+        assertEquals(1, statisticsPaneController.testBoroughStatistics().get("Atlantis")[1]);
+    }
+
+    /**
+     * Test that listings added to the array of listings are included once the statistics are updated,
+     * rather than the statistics cached before.
+     */
+    @Test
+    public void testNewListing() {
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        ArrayList<AirbnbListing> listings = dataLoader.load();
         statisticsPaneController.addListings(listings);
-        assertEquals(boroughHostStatistics, statisticsPaneController.testBoroughHostStatistics());
+        statisticsPaneController.updateStatisticsValues(0, 10000);
+        long camdenListings = statisticsPaneController.testBoroughStatistics().get("Camden")[1];
+
+        listings.add(new AirbnbListing("1", "Test listing", "1", "Test host", "Atlantis", 51.5, -0.1, "Private room",
+            50, 1, 3, "", 0.5, 1, 100));
+        listings.add(new AirbnbListing("2", "Test listing", "1", "Test host", "Camden", 51.5, -0.1, "Private room",
+            50, 1, 3, "", 0.5, 1, 100));
+        statisticsPaneController.updateStatisticsValues(0, 10000);
+
+        assertEquals(1, statisticsPaneController.testStatisticsCache().getMisses());
+        assertEquals(0, statisticsPaneController.testStatisticsCache().getHits());
+        assertTrue(statisticsPaneController.testBoroughComboBox().getItems().contains("Atlantis"));
+        assertEquals(1, statisticsPaneController.testBoroughStatistics().get("Atlantis")[1]);
+        assertEquals(camdenListings + 1, statisticsPaneController.testBoroughStatistics().get("Camden")[1]);
     }
 
     /**
@@ -0,0 +1,53 @@
+import java.util.HashMap;
+
+/**
+ * The finished statistics of every borough for one price range, ready to be displayed. Snapshots
+ * are kept in a StatisticsCache so that the statistics of a price range only have to be worked out
+ * once, however many times the user comes back to it or switches between boroughs.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class StatisticsSnapshot {
+
+    // Statistics for each borough, in the order they are listed in StatisticsPaneController
+    private HashMap<String, long[]> boroughStatistics;
+
+    // Borough with the highest average price
+    private String mostExpensiveBorough;
+
+    // Hosts with the most reviews and with the most listings in each borough
+    private HashMap<String, HostLeaderboard> reviewLeaders;
+    private HashMap<String, HostLeaderboard> listingLeaders;
+
+    /**
+     * Create a snapshot of finished statistics.
+     * @param boroughStatistics The statistics for each borough.
+     * @param mostExpensiveBorough The borough with the highest average price.
+     * @param reviewLeaders The hosts with the most reviews in each borough.
+     * @param listingLeaders The hosts with the most listings in each borough.
+     */
+    public StatisticsSnapshot(HashMap<String, long[]> boroughStatistics, String mostExpensiveBorough,
+            HashMap<String, HostLeaderboard> reviewLeaders, HashMap<String, HostLeaderboard> listingLeaders) {
+        this.boroughStatistics = boroughStatistics;
+        this.mostExpensiveBorough = mostExpensiveBorough;
+        this.reviewLeaders = reviewLeaders;
+        this.listingLeaders = listingLeaders;
+    }
+
+    public HashMap<String, long[]> getBoroughStatistics() {
+        return boroughStatistics;
+    }
+
+    public String getMostExpensiveBorough() {
+        return mostExpensiveBorough;
+    }
+
+    public HashMap<String, HostLeaderboard> getReviewLeaders() {
+        return reviewLeaders;
+    }
+
+    public HashMap<String, HostLeaderboard> getListingLeaders() {
+        return listingLeaders;
+    }
+}
@@ -0,0 +1,422 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * Collects the statistics of every borough for one price range from listings passed to it one at a
+ * time, as they are read from the csv file, so that data sets too large to be held in memory as a
+ * ListingTable can still be summarised. Nothing is kept of a listing once it has been added apart from
+ * its part in the totals, so the memory used does not grow with the number of listings.
+ *
+ * The statistics are the same ones the Statistics pane shows, worked out in the same way as by a
+ * StatisticsCalculator over the same listings: the totals of each borough are kept as by a
+ * StatisticsAccumulator which is only ever added to, and the same sketches estimate the distinct hosts
+ * and the nightly price percentiles. A snapshot of the statistics can be taken at any point.
+ *
+ * Hosts are given codes in the order they first appear, as they are in a ListingTable, until
+ * StatisticsCalculator.HOST_SKETCH_THRESHOLD hosts have been seen. Up to then the totals of each host
+ * are kept exactly, so the statistics match those of a StatisticsCalculator. After that the totals of
+ * each host are estimated with count-min sketches, as a StatisticsCalculator does for that many hosts,
+ * and hosts not yet seen are identified by a hash of their host id, so that memory stays bounded
+ * however many hosts there are. Host ids and names are only kept for the hosts on a leaderboard.
+ *
+ * As no rows are kept, the statistics cannot be limited to the listings matching a ListingFilter, and
+ * a different price range needs the listings to be read again.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class StreamingStatistics {
+
+    // Number of hosts kept for each leaderboard entry before those no longer on a leaderboard are forgotten
+    private static final int HOSTS_KEPT_PER_LEADER = 4;
+
+    // Price range the statistics are collected for, from the minimum up to just below the maximum
+    private int minPrice;
+    private int maxPrice;
+
+    // Neighbourhoods in the order they first appear, and the totals of each by neighbourhood code
+    private SymbolTable neighbourhoods;
+    private ArrayList<BoroughTotals> neighbourhoodTotals;
+
+    // Totals of all boroughs together
+    private BoroughTotals allTotals;
+
+    // Host ids in the order they first appear, until there are too many to keep
+    private SymbolTable hostIds;
+
+    // Whether host totals are estimated with sketches rather than kept exactly
+    private boolean hostSketch;
+
+    // Id and name of the hosts which have been on a leaderboard, keyed by host code
+    private HashMap<Integer, String[]> leaderHosts;
+
+    // Number of listings added, whether or not they were in the price range
+    private long listingsRead;
+
+    /**
+     * Create empty statistics for a price range.
+     * @param minPrice The lowest minimum stay price in the range.
+     * @param maxPrice The minimum stay price the range stops just below.
+     */
+    public StreamingStatistics(int minPrice, int maxPrice) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        neighbourhoods = new SymbolTable();
+        neighbourhoodTotals = new ArrayList<BoroughTotals>();
+        allTotals = new BoroughTotals(false);
+        hostIds = new SymbolTable();
+        leaderHosts = new HashMap<Integer, String[]>();
+    }
+
+    /**
+     * Add a listing to the statistics, leaving it out of the totals if it is not priced within the range.
+     * @param hostId The id of the listing's host.
+     * @param hostName The name of the listing's host.
+     * @param neighbourhood The borough the listing is in.
+     * @param roomType The type of room.
+     * @param price The price per night.
+     * @param minimumNights The fewest nights the listing can be booked for.
+     * @param numberOfReviews The number of reviews of the listing.
+     */
+    public void add(String hostId, String hostName, String neighbourhood, String roomType,
+            int price, int minimumNights, int numberOfReviews) {
+        listingsRead++;
+
+        // Find the totals of the neighbourhood, creating them the first time it appears. Neighbourhoods
+        // and hosts are given codes whatever the price, so that they are the same as in a ListingTable
+        int code = neighbourhoods.intern(neighbourhood);
+        if (code == neighbourhoodTotals.size()) {
+            neighbourhoodTotals.add(new BoroughTotals(true));
+        }
+        BoroughTotals totals = neighbourhoodTotals.get(code);
+        int host = getHostCode(hostId);
+
+        // Filter by the price of a minimum stay, worked out as a ListingTable does
+        long stayPrice = (long) price * minimumNights;
+        int minimumStayPrice = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, stayPrice));
+        if (minimumStayPrice < minPrice || minimumStayPrice >= maxPrice) {
+            return;
+        }
+
+        totals.add(host, roomType, minimumStayPrice, numberOfReviews);
+        allTotals.add(host, roomType, minimumStayPrice, numberOfReviews);
+
+        // Sketches are only kept for the neighbourhood, all boroughs together being their merge
+        totals.distinctHosts.add(host);
+        totals.nightlyPrices.add(price);
+
+        // Remember who the host is while they are on a leaderboard, which for a host still there at the end
+        // leaves the name of their last listing as a ListingTable would
+        if (totals.isLeader(host) || allTotals.isLeader(host)) {
+            leaderHosts.put(host, new String[] { hostId, hostName });
+            if (leaderHosts.size() > HOSTS_KEPT_PER_LEADER * 2 * StatisticsAccumulator.LEADERBOARD_SIZE
+                    * (neighbourhoodTotals.size() + 1)) {
+                forgetFormerLeaders();
+            }
+        }
+    }
+
+    /**
+     * Take a snapshot of the statistics of every borough so far, in the same form as a
+     * StatisticsCalculator, so it can be shown the same way. The hosts on the leaderboards are
+     * identified by codes which can be looked up with getHostId and getHostName.
+     * @return The statistics.
+     */
+    public StatisticsSnapshot getSnapshot() {
+        HashMap<String, long[]> statisticsByBorough = new HashMap<String, long[]>();
+        HashMap<String, HostLeaderboard> reviewLeaders = new HashMap<String, HostLeaderboard>();
+        HashMap<String, HostLeaderboard> listingLeaders = new HashMap<String, HostLeaderboard>();
+        long mostExpensivePrice = 0;
+        String mostExpensiveBorough = "All";
+
+        for (String borough : getBoroughs()) {
+            BoroughTotals totals = borough.equals("All") ? allTotals : neighbourhoodTotals.get(neighbourhoods.getCode(borough));
+            long[] statistics = new long[StatisticsCalculator.BOROUGH_STATISTICS_COUNT];
+            statisticsByBorough.put(borough, statistics);
+
+            statistics[0] = totals.reviews;
+            statistics[1] = totals.count;
+            statistics[2] = totals.entireHomes;
+            statistics[3] = totals.totalPrice;
+            statistics[5] = totals.cheapestPrivateRoom;
+            statistics[6] = totals.cheapestSharedRoom;
+
+            // Average the reviews and prices, keeping track of the borough with the highest average price
+            if (totals.count > 0) {
+                statistics[0] = totals.reviews / totals.count;
+                statistics[3] = totals.totalPrice / totals.count;
+                if (statistics[3] > mostExpensivePrice) {
+                    mostExpensivePrice = statistics[3];
+                    mostExpensiveBorough = borough;
+                }
+            }
+
+            // Save most popular host ID as a number, or 0 if no host has any reviews
+            HostLeaderboard boroughReviewLeaders = totals.reviewLeaders.copy();
+            statistics[7] = boroughReviewLeaders.size() == 0 ? 0 : Long.parseLong(getHostId(boroughReviewLeaders.getHost(0)));
+
+            // Estimate the distinct hosts and price percentiles, merging the neighbourhoods for all boroughs
+            HyperLogLog distinctHosts = totals.distinctHosts;
+            QuantileSketch nightlyPrices = totals.nightlyPrices;
+            if (totals == allTotals) {
+                distinctHosts = new HyperLogLog();
+                nightlyPrices = new QuantileSketch();
+                for (BoroughTotals neighbourhood : neighbourhoodTotals) {
+                    distinctHosts.merge(neighbourhood.distinctHosts);
+                    nightlyPrices.merge(neighbourhood.nightlyPrices);
+                }
+            }
+            statistics[8] = distinctHosts.estimate();
+            statistics[9] = nightlyPrices.getQuantile(0.5);
+            statistics[10] = nightlyPrices.getQuantile(0.9);
+            statistics[11] = nightlyPrices.getQuantile(0.99);
+            statistics[12] = nightlyPrices.getQuantile(0.75) - nightlyPrices.getQuantile(0.25);
+
+            reviewLeaders.put(borough, boroughReviewLeaders);
+            listingLeaders.put(borough, totals.listingLeaders.copy());
+        }
+
+        return new StatisticsSnapshot(statisticsByBorough, mostExpensiveBorough, reviewLeaders, listingLeaders);
+    }
+
+    /**
+     * @return Every borough read so far in alphabetical order, along with "All".
+     */
+    public TreeSet<String> getBoroughs() {
+        TreeSet<String> boroughs = new TreeSet<String>();
+        boroughs.add("All");
+        for (int code = 0; code < neighbourhoods.size(); code++) {
+            boroughs.add(neighbourhoods.getSymbol(code));
+        }
+        return boroughs;
+    }
+
+    /**
+     * @param host The code of a host on one of the leaderboards.
+     * @return The host's id.
+     */
+    public String getHostId(int host) {
+        return leaderHosts.get(host)[0];
+    }
+
+    /**
+     * @param host The code of a host on one of the leaderboards.
+     * @return The host's name.
+     */
+    public String getHostName(int host) {
+        return leaderHosts.get(host)[1];
+    }
+
+    /**
+     * @return The number of listings added, including those outside the price range.
+     */
+    public long getListingsRead() {
+        return listingsRead;
+    }
+
+    /**
+     * @return True if the totals of each host are estimated rather than kept exactly, because there are
+     *         too many hosts to keep them all.
+     */
+    public boolean isHostSketch() {
+        return hostSketch;
+    }
+
+    /**
+     * Summarise a csv file with the same columns as the AirBnB London data set, printing the statistics
+     * of every borough for a price range without loading the listings into memory.
+     * @param args The csv file, optionally followed by the minimum and maximum minimum stay price.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java StreamingStatistics file [minPrice] [maxPrice]");
+            return;
+        }
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        dataLoader.setDataFile(new File(args[0]));
+        dataLoader.setMemoryMapped(true);
+        int minPrice = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int maxPrice = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+
+        long start = System.nanoTime();
+        StreamingStatistics statistics = dataLoader.loadStatistics(minPrice, maxPrice);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        StatisticsSnapshot snapshot = statistics.getSnapshot();
+
+        System.out.printf("%-24s %9s %9s %8s %9s %8s %8s %8s %8s %8s  %s%n", "Borough", "Listings", "Avg price",
+            "Reviews", "Entire", "Private", "Shared", "Median", "P90", "Hosts", "Most reviewed host");
+        for (String borough : statistics.getBoroughs()) {
+            long[] values = snapshot.getBoroughStatistics().get(borough);
+            HostLeaderboard leaders = snapshot.getReviewLeaders().get(borough);
+            System.out.printf("%-24s %9d %9d %8d %9d %8s %8s %8d %8d %8d  %s%n", borough, values[1], values[3],
+                values[0], values[2], formatPrice(values[5]), formatPrice(values[6]), values[9], values[10], values[8],
+                leaders.size() == 0 ? "-" : statistics.getHostName(leaders.getHost(0)));
+        }
+        System.out.println("Most expensive borough: " + snapshot.getMostExpensiveBorough());
+        System.out.printf("Read %d listings in %.1f s, host totals %s, %d MB of heap in use%n",
+            statistics.getListingsRead(), seconds, statistics.isHostSketch() ? "estimated" : "exact",
+            (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20);
+    }
+
+    /**
+     * @return A cheapest room price, or "-" if there is no such room.
+     */
+    private static String formatPrice(long price) {
+        return price == Integer.MAX_VALUE ? "-" : Long.toString(price);
+    }
+
+    /**
+     * Find the code of a host, handing out the next code if the host has not been seen before. Once
+     * too many hosts have been seen to keep every host id, the totals of each host are estimated from
+     * then on, and a host not seen before is given a code above those handed out from a hash of its id.
+     */
+    private int getHostCode(String hostId) {
+        int host = hostIds.getCode(hostId);
+        if (host >= 0) {
+            return host;
+        }
+        if (!hostSketch && hostIds.size() < StatisticsCalculator.HOST_SKETCH_THRESHOLD) {
+            return hostIds.intern(hostId);
+        }
+        if (!hostSketch) {
+            useHostSketches();
+        }
+        // Hosts whose ids share a hash are counted as one, which the sketches allow for anyway
+        int hash = hostId.hashCode() * 0x9E3779B9;
+        return StatisticsCalculator.HOST_SKETCH_THRESHOLD + ((hash ^ (hash >>> 16)) & 0x3FFFFFFF);
+    }
+
+    /**
+     * Start estimating the totals of each host in every borough, moving the exact totals kept so far into sketches.
+     */
+    private void useHostSketches() {
+        hostSketch = true;
+        allTotals.useHostSketches();
+        for (BoroughTotals totals : neighbourhoodTotals) {
+            totals.useHostSketches();
+        }
+    }
+
+    /**
+     * Forget the ids and names of hosts which are no longer on any leaderboard.
+     */
+    private void forgetFormerLeaders() {
+        HashMap<Integer, String[]> leaders = new HashMap<Integer, String[]>();
+        allTotals.keepLeaders(leaderHosts, leaders);
+        for (BoroughTotals totals : neighbourhoodTotals) {
+            totals.keepLeaders(leaderHosts, leaders);
+        }
+        leaderHosts = leaders;
+    }
+
+    /**
+     * The totals of one borough, or of all boroughs together, which are only ever added to.
+     */
+    private class BoroughTotals {
+
+        // Number of listings, reviews and entire homes, and the total minimum stay price
+        long count;
+        long reviews;
+        long entireHomes;
+        long totalPrice;
+
+        // Cheapest private and shared room, or Integer.MAX_VALUE if there is none
+        int cheapestPrivateRoom = Integer.MAX_VALUE;
+        int cheapestSharedRoom = Integer.MAX_VALUE;
+
+        // Total reviews and number of listings for each host, kept exactly or estimated
+        IntLongHashMap hostReviews = new IntLongHashMap();
+        IntLongHashMap hostListings = new IntLongHashMap();
+        CountMinSketch hostReviewSketch;
+        CountMinSketch hostListingSketch;
+
+        // Hosts with the most reviews and the most listings, always up to date as totals only go up
+        HostLeaderboard reviewLeaders = new HostLeaderboard(StatisticsAccumulator.LEADERBOARD_SIZE);
+        HostLeaderboard listingLeaders = new HostLeaderboard(StatisticsAccumulator.LEADERBOARD_SIZE);
+
+        // Distinct hosts and nightly prices, or null for all boroughs together
+        HyperLogLog distinctHosts;
+        QuantileSketch nightlyPrices;
+
+        /**
+         * @param neighbourhood True for the totals of one neighbourhood, which keep sketches of its
+         *                      hosts and prices.
+         */
+        BoroughTotals(boolean neighbourhood) {
+            if (neighbourhood) {
+                distinctHosts = new HyperLogLog();
+                nightlyPrices = new QuantileSketch();
+            }
+            if (hostSketch) {
+                useHostSketches();
+            }
+        }
+
+        /**
+         * Add a listing priced within the range.
+         */
+        void add(int host, String roomType, int price, int numberOfReviews) {
+            count += 1;
+            reviews += numberOfReviews;
+            totalPrice += price;
+            if (roomType.equals("Entire home/apt")) {
+                entireHomes += 1;
+            } else if (roomType.equals("Private room")) {
+                cheapestPrivateRoom = Math.min(cheapestPrivateRoom, price);
+            } else if (roomType.equals("Shared room")) {
+                cheapestSharedRoom = Math.min(cheapestSharedRoom, price);
+            }
+
+            long hostTotalReviews;
+            long hostTotalListings;
+            if (hostReviewSketch != null) {
+                hostTotalReviews = hostReviewSketch.add(host, numberOfReviews);
+                hostTotalListings = hostListingSketch.add(host, 1);
+            } else {
+                hostTotalReviews = hostReviews.add(host, numberOfReviews);
+                hostTotalListings = hostListings.add(host, 1);
+            }
+            reviewLeaders.offer(host, hostTotalReviews);
+            listingLeaders.offer(host, hostTotalListings);
+        }
+
+        /**
+         * @return True if a host is on either leaderboard.
+         */
+        boolean isLeader(int host) {
+            return reviewLeaders.contains(host) || listingLeaders.contains(host);
+        }
+
+        /**
+         * Move the exact host totals into sketches, which are used from then on.
+         */
+        void useHostSketches() {
+            hostReviewSketch = new CountMinSketch(StatisticsAccumulator.SKETCH_DEPTH, StatisticsAccumulator.SKETCH_WIDTH);
+            hostListingSketch = new CountMinSketch(StatisticsAccumulator.SKETCH_DEPTH, StatisticsAccumulator.SKETCH_WIDTH);
+            for (int slot = 0; slot < hostReviews.getSlotCount(); slot++) {
+                if (hostReviews.isSlotUsed(slot)) {
+                    int host = hostReviews.getKeyAt(slot);
+                    hostReviewSketch.add(host, hostReviews.getValueAt(slot));
+                    hostListingSketch.add(host, hostListings.get(host));
+                }
+            }
+            hostReviews = null;
+            hostListings = null;
+        }
+
+        /**
+         * Copy the id and name of each host on the leaderboards from one map to another.
+         */
+        void keepLeaders(HashMap<Integer, String[]> from, HashMap<Integer, String[]> to) {
+            for (HostLeaderboard leaders : new HostLeaderboard[] { reviewLeaders, listingLeaders }) {
+                for (int rank = 0; rank < leaders.size(); rank++) {
+                    int host = leaders.getHost(rank);
+                    to.put(host, from.get(host));
+                }
+            }
+        }
+    }
+}
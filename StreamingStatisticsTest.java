@@ -0,0 +1,164 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The test class StreamingStatisticsTest.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class StreamingStatisticsTest
+{
+
+    // Price ranges to compare, including an empty one
+    private static final int[][] RANGES = { { 0, Integer.MAX_VALUE }, { 0, 10000 }, { 50, 500 }, { 37, 412 },
+        { 200, 1000 }, { 500, 500 } };
+
+    /**
+     * Test that streaming the AirBnB London data set gives the same statistics as calculating them
+     * from the loaded table.
+     */
+    @Test
+    public void testMatchesCalculator() throws IOException {
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        ListingTable table = dataLoader.loadTable();
+        StatisticsCalculator calculator = new StatisticsCalculator(table);
+        for (int[] range : RANGES) {
+            assertMatches(table, calculator, dataLoader.loadStatistics(range[0], range[1]), range);
+        }
+    }
+
+    /**
+     * Test that both ways of reading a larger made up data set, whose rows are split into several chunks
+     * when memory mapped, give the same statistics as the loaded table.
+     */
+    @Test
+    public void testMatchesCalculatorWhenMapped() throws IOException {
+        File file = File.createTempFile("streaming-", ".csv");
+        try {
+            new SyntheticDataGenerator(50000, 4).write(file);
+            AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+            dataLoader.setDataFile(file);
+            dataLoader.setSnapshotCache(false);
+            ListingTable table = dataLoader.loadTable();
+            StatisticsCalculator calculator = new StatisticsCalculator(table);
+            for (boolean memoryMapped : new boolean[] { true, false }) {
+                dataLoader.setMemoryMapped(memoryMapped);
+                for (int[] range : RANGES) {
+                    assertMatches(table, calculator, dataLoader.loadStatistics(range[0], range[1]), range);
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test that a file which cannot be read gives an error rather than the statistics of no listings.
+     */
+    @Test
+    public void testUnreadableFile() throws IOException {
+        File file = File.createTempFile("streaming-", ".csv");
+        file.delete();
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        dataLoader.setDataFile(file);
+        for (boolean memoryMapped : new boolean[] { true, false }) {
+            dataLoader.setMemoryMapped(memoryMapped);
+            try {
+                dataLoader.loadStatistics(0, Integer.MAX_VALUE);
+                fail("No error for a missing file");
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Test that once there are too many hosts to keep, host totals are estimated while every other
+     * total stays exact, and the busiest hosts still lead.
+     */
+    @Test
+    public void testHostSketch() {
+        StreamingStatistics statistics = new StreamingStatistics(0, 1000);
+        int hosts = StatisticsCalculator.HOST_SKETCH_THRESHOLD + 1000;
+        for (int host = 0; host < hosts; host++) {
+            statistics.add(Integer.toString(host + 1), "Host " + host, host % 2 == 0 ? "Camden" : "Hackney",
+                "Private room", 50 + host % 100, 1, 1);
+            // Two hosts with many listings and reviews, one seen before and one after the switch to estimates
+            if (host % 100 == 0) {
+                statistics.add("1", "Busy", "Camden", "Private room", 60, 1, 50);
+            }
+            if (host >= StatisticsCalculator.HOST_SKETCH_THRESHOLD && host % 10 == 0) {
+                statistics.add("999999999", "Busier", "Camden", "Shared room", 70, 1, 5000);
+            }
+        }
+        assertTrue(statistics.isHostSketch());
+        assertEquals(hosts + (hosts + 99) / 100 + 100, statistics.getListingsRead());
+
+        StatisticsSnapshot snapshot = statistics.getSnapshot();
+        long[] all = snapshot.getBoroughStatistics().get("All");
+        assertEquals(statistics.getListingsRead(), all[1]);
+        assertEquals(50, all[5]);
+        assertEquals(70, all[6]);
+        assertEquals(999999999, all[7]);
+        assertEquals(999999999, snapshot.getBoroughStatistics().get("Camden")[7]);
+        assertEquals(hosts, all[8], hosts * 0.1);
+
+        HostLeaderboard leaders = snapshot.getReviewLeaders().get("All");
+        assertEquals("Busier", statistics.getHostName(leaders.getHost(0)));
+        assertEquals("Busy", statistics.getHostName(leaders.getHost(1)));
+        leaders = snapshot.getListingLeaders().get("Camden");
+        assertEquals("1", statistics.getHostId(leaders.getHost(0)));
+    }
+
+    /**
+     * Check that streamed statistics are the same as those calculated from the table for a price range.
+     */
+    private void assertMatches(ListingTable table, StatisticsCalculator calculator, StreamingStatistics statistics,
+            int[] range) {
+        String message = "Range " + range[0] + " to " + range[1];
+        StatisticsSnapshot expected = calculator.calculateSnapshot(range[0], range[1], null);
+        StatisticsSnapshot actual = statistics.getSnapshot();
+        assertEquals(message, table.size(), statistics.getListingsRead());
+        assertFalse(message, statistics.isHostSketch());
+        assertEquals(message, calculator.getBoroughs(), statistics.getBoroughs());
+        assertEquals(message, expected.getMostExpensiveBorough(), actual.getMostExpensiveBorough());
+        for (String borough : calculator.getBoroughs()) {
+            assertArrayEquals(message + " in " + borough, expected.getBoroughStatistics().get(borough),
+                actual.getBoroughStatistics().get(borough));
+            assertLeadersMatch(table, statistics, expected.getReviewLeaders().get(borough),
+                actual.getReviewLeaders().get(borough));
+            assertLeadersMatch(table, statistics, expected.getListingLeaders().get(borough),
+                actual.getListingLeaders().get(borough));
+        }
+    }
+
+    /**
+     * Check that two leaderboards hold the same hosts with the same scores, and that the streamed statistics
+     * know each host's id and the name on their last listing.
+     */
+    private void assertLeadersMatch(ListingTable table, StreamingStatistics statistics, HostLeaderboard expected,
+            HostLeaderboard actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertEquals(expected.getHost(rank), actual.getHost(rank));
+            assertEquals(expected.getScore(rank), actual.getScore(rank));
+            assertEquals(table.getHostIds().getSymbol(expected.getHost(rank)), statistics.getHostId(actual.getHost(rank)));
+            assertEquals(lastHostName(table, expected.getHost(rank)), statistics.getHostName(actual.getHost(rank)));
+        }
+    }
+
+    /**
+     * Find the host name on the last listing of a host, as shown by the Statistics pane.
+     */
+    private String lastHostName(ListingTable table, int host) {
+        for (int row = table.size() - 1; row >= 0; row--) {
+            if (table.getHostIdCode(row) == host) {
+                return table.getHostName(row);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * A symbol table used to dictionary encode a column of repeated strings. Each distinct string is
+ * given a small integer code the first time it is seen, so that a column can store one int per row
+ * instead of one String per row. Codes are handed out in order starting from zero.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class SymbolTable {
+
+    // Map from each symbol to its code
+    private HashMap<String, Integer> codes;
+
+    // List of symbols, indexed by code
+    private ArrayList<String> symbols;
+
+    /**
+     * Create an empty symbol table.
+     */
+    public SymbolTable() {
+        codes = new HashMap<String, Integer>();
+        symbols = new ArrayList<String>();
+    }
+
+    /**
+     * Get the code for a symbol, adding the symbol to the table if it has not been seen before.
+     * @param symbol The symbol to encode.
+     * @return The code of the symbol.
+     */
+    public int intern(String symbol) {
+        Integer code = codes.get(symbol);
+        // If this is a new symbol give it the next free code
+        if (code == null) {
+            code = symbols.size();
+            codes.put(symbol, code);
+            symbols.add(symbol);
+        }
+        return code;
+    }
+
+    /**
+     * Get the code for a symbol without adding it to the table.
+     * @param symbol The symbol to look up.
+     * @return The code of the symbol, or -1 if the symbol is not in the table.
+     */
+    public int getCode(String symbol) {
+        Integer code = codes.get(symbol);
+        if (code == null) {
+            return -1;
+        }
+        return code;
+    }
+
+    /**
+     * Get the symbol for a code.
+     * @param code The code to decode.
+     * @return The symbol with this code.
+     */
+    public String getSymbol(int code) {
+        return symbols.get(code);
+    }
+
+    /**
+     * @return The number of distinct symbols in the table.
+     */
+    public int size() {
+        return symbols.size();
+    }
+}
@@ -0,0 +1,511 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes made up listings to a csv file with the same 15 columns as the AirBnB London data set, so that
+ * the viewer can be tried out on data sets many times larger than the real one:
+ *
+ *     java SyntheticDataGenerator 10000000 listings.csv [seed] [threads]
+ *
+ * The listings follow the shape of the real data. Boroughs are chosen in proportion to how many listings
+ * each has in London, and listings are placed around the centre of their borough, inside London. Prices
+ * depend on the room type and borough. Most hosts have a single listing, while a few have hundreds, and
+ * each listing's host listings count matches the number of listings its host has in the file. Some names
+ * hold commas, quotes and line breaks, so that they have to be quoted.
+ *
+ * The same number of rows and seed always give the same file, however many threads write it. The rows
+ * are made in blocks, each from its own random numbers seeded from the seed and the number of the block,
+ * and the blocks are made on several threads but written to the file in order. Only a few blocks are
+ * held in memory at once, so files of tens of millions of rows can be written without a large heap.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class SyntheticDataGenerator {
+
+    // First line of the file, naming the columns
+    public static final String HEADER = "id,name,host_id,host_name,neighbourhood,latitude,longitude,room_type,price,"
+        + "minimum_nights,number_of_reviews,last_review,reviews_per_month,calculated_host_listings_count,availability_365";
+
+    // Edges of the area listings are placed in, which holds every London borough
+    public static final double MIN_LATITUDE = 51.28;
+    public static final double MAX_LATITUDE = 51.70;
+    public static final double MIN_LONGITUDE = -0.52;
+    public static final double MAX_LONGITUDE = 0.34;
+
+    // Number of rows made together from the same random numbers
+    private static final int BLOCK_ROWS = 16384;
+
+    // Number of blocks being made or waiting to be written for each thread
+    private static final int BLOCKS_PER_THREAD = 2;
+
+    // Share of listings whose host has more than one listing, and the share of those a host keeps to one borough
+    private static final double MULTI_LISTING_SHARE = 0.45;
+    private static final double HOME_BOROUGH_SHARE = 0.6;
+
+    // Share of the listings held by the host with the most listings
+    private static final double TOP_HOST_SHARE = 0.004;
+
+    // Day the latest review was written, with reviews going back from it
+    private static final LocalDate LAST_REVIEW_DATE = LocalDate.of(2019, 11, 5);
+
+    // Every London borough, with its share of the listings, the centre of where its listings are and
+    // how its prices compare to the rest of London
+    private static final String[] BOROUGHS = { "Barking and Dagenham", "Barnet", "Bexley", "Brent", "Bromley",
+        "Camden", "City of London", "Croydon", "Ealing", "Enfield", "Greenwich", "Hackney", "Hammersmith and Fulham",
+        "Haringey", "Harrow", "Havering", "Hillingdon", "Hounslow", "Islington", "Kensington and Chelsea",
+        "Kingston upon Thames", "Lambeth", "Lewisham", "Merton", "Newham", "Redbridge", "Richmond upon Thames",
+        "Southwark", "Sutton", "Tower Hamlets", "Waltham Forest", "Wandsworth", "Westminster" };
+    private static final double[] BOROUGH_SHARES = { 0.4, 2.5, 0.4, 3.0, 0.8, 6.2, 0.6, 1.6, 2.6, 0.8, 2.2, 6.3,
+        4.6, 3.2, 0.6, 0.3, 1.0, 1.4, 5.3, 6.3, 0.7, 5.8, 2.8, 1.4, 2.8, 0.8, 1.7, 5.6, 0.4, 8.0, 1.8, 4.6, 9.6 };
+    private static final double[] BOROUGH_LATITUDES = { 51.5465, 51.6252, 51.4549, 51.5588, 51.4039, 51.5290,
+        51.5155, 51.3714, 51.5130, 51.6538, 51.4892, 51.5450, 51.4927, 51.5906, 51.5898, 51.5812, 51.5441, 51.4746,
+        51.5416, 51.5020, 51.3925, 51.4571, 51.4452, 51.4014, 51.5255, 51.5590, 51.4479, 51.5035, 51.3618, 51.5099,
+        51.5908, 51.4567, 51.4973 };
+    private static final double[] BOROUGH_LONGITUDES = { 0.1294, -0.2016, 0.1505, -0.2817, 0.0198, -0.1255,
+        -0.0922, -0.0977, -0.3089, -0.0799, 0.0648, -0.0553, -0.2339, -0.1110, -0.3346, 0.1837, -0.4760, -0.3680,
+        -0.1022, -0.1947, -0.3057, -0.1231, -0.0209, -0.1958, 0.0352, 0.0741, -0.3260, -0.0804, -0.1945, -0.0059,
+        -0.0134, -0.1910, -0.1372 };
+    private static final double[] BOROUGH_PRICE_FACTORS = { 0.7, 0.85, 0.7, 0.85, 0.75, 1.3, 1.6, 0.75, 0.9, 0.75,
+        0.9, 1.05, 1.2, 0.9, 0.75, 0.7, 0.8, 0.85, 1.2, 1.8, 0.85, 1.05, 0.85, 0.9, 0.9, 0.75, 1.1, 1.1, 0.75, 1.1,
+        0.85, 1.05, 1.7 };
+
+    // Spread of the listings around the centre of their borough, in degrees
+    private static final double LATITUDE_SPREAD = 0.018;
+    private static final double LONGITUDE_SPREAD = 0.028;
+
+    // Room types, with their share of the listings and the median and spread of their prices
+    private static final String[] ROOM_TYPES = { "Entire home/apt", "Private room", "Shared room" };
+    private static final double[] ROOM_TYPE_SHARES = { 0.51, 0.475, 0.015 };
+    private static final double[] MEDIAN_PRICES = { 120, 45, 30 };
+    private static final double PRICE_SPREAD = 0.6;
+
+    // Lowest and highest price of a night
+    private static final int MIN_PRICE = 8;
+    private static final int MAX_PRICE = 12000;
+
+    // Words listing names are made from, with the kinds of place for each room type
+    private static final String[] ADJECTIVES = { "Cosy", "Bright", "Spacious", "Modern", "Charming", "Stylish",
+        "Quiet", "Sunny", "Luxury", "Lovely", "Large", "Beautiful", "Central", "Peaceful", "Elegant", "Homely" };
+    private static final String[][] PLACES = {
+        { "flat", "apartment", "house", "studio", "loft", "maisonette", "townhouse", "penthouse" },
+        { "double room", "single room", "bedroom", "room", "ensuite room", "twin room", "attic room" },
+        { "shared room", "bed in dorm", "sofa bed", "bunk bed", "shared flat" } };
+    private static final String[] FEATURES = { "near the Tube", "with garden", "with balcony", "close to the park",
+        "by the river", "in the heart of London", "near transport links", "with free WiFi", "great location" };
+
+    // Names hosts are given, and words for the names of hosts with many listings
+    private static final String[] FIRST_NAMES = { "Alex", "Maria", "John", "Sarah", "David", "Anna", "James",
+        "Laura", "Tom", "Emma", "Daniel", "Sophie", "Michael", "Julia", "Chris", "Kate", "Paul", "Lucy", "Mark",
+        "Elena", "Ben", "Olivia", "Sam", "Hannah", "Luca", "Chloe", "Adam", "Rachel", "Ali", "Grace" };
+    private static final String[] SURNAMES = { "Smith", "Jones", "Taylor", "Brown", "Williams", "Wilson", "Evans",
+        "Thomas", "Roberts", "Walker", "Wright", "Green", "Hall", "Wood", "Clarke", "Patel" };
+    private static final String[] COMPANY_WORDS = { "Lettings", "Stays", "Apartments", "Homes", "Residences", "Living" };
+
+    // Number of rows to write
+    private int rows;
+
+    // Seed the random numbers are made from
+    private long seed;
+
+    // Number of threads making rows
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    // Share of all the listings up to each borough and each room type, for choosing them at random
+    private double[] boroughShares;
+    private double[] roomTypeShares;
+
+    // Number of listings of each host with more than two, and the number of listings up to each of them
+    private int[] hostListings;
+    private long[] hostStarts;
+
+    // Number of hosts with two listings, who are dealt the listings after those with more, and the
+    // number of listings up to the first host with one
+    private long pairHosts;
+    private long singleStart;
+
+    // Factor and step of the order the listings are dealt out to hosts in, so that a host's listings are
+    // spread through the file rather than next to each other
+    private long shuffleFactor;
+    private long shuffleStep;
+
+    /**
+     * Create a generator for a number of rows.
+     * @param rows The number of listings to write.
+     * @param seed The seed of the random numbers, the same seed always giving the same listings.
+     */
+    public SyntheticDataGenerator(int rows, long seed) {
+        if (rows < 0) {
+            throw new IllegalArgumentException("Number of rows cannot be negative: " + rows);
+        }
+        this.rows = rows;
+        this.seed = seed;
+        boroughShares = getRunningShares(BOROUGH_SHARES);
+        roomTypeShares = getRunningShares(ROOM_TYPE_SHARES);
+        assignHosts();
+    }
+
+    /**
+     * Choose how many threads make rows. By default there is one for each processor.
+     * @param threads The number of threads.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Write the listings to a csv file, replacing anything already in it.
+     * @param file The csv file.
+     */
+    public void write(File file) throws IOException {
+        int blockCount = (rows + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        // Make blocks on daemon threads so they do not stop the application closing
+        ExecutorService makers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Data generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (OutputStream csv = new BufferedOutputStream(Files.newOutputStream(file.toPath()), 1 << 20)) {
+            csv.write((HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+
+            // Keep a few blocks being made ahead of the one being written, writing each in order once made
+            ArrayDeque<Future<byte[]>> blocks = new ArrayDeque<Future<byte[]>>();
+            int nextBlock = 0;
+            while (nextBlock < blockCount || !blocks.isEmpty()) {
+                while (nextBlock < blockCount && blocks.size() < threads * BLOCKS_PER_THREAD) {
+                    int block = nextBlock++;
+                    blocks.add(makers.submit(() -> makeBlock(block)));
+                }
+                csv.write(blocks.remove().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Writing listings was interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not make listings", e.getCause());
+        } finally {
+            makers.shutdownNow();
+        }
+    }
+
+    /**
+     * Write a csv file of made up listings.
+     * @param args The number of rows and the file to write, optionally followed by the seed and the
+     *        number of threads.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java SyntheticDataGenerator rows file [seed] [threads]");
+            return;
+        }
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(Integer.parseInt(args[0]),
+            args.length > 2 ? Long.parseLong(args[2]) : 0);
+        if (args.length > 3) {
+            generator.setThreads(Integer.parseInt(args[3]));
+        }
+
+        File file = new File(args[1]);
+        long start = System.nanoTime();
+        generator.write(file);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Wrote %s rows (%.1f MB) in %.1f s, %.0f rows/s%n", args[0], file.length() / 1e6, seconds,
+            Integer.parseInt(args[0]) / seconds);
+    }
+
+    /**
+     * Make the text of a block of rows.
+     * @param block The number of the block.
+     * @return The rows as UTF-8 bytes, each ending with a line break.
+     */
+    private byte[] makeBlock(int block) {
+        SplittableRandom random = new SplittableRandom(mix(seed + mix(block)));
+        StringBuilder text = new StringBuilder(BLOCK_ROWS * 160);
+        int end = (int) Math.min(rows, (long) (block + 1) * BLOCK_ROWS);
+        for (int row = block * BLOCK_ROWS; row < end; row++) {
+            appendRow(text, row, random);
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Make up a listing and add it to some text as a row of the csv file.
+     */
+    private void appendRow(StringBuilder text, int row, SplittableRandom random) {
+        // Find the host of the listing, and how many listings they have
+        long position = (shuffleFactor * row + shuffleStep) % rows;
+        long host;
+        int listingCount;
+        if (position < singleStart) {
+            host = findHost(position);
+            listingCount = host < hostListings.length ? hostListings[(int) host] : 2;
+        } else {
+            host = hostListings.length + pairHosts + position - singleStart;
+            listingCount = 1;
+        }
+
+        // Hosts with several listings keep many of them in one borough
+        int borough;
+        if (listingCount > 1 && random.nextDouble() < HOME_BOROUGH_SHARE) {
+            borough = choose(boroughShares, (mix(seed ^ mix(host)) >>> 11) * 0x1.0p-53);
+        } else {
+            borough = choose(boroughShares, random.nextDouble());
+        }
+        int roomType = choose(roomTypeShares, random.nextDouble());
+
+        // Place the listing around the centre of its borough, inside London
+        double latitude = clamp(BOROUGH_LATITUDES[borough] + nextGaussian(random) * LATITUDE_SPREAD, MIN_LATITUDE, MAX_LATITUDE);
+        double longitude = clamp(BOROUGH_LONGITUDES[borough] + nextGaussian(random) * LONGITUDE_SPREAD, MIN_LONGITUDE, MAX_LONGITUDE);
+
+        // Prices spread out above and below the median for the room type, adjusted for the borough
+        double price = MEDIAN_PRICES[roomType] * BOROUGH_PRICE_FACTORS[borough] * Math.exp(nextGaussian(random) * PRICE_SPREAD);
+
+        // Most listings are up to a few years old and have a few reviews, while some have hundreds
+        int reviews = random.nextDouble() < 0.25 ? 0 : (int) Math.min(750, Math.exp(random.nextDouble() * 2 + nextGaussian(random)));
+
+        text.append(row + 1).append(',');
+        appendField(text, makeName(random, roomType, borough));
+        text.append(',').append(host + 1000).append(',');
+        appendField(text, makeHostName(host, listingCount));
+        text.append(',').append(BOROUGHS[borough]).append(',');
+        appendDecimal(text, latitude, 5);
+        text.append(',');
+        appendDecimal(text, longitude, 5);
+        text.append(',').append(ROOM_TYPES[roomType]);
+        text.append(',').append((int) clamp(Math.round(price), MIN_PRICE, MAX_PRICE));
+        text.append(',').append(makeMinimumNights(random));
+        text.append(',').append(reviews).append(',');
+        if (reviews > 0) {
+            // The last review is usually recent, and the listing has been reviewed over some months before it
+            text.append(LAST_REVIEW_DATE.minusDays((long) Math.min(3000, -Math.log(1 - random.nextDouble()) * 180)));
+            text.append(',');
+            appendDecimal(text, Math.max(0.01, reviews / (1.0 + random.nextInt(100))), 2);
+        } else {
+            text.append(',');
+        }
+        text.append(',').append(listingCount);
+        text.append(',').append(random.nextDouble() < 0.35 ? 0 : 1 + random.nextInt(365));
+        text.append('\n');
+    }
+
+    /**
+     * Make up the name of a listing. Some names hold commas, quotes or line breaks.
+     */
+    private static String makeName(SplittableRandom random, int roomType, int borough) {
+        String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+        String place = PLACES[roomType][random.nextInt(PLACES[roomType].length)];
+        String feature = FEATURES[random.nextInt(FEATURES.length)];
+        double style = random.nextDouble();
+        if (style < 0.55) {
+            return adjective + " " + place + " in " + BOROUGHS[borough];
+        } else if (style < 0.8) {
+            return adjective + " " + place + ", " + feature;
+        } else if (style < 0.9) {
+            return adjective + " " + place + " " + feature;
+        } else if (style < 0.97) {
+            return "\"" + adjective + "\" " + place + " in " + BOROUGHS[borough];
+        } else if (style < 0.99) {
+            return adjective + " " + place + "\n" + feature;
+        } else {
+            return adjective + " " + place + ", \"" + feature + "\"\n" + BOROUGHS[borough];
+        }
+    }
+
+    /**
+     * Make up the name of a host, which is always the same for the same host.
+     */
+    private String makeHostName(long host, int listingCount) {
+        long bits = mix(seed ^ mix(~host));
+        String firstName = FIRST_NAMES[(int) ((bits >>> 8) % FIRST_NAMES.length)];
+        String surname = SURNAMES[(int) ((bits >>> 24) % SURNAMES.length)];
+        int style = (int) ((bits >>> 40) % 100);
+        if (listingCount >= 20) {
+            // Hosts with many listings are mostly letting companies
+            return style < 70 ? surname + " " + COMPANY_WORDS[(int) ((bits >>> 48) % COMPANY_WORDS.length)] : firstName;
+        } else if (style < 8) {
+            return firstName + " & " + FIRST_NAMES[(int) ((bits >>> 48) % FIRST_NAMES.length)];
+        } else if (style < 9) {
+            return surname + ", " + firstName;
+        }
+        return firstName;
+    }
+
+    /**
+     * Make up the minimum number of nights of a listing, which is mostly a few nights but sometimes months.
+     */
+    private static int makeMinimumNights(SplittableRandom random) {
+        double chance = random.nextDouble();
+        if (chance < 0.4) {
+            return 1;
+        } else if (chance < 0.6) {
+            return 2;
+        } else if (chance < 0.75) {
+            return 3;
+        } else if (chance < 0.88) {
+            return 4 + random.nextInt(4);
+        } else if (chance < 0.96) {
+            return 7 + random.nextInt(24);
+        }
+        return 30 + random.nextInt(336);
+    }
+
+    /**
+     * Decide how many listings each host with more than one has, from a few with very many to many with
+     * two, and the order the listings are dealt out to hosts in. Only the hosts with more than two are
+     * kept, since the many hosts with two can be found from their position alone.
+     */
+    private void assignHosts() {
+        long multiListings = (long) (rows * MULTI_LISTING_SHARE);
+        int topListings = (int) Math.max(2, rows * TOP_HOST_SHARE);
+        int[] listings = new int[16];
+        long[] starts = new long[17];
+        int hosts = 0;
+        while (starts[hosts] + 2 <= multiListings) {
+            // The number of listings falls off with the rank of the host, down to two for every host after
+            int count = (int) Math.min(multiListings - starts[hosts], Math.max(2, topListings / (hosts + 1)));
+            if (count <= 2) {
+                break;
+            }
+            if (hosts + 1 == listings.length) {
+                listings = Arrays.copyOf(listings, listings.length * 2);
+                starts = Arrays.copyOf(starts, listings.length + 1);
+            }
+            listings[hosts] = count;
+            starts[hosts + 1] = starts[hosts] + count;
+            hosts++;
+        }
+        hostListings = Arrays.copyOf(listings, hosts);
+        hostStarts = Arrays.copyOf(starts, hosts + 1);
+        pairHosts = Math.max(0, multiListings - starts[hosts]) / 2;
+        singleStart = starts[hosts] + pairHosts * 2;
+
+        // Any factor sharing no divisor with the number of rows deals every listing out exactly once
+        shuffleFactor = rows <= 1 ? 1 : (mix(seed) >>> 1) % rows;
+        while (rows > 1 && gcd(shuffleFactor, rows) != 1) {
+            shuffleFactor++;
+        }
+        shuffleStep = rows == 0 ? 0 : (mix(~seed) >>> 1) % rows;
+    }
+
+    /**
+     * Find the host with more than one listing who is dealt the listing at a position.
+     */
+    private long findHost(long position) {
+        long pairStart = hostStarts[hostStarts.length - 1];
+        if (position >= pairStart) {
+            return hostListings.length + (position - pairStart) / 2;
+        }
+        int found = Arrays.binarySearch(hostStarts, position);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Add a field to some text, quoting it if it holds a comma, quote or line break.
+     */
+    private static void appendField(StringBuilder text, String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+            text.append(field);
+            return;
+        }
+        text.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                text.append('"');
+            }
+            text.append(c);
+        }
+        text.append('"');
+    }
+
+    /**
+     * Add a number to some text with a fixed number of decimal places, without the cost of formatting it.
+     */
+    private static void appendDecimal(StringBuilder text, double value, int places) {
+        long scale = 1;
+        for (int place = 0; place < places; place++) {
+            scale *= 10;
+        }
+        long scaled = Math.round(Math.abs(value) * scale);
+        if (value < 0 && scaled != 0) {
+            text.append('-');
+        }
+        text.append(scaled / scale).append('.');
+        String fraction = Long.toString(scaled % scale);
+        for (int padding = fraction.length(); padding < places; padding++) {
+            text.append('0');
+        }
+        text.append(fraction);
+    }
+
+    /**
+     * @return The running totals of some shares, divided by their total so the last is 1.
+     */
+    private static double[] getRunningShares(double[] shares) {
+        double[] running = new double[shares.length];
+        double total = 0;
+        for (int i = 0; i < shares.length; i++) {
+            total += shares[i];
+            running[i] = total;
+        }
+        for (int i = 0; i < shares.length; i++) {
+            running[i] /= total;
+        }
+        return running;
+    }
+
+    /**
+     * @return The first choice whose running share is above a number between 0 and 1.
+     */
+    private static int choose(double[] runningShares, double chance) {
+        int choice = 0;
+        while (choice < runningShares.length - 1 && runningShares[choice] <= chance) {
+            choice++;
+        }
+        return choice;
+    }
+
+    /**
+     * @return A number from the normal distribution with mean 0 and standard deviation 1.
+     */
+    private static double nextGaussian(SplittableRandom random) {
+        // Box-Muller transform of two uniform numbers
+        double u = 1 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long remainder = a % b;
+            a = b;
+            b = remainder;
+        }
+        return a;
+    }
+
+    /**
+     * Scramble the bits of a number, so that numbers next to each other give unrelated results.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
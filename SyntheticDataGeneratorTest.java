@@ -0,0 +1,111 @@
+import static org.junit.Assert.*;
+import org.junit.Test;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+/**
+ * The test class SyntheticDataGeneratorTest.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class SyntheticDataGeneratorTest
+{
+
+    // Number of rows generated for the tests, over several blocks
+    private static final int ROWS = 50000;
+
+    /**
+     * Test that the same seed gives the same file however many threads write it, and another seed does not.
+     */
+    @Test
+    public void testDeterministic() throws IOException {
+        File oneThread = File.createTempFile("synthetic-", ".csv");
+        File fourThreads = File.createTempFile("synthetic-", ".csv");
+        File otherSeed = File.createTempFile("synthetic-", ".csv");
+        try {
+            SyntheticDataGenerator generator = new SyntheticDataGenerator(ROWS, 1);
+            generator.setThreads(1);
+            generator.write(oneThread);
+            generator.setThreads(4);
+            generator.write(fourThreads);
+            new SyntheticDataGenerator(ROWS, 2).write(otherSeed);
+
+            assertEquals(-1, Files.mismatch(oneThread.toPath(), fourThreads.toPath()));
+            assertNotEquals(-1, Files.mismatch(oneThread.toPath(), otherSeed.toPath()));
+        } finally {
+            oneThread.delete();
+            fourThreads.delete();
+            otherSeed.delete();
+        }
+    }
+
+    /**
+     * Test that the file loads into the expected rows with either way of parsing it, with quoted names,
+     * listings inside London, and host listing counts matching the listings of each host.
+     */
+    @Test
+    public void testLoads() throws IOException {
+        File file = File.createTempFile("synthetic-", ".csv");
+        try {
+            new SyntheticDataGenerator(ROWS, 3).write(file);
+            ListingTable mapped = load(file, true);
+            ListingTable parsed = load(file, false);
+            assertEquals(ROWS, mapped.size());
+            assertEquals(ROWS, parsed.size());
+            assertEquals(33, mapped.getNeighbourhoods().size());
+            assertEquals(3, mapped.getRoomTypes().size());
+
+            int commas = 0;
+            int quotes = 0;
+            int lineBreaks = 0;
+            HashMap<String, Integer> hostListings = new HashMap<String, Integer>();
+            for (int row = 0; row < ROWS; row++) {
+                assertEquals(Integer.toString(row + 1), mapped.getId(row));
+                assertEquals(parsed.getName(row), mapped.getName(row));
+                assertEquals(parsed.getHostName(row), mapped.getHostName(row));
+                assertEquals(parsed.getPrice(row), mapped.getPrice(row));
+                assertEquals(parsed.getLastReview(row), mapped.getLastReview(row));
+
+                String name = mapped.getName(row);
+                commas += name.contains(",") ? 1 : 0;
+                quotes += name.contains("\"") ? 1 : 0;
+                lineBreaks += name.contains("\n") ? 1 : 0;
+
+                assertTrue(mapped.getLatitude(row) >= SyntheticDataGenerator.MIN_LATITUDE);
+                assertTrue(mapped.getLatitude(row) <= SyntheticDataGenerator.MAX_LATITUDE);
+                assertTrue(mapped.getLongitude(row) >= SyntheticDataGenerator.MIN_LONGITUDE);
+                assertTrue(mapped.getLongitude(row) <= SyntheticDataGenerator.MAX_LONGITUDE);
+                assertTrue(mapped.getPrice(row) > 0);
+                hostListings.merge(mapped.getHostId(row), 1, Integer::sum);
+            }
+            assertTrue(commas > 0 && quotes > 0 && lineBreaks > 0);
+
+            // Most hosts have one listing, while some have many
+            int singleHosts = 0;
+            for (int row = 0; row < ROWS; row++) {
+                assertEquals((int) hostListings.get(mapped.getHostId(row)), mapped.getCalculatedHostListingsCount(row));
+            }
+            for (int listings : hostListings.values()) {
+                singleHosts += listings == 1 ? 1 : 0;
+            }
+            assertTrue(singleHosts > hostListings.size() / 2);
+            assertTrue(hostListings.values().stream().anyMatch(listings -> listings >= 100));
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Load a file without keeping a snapshot of it.
+     */
+    private ListingTable load(File file, boolean memoryMapped) throws IOException {
+        AirbnbDataLoader dataLoader = new AirbnbDataLoader();
+        dataLoader.setDataFile(file);
+        dataLoader.setSnapshotCache(false);
+        dataLoader.setMemoryMapped(memoryMapped);
+        return dataLoader.loadTable();
+    }
+}
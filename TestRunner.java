@@ -10,8 +10,13 @@ import org.junit.runner.notification.Failure;
  */
 public class TestRunner {
    public static void main(String[] args) {
-      // Run tests for statistics controller
-      Result result = JUnitCore.runClasses(StatisticsPaneControllerTest.class);
+      // Run tests for statistics controller and the statistics it is built on, the map's spatial index, the text
+      // search and the challenge pane, the filters, the generator of made up listings, the statistics
+      // streamed from a file and the loader
+      Result result = JUnitCore.runClasses(StatisticsPaneControllerTest.class, StatisticsAccumulatorTest.class,
+         SpatialGridIndexTest.class, ListingTextIndexTest.class, ListingFilterIndexTest.class,
+         SyntheticDataGeneratorTest.class, StreamingStatisticsTest.class, ChallengePaneControllerTest.class,
+         AirbnbDataLoaderTest.class);
         
       // Output failures to console
       for (Failure failure : result.getFailures()) {
@@ -0,0 +1,137 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import javafx.scene.image.Image;
+
+/**
+ * A cache of the map tiles drawn most recently, each identified by its zoom level, its column and row
+ * in the grid of tiles at that level, and the price range it was drawn for. Once the cache is full,
+ * adding another tile drops the tile which has gone unused the longest, so the memory used by tiles
+ * stays within a fixed bound however far the user pans and zooms.
+ *
+ * @author David Wang (k19005122), Savraj Bassi (k19029720), Edis Emin (k1921655), Sean McGrory (k1922054)
+ * @version 1.7
+ */
+public class TileCache {
+
+    // Number of tiles kept when no capacity is given, a few screens' worth
+    private static final int DEFAULT_CAPACITY = 96;
+
+    // Largest number of tiles kept
+    private int capacity;
+
+    // Tiles in order from least to most recently used
+    private LinkedHashMap<Key, Image> tiles;
+
+    /**
+     * Create an empty cache with the default capacity.
+     */
+    public TileCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty cache.
+     * @param capacity The largest number of tiles to keep.
+     */
+    public TileCache(int capacity) {
+        this.capacity = capacity;
+        // Keep the entries in access order so the eldest entry is always the least recently used
+        tiles = new LinkedHashMap<Key, Image>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Image> eldest) {
+                return size() > TileCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Look up a tile.
+     * @param key The tile.
+     * @return The image of the tile, or null if it is not in the cache.
+     */
+    public Image get(Key key) {
+        return tiles.get(key);
+    }
+
+    /**
+     * Add a tile to the cache, making room if the cache is full.
+     * @param key The tile.
+     * @param image The image of the tile.
+     */
+    public void put(Key key, Image image) {
+        tiles.put(key, image);
+    }
+
+    /**
+     * Remove every tile, for example because the listings have changed.
+     */
+    public void clear() {
+        tiles.clear();
+    }
+
+    /**
+     * @return The number of tiles in the cache.
+     */
+    public int size() {
+        return tiles.size();
+    }
+
+    /**
+     * Identifies a tile by its zoom level, position and price range.
+     */
+    public static class Key {
+
+        // Zoom level, and column and row of the tile in the grid of tiles at that level
+        private int level;
+        private int column;
+        private int row;
+
+        // Price range the tile is drawn for
+        private int minPrice;
+        private int maxPrice;
+
+        public Key(int level, int column, int row, int minPrice, int maxPrice) {
+            this.level = level;
+            this.column = column;
+            this.row = row;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getMinPrice() {
+            return minPrice;
+        }
+
+        public int getMaxPrice() {
+            return maxPrice;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return level == key.level && column == key.column && row == key.row
+                && minPrice == key.minPrice && maxPrice == key.maxPrice;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(level, column, row, minPrice, maxPrice);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.concurrent.Task;
 import javafx.scene.layout.HBox;
 
 /**
@@ -20,6 +22,15 @@ public class WelcomePaneController
     @FXML
     private HBox priceRange;
 
+    @FXML
+    private HBox loadingBox;
+
+    @FXML
+    private ProgressBar loadingProgress;
+
+    @FXML
+    private Label loadingLabel;
+
     @FXML
     private void initialize() {
         priceRange.setVisible(false);
@@ -33,4 +44,25 @@ public class WelcomePaneController
 
     }
 
+    /**
+     * Show the progress and message of the task loading the listings.
+     * @param loadTask The task loading the listings.
+     */
+    public void showLoadingProgress(Task<?> loadTask)
+    {
+        loadingProgress.progressProperty().bind(loadTask.progressProperty());
+        loadingLabel.textProperty().bind(loadTask.messageProperty());
+        loadingBox.setVisible(true);
+    }
+
+    /**
+     * Hide the loading progress once the listings have loaded.
+     */
+    public void hideLoadingProgress()
+    {
+        loadingProgress.progressProperty().unbind();
+        loadingLabel.textProperty().unbind();
+        loadingBox.setVisible(false);
+    }
+
 }